@@ -0,0 +1,55 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.dao.ClienteDAO;
+import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Búsqueda de clientes por prefijo con el índice de búsqueda (ClienteDAO.buscar, como la
+ * lista de clientes: hasta 500 resultados) con 10k y 150k clientes, unas 70k y 1M
+ * entradas en Indice_busqueda. Incluye términos de una y dos letras, que coinciden como
+ * prefijo con buena parte del índice, y combinaciones de palabras largas y cortas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class BusquedaClientesBenchmark {
+
+    private static final int LIMITE_RESULTADOS = 500;
+
+    @Param({"10000", "150000"})
+    private int numClientes;
+
+    @Param({"g", "ga", "garc", "juan", "juan g", "maria garcia", "ana lopez castro"})
+    private String termino;
+
+    private ClienteDAO clienteDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosSinteticos.usarBaseDatosEnMemoria("benchmark_busqueda");
+        // Sin esto H2 devuelve el resultado anterior al repetir la consulta con los mismos parámetros
+        System.setProperty("db.url", System.getProperty("db.url") + ";OPTIMIZE_REUSE_RESULTS=FALSE");
+        DatosSinteticos.cargarClientesConNombres(numClientes);
+
+        clienteDAO = new ClienteDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        DatabaseConnection.close();
+    }
+
+    @Benchmark
+    public List<Cliente> buscar() {
+        return clienteDAO.buscar(termino, LIMITE_RESULTADOS, null);
+    }
+}
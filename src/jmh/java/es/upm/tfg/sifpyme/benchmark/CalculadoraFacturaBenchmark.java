@@ -0,0 +1,37 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.service.CalculadoraFacturaService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark del recálculo completo de importes de una factura
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculadoraFacturaBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int numLineas;
+
+    private CalculadoraFacturaService calculadora;
+    private Factura factura;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        calculadora = new CalculadoraFacturaService();
+        factura = DatosSinteticos.crearFactura("BEN-CALC", numLineas);
+    }
+
+    @Benchmark
+    public Factura recalcularFacturaCompleta() {
+        calculadora.recalcularFacturaCompleta(factura);
+        return factura;
+    }
+}
@@ -0,0 +1,183 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import ch.qos.logback.classic.Level;
+import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.model.entity.Empresa;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+import es.upm.tfg.sifpyme.service.CalculadoraFacturaService;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generación de datos sintéticos para los benchmarks
+ * Las facturas en memoria se construyen con entidades; los volúmenes grandes se
+ * cargan en la base de datos con INSERT ... SELECT para no medir la carga en Java.
+ */
+public final class DatosSinteticos {
+
+    public static final int NUM_CLIENTES = 1000;
+    public static final int LINEAS_POR_FACTURA_BD = 3;
+
+    private static final BigDecimal[] TIPOS_IVA = {
+        new BigDecimal("21.00"), new BigDecimal("10.00"), new BigDecimal("4.00")
+    };
+
+    private static final String SQL_INSERT_EMPRESA =
+        "INSERT INTO Empresa (razon_social, nif, direccion, telefono, email, por_defecto) " +
+        "VALUES ('Empresa Benchmark SL', 'B00000000', 'Calle Mayor 1, Madrid', '910000000', " +
+        "'facturas@benchmark.es', TRUE)";
+
+    private static final String SQL_INSERT_CLIENTES =
+        "INSERT INTO Cliente (nombre_fiscal, nif, direccion, email) " +
+        "SELECT 'Cliente ' || X, 'C' || LPAD(X, 8, '0'), 'Calle ' || X, 'cliente' || X || '@mail.es' " +
+        "FROM SYSTEM_RANGE(1, ?)";
+
+    // Nombres y apellidos combinados para que las búsquedas por prefijo tengan una selectividad realista
+    private static final String SQL_INSERT_CLIENTES_NOMBRES =
+        "INSERT INTO Cliente (nombre_fiscal, nif, direccion, email) " +
+        "SELECT n || ' ' || a1 || ' ' || a2, 'P' || LPAD(X, 8, '0'), 'Calle ' || X, " +
+        "LOWER(n) || '.' || X || '@mail.es' FROM (" +
+        "SELECT X, " +
+        "ARRAY['Juan', 'Maria', 'Jose', 'Ana', 'Luis', 'Carmen', 'Antonio', 'Laura', 'Javier', 'Elena', " +
+        "'Manuel', 'Lucia', 'David', 'Marta', 'Pablo', 'Sara', 'Carlos', 'Paula', 'Miguel', 'Isabel']" +
+        "[MOD(X, 20) + 1] AS n, " +
+        "ARRAY['Garcia', 'Rodriguez', 'Gonzalez', 'Fernandez', 'Lopez', 'Martinez', 'Sanchez', 'Perez', " +
+        "'Gomez', 'Martin', 'Jimenez', 'Ruiz', 'Hernandez', 'Diaz', 'Moreno', 'Alvarez', 'Romero', " +
+        "'Alonso', 'Gutierrez', 'Navarro', 'Torres', 'Dominguez', 'Vazquez', 'Ramos', 'Gil', 'Ramirez', " +
+        "'Serrano', 'Blanco', 'Molina', 'Morales']" +
+        "[MOD(X / 20, 30) + 1] AS a1, " +
+        "ARRAY['Castro', 'Ortega', 'Rubio', 'Marin', 'Sanz', 'Iglesias', 'Nunez', 'Medina', 'Garrido', " +
+        "'Cortes', 'Castillo', 'Santos', 'Lozano', 'Guerrero', 'Cano', 'Prieto', 'Mendez', 'Cruz', " +
+        "'Calvo', 'Gallego']" +
+        "[MOD(X / 600, 20) + 1] AS a2 " +
+        "FROM SYSTEM_RANGE(1, ?))";
+
+    private static final String SQL_INSERT_FACTURAS =
+        "INSERT INTO Factura (id_factura, id_empresa, id_cliente, fecha_emision, metodo_pago, " +
+        "subtotal, total_iva, total_retencion, total) " +
+        "SELECT 'BEN-' || LPAD(X, 8, '0'), 1, MOD(X, ?) + 1, DATEADD('DAY', -MOD(X, 3650), CURRENT_DATE), " +
+        "'Transferencia', 300.00, 63.00, 0, 363.00 FROM SYSTEM_RANGE(1, ?)";
+
+    private static final String SQL_INSERT_LINEAS =
+        "INSERT INTO Linea_factura (id_factura, nombre_producto, cantidad, precio_base, precio_unitario, " +
+        "descuento, subtotal_linea, porcentaje_iva, importe_iva, porcentaje_retencion, importe_retencion, " +
+        "total_linea, numero_linea) " +
+        "SELECT 'BEN-' || LPAD(f.X, 8, '0'), 'Producto ' || l.X, 2, 50.00, 50.00, 0, 100.00, 21.00, 21.00, " +
+        "0, 0, 121.00, l.X FROM SYSTEM_RANGE(1, ?) f CROSS JOIN SYSTEM_RANGE(1, ?) l";
+
+    private DatosSinteticos() {
+    }
+
+    /**
+     * Apunta DatabaseConnection a una base de datos H2 en memoria propia del proceso
+     * y reduce el nivel de log de la aplicación para no medir la escritura de trazas.
+     * Debe llamarse antes de la primera conexión.
+     */
+    public static void usarBaseDatosEnMemoria(String nombre) {
+        System.setProperty("db.url", "jdbc:h2:mem:" + nombre + ";DB_CLOSE_DELAY=-1");
+        System.setProperty("db.pool.minimumIdle", "1");
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger("es.upm.tfg.sifpyme"))
+                .setLevel(Level.WARN);
+    }
+
+    /**
+     * Carga una empresa, NUM_CLIENTES clientes y 'numFacturas' facturas de
+     * LINEAS_POR_FACTURA_BD líneas con IDs BEN-00000001, BEN-00000002...
+     */
+    public static void cargarFacturas(int numFacturas) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.executeUpdate(SQL_INSERT_EMPRESA);
+
+            try (PreparedStatement clientes = conn.prepareStatement(SQL_INSERT_CLIENTES)) {
+                clientes.setInt(1, NUM_CLIENTES);
+                clientes.executeUpdate();
+            }
+
+            try (PreparedStatement facturas = conn.prepareStatement(SQL_INSERT_FACTURAS)) {
+                facturas.setInt(1, NUM_CLIENTES);
+                facturas.setInt(2, numFacturas);
+                facturas.executeUpdate();
+            }
+
+            try (PreparedStatement lineas = conn.prepareStatement(SQL_INSERT_LINEAS)) {
+                lineas.setInt(1, numFacturas);
+                lineas.setInt(2, LINEAS_POR_FACTURA_BD);
+                lineas.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Carga 'numClientes' clientes con nombre y dos apellidos combinados de listas comunes
+     * (el trigger del índice de búsqueda indexa unas 7 palabras por cliente)
+     */
+    public static void cargarClientesConNombres(int numClientes) throws SQLException {
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_CLIENTES_NOMBRES)) {
+            stmt.setInt(1, numClientes);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Construye en memoria una factura completa (empresa, cliente y líneas calculadas)
+     */
+    public static Factura crearFactura(String idFactura, int numLineas) {
+        Empresa empresa = new Empresa("Empresa Benchmark SL", "B00000000", "Calle Mayor 1, Madrid");
+        empresa.setIdEmpresa(1);
+        empresa.setTelefono("910000000");
+        empresa.setEmail("facturas@benchmark.es");
+
+        Cliente cliente = new Cliente(1, "Cliente Benchmark SA", "A11111111",
+                "Avenida de la Industria 25, Getafe", "916000000", "compras@cliente.es");
+
+        Factura factura = new Factura();
+        factura.setIdFactura(idFactura);
+        factura.setIdEmpresa(empresa.getIdEmpresa());
+        factura.setIdCliente(cliente.getIdCliente());
+        factura.setEmpresa(empresa);
+        factura.setCliente(cliente);
+        factura.setFechaEmision(LocalDate.of(2025, 1, 15));
+        factura.setMetodoPago("Transferencia");
+        factura.setLineas(crearLineas(idFactura, numLineas));
+
+        new CalculadoraFacturaService().recalcularFacturaCompleta(factura);
+        return factura;
+    }
+
+    /**
+     * Crea líneas con cantidades, precios, descuentos y tipos de IVA variados
+     */
+    public static List<LineaFactura> crearLineas(String idFactura, int numLineas) {
+        List<LineaFactura> lineas = new ArrayList<>(numLineas);
+
+        for (int i = 1; i <= numLineas; i++) {
+            LineaFactura linea = new LineaFactura();
+            linea.setIdFactura(idFactura);
+            linea.setNumeroLinea(i);
+            linea.setNombreProducto("Producto de prueba " + i);
+            linea.setCantidad(BigDecimal.valueOf(1 + i % 7));
+            linea.setPrecioBase(BigDecimal.valueOf(1000 + i * 37L, 2));
+            linea.setPrecioUnitario(linea.getPrecioBase());
+            linea.setDescuento(BigDecimal.valueOf(i % 4 * 5));
+            linea.setPorcentajeIva(TIPOS_IVA[i % TIPOS_IVA.length]);
+            linea.setPorcentajeRetencion(i % 5 == 0 ? new BigDecimal("15.00") : BigDecimal.ZERO);
+            lineas.add(linea);
+        }
+
+        return lineas;
+    }
+}
@@ -0,0 +1,69 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.service.FacturaExcelService;
+import es.upm.tfg.sifpyme.service.FacturaPDFService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark de la exportación de una factura a PDF y a Excel, en un directorio temporal
+ * y en memoria (byte[])
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportacionBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int numLineas;
+
+    private FacturaPDFService pdfService;
+    private FacturaExcelService excelService;
+    private Factura factura;
+    private Path directorio;
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        pdfService = new FacturaPDFService();
+        excelService = new FacturaExcelService();
+        factura = DatosSinteticos.crearFactura("BEN-EXPORT", numLineas);
+        directorio = Files.createTempDirectory("sifpyme-benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void limpiar() throws IOException {
+        try (Stream<Path> ficheros = Files.walk(directorio)) {
+            ficheros.sorted(Comparator.reverseOrder()).forEach(ruta -> ruta.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public String generarPDF() throws Exception {
+        return pdfService.generarPDF(factura, directorio.resolve("factura.pdf").toString());
+    }
+
+    @Benchmark
+    public String generarExcel() throws IOException {
+        return excelService.generarExcel(factura, directorio.resolve("factura.xlsx").toString());
+    }
+
+    @Benchmark
+    public byte[] generarPDFBytes() throws Exception {
+        return pdfService.generarPDFBytes(factura);
+    }
+
+    @Benchmark
+    public byte[] generarExcelBytes() throws IOException {
+        return excelService.generarExcelBytes(factura);
+    }
+}
@@ -0,0 +1,70 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+import es.upm.tfg.sifpyme.model.dao.PlanesConsultaDAO;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark de FacturaDAO contra una base de datos H2 en memoria con
+ * 1k, 100k y 1M facturas sintéticas (3 líneas por factura)
+ * Cada combinación de parámetros se ejecuta en su propio proceso, con su propia base de datos.
+ * Antes de medir comprueba con EXPLAIN que las consultas de facturas usan sus índices
+ * compuestos con ese volumen de datos; si no, el benchmark falla.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx6g"})
+public class FacturaDAOBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int numFacturas;
+
+    @Param({"10"})
+    private int lineasPorFacturaNueva;
+
+    private FacturaDAO facturaDAO;
+    private long secuencia;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosSinteticos.usarBaseDatosEnMemoria("benchmark_dao");
+        DatosSinteticos.cargarFacturas(numFacturas);
+
+        List<String> fallos = new PlanesConsultaDAO().comprobarIndices();
+        if (!fallos.isEmpty()) {
+            throw new IllegalStateException(String.join("\n", fallos));
+        }
+
+        facturaDAO = new FacturaDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        DatabaseConnection.close();
+    }
+
+    @Benchmark
+    public List<Factura> obtenerTodas() {
+        return facturaDAO.obtenerTodas();
+    }
+
+    /**
+     * Inserta en cada llamada una factura nueva con su propio ID
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean insertar() {
+        Factura factura = DatosSinteticos.crearFactura(
+                String.format("INS-%08d", ++secuencia), lineasPorFacturaNueva);
+        return facturaDAO.insertar(factura);
+    }
+}
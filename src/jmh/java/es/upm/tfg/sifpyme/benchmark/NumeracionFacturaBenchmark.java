@@ -0,0 +1,133 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.service.NumeracionFacturaService;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emisión concurrente de facturas de dos empresas con numeración automática, como en
+ * FacturaController.guardarFactura: cada llamada reserva el siguiente ID y guarda la factura.
+ * Cada empresa alterna su serie por defecto con una serie que usan las dos (SERIE_COMUN).
+ *
+ * Además de medir, comprueba la numeración: falla si se reserva dos veces el mismo ID o si
+ * no se puede guardar una factura y, al terminar, si la serie por defecto de alguna empresa
+ * tiene huecos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class NumeracionFacturaBenchmark {
+
+    private static final int EMPRESA_A = 1;
+    private static final int EMPRESA_B = 2;
+    private static final String SERIE_COMUN = "COMUN";
+
+    private static final String SQL_INSERT_EMPRESA_B =
+        "INSERT INTO Empresa (razon_social, nif, direccion) " +
+        "VALUES ('Segunda Empresa Benchmark SL', 'B00000002', 'Calle Menor 2, Madrid')";
+
+    private static final String SQL_IDS_SERIE =
+        "SELECT id_factura FROM Factura WHERE id_factura LIKE ?";
+
+    private final Set<String> idsReservados = ConcurrentHashMap.newKeySet();
+
+    private NumeracionFacturaService numeracionService;
+    private FacturaDAO facturaDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        DatosSinteticos.usarBaseDatosEnMemoria("benchmark_numeracion");
+        DatosSinteticos.cargarFacturas(0);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(SQL_INSERT_EMPRESA_B);
+        }
+
+        numeracionService = new NumeracionFacturaService();
+        facturaDAO = new FacturaDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void comprobarYCerrar() throws SQLException {
+        try {
+            comprobarSinHuecos(NumeracionFacturaService.serieActual(EMPRESA_A));
+            comprobarSinHuecos(NumeracionFacturaService.serieActual(EMPRESA_B));
+        } finally {
+            DatabaseConnection.close();
+        }
+    }
+
+    @Benchmark
+    @Group("dosEmpresas")
+    @GroupThreads(2)
+    public String emitirEmpresaA() throws SQLException {
+        return emitir(EMPRESA_A);
+    }
+
+    @Benchmark
+    @Group("dosEmpresas")
+    @GroupThreads(2)
+    public String emitirEmpresaB() throws SQLException {
+        return emitir(EMPRESA_B);
+    }
+
+    private String emitir(int idEmpresa) throws SQLException {
+        String serie = ThreadLocalRandom.current().nextBoolean()
+                ? NumeracionFacturaService.serieActual(idEmpresa)
+                : SERIE_COMUN;
+        String id = numeracionService.siguienteId(serie);
+
+        if (!idsReservados.add(id)) {
+            throw new IllegalStateException("ID reservado dos veces: " + id);
+        }
+
+        Factura factura = DatosSinteticos.crearFactura(id, 1);
+        factura.setIdEmpresa(idEmpresa);
+        if (!facturaDAO.insertar(factura)) {
+            throw new IllegalStateException("No se pudo guardar la factura " + id);
+        }
+        return id;
+    }
+
+    /**
+     * Los números de la serie guardados deben ser exactamente 1..n
+     */
+    private void comprobarSinHuecos(String serie) throws SQLException {
+        String prefijo = serie + "-";
+        long numFacturas = 0;
+        long maximo = 0;
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_IDS_SERIE)) {
+            stmt.setString(1, prefijo + "%");
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    numFacturas++;
+                    maximo = Math.max(maximo, Long.parseLong(rs.getString(1).substring(prefijo.length())));
+                }
+            }
+        }
+
+        if (numFacturas != maximo) {
+            throw new IllegalStateException("La serie " + serie + " tiene huecos: " + numFacturas
+                    + " facturas hasta el número " + maximo);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.service.FacturaPDFService;
+import es.upm.tfg.sifpyme.service.FuentesPDF;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencia de la primera generación de PDF en una JVM nueva (cada fork mide una sola
+ * llamada), sin precalentar y tras FuentesPDF.precalentar(). La latencia en caliente,
+ * con la JVM ya estabilizada, la mide ExportacionBenchmark.generarPDF.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class PrimerPDFBenchmark {
+
+    @Param({"false", "true"})
+    private boolean precalentado;
+
+    private FacturaPDFService pdfService;
+    private Factura factura;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        factura = DatosSinteticos.crearFactura("BEN-PRIMERO", 10);
+        pdfService = new FacturaPDFService();
+
+        if (precalentado) {
+            FuentesPDF.precalentar();
+        }
+    }
+
+    @Benchmark
+    public void generarPDF() throws Exception {
+        pdfService.generarPDF(factura, OutputStream.nullOutputStream());
+    }
+}
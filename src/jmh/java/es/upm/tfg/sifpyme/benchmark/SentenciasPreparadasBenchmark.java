@@ -0,0 +1,105 @@
+package es.upm.tfg.sifpyme.benchmark;
+
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+import es.upm.tfg.sifpyme.model.dao.LineaFacturaDAO;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste por llamada de las consultas por ID de los DAOs (obtener conexión, preparar,
+ * ejecutar y cerrar) con la caché de sentencias de H2 por defecto (8) o ampliada
+ * (db.datasource.QUERY_CACHE_SIZE=64). tamanoCacheH2=8 es el comportamiento anterior.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class SentenciasPreparadasBenchmark {
+
+    private static final int NUM_FACTURAS = 10_000;
+    private static final int OTRAS_CONSULTAS = 16;
+
+    @Param({"8", "64"})
+    private int tamanoCacheH2;
+
+    private FacturaDAO facturaDAO;
+    private LineaFacturaDAO lineaFacturaDAO;
+
+    @Setup(Level.Trial)
+    public void preparar() throws SQLException {
+        System.setProperty("db.datasource.QUERY_CACHE_SIZE", String.valueOf(tamanoCacheH2));
+        DatosSinteticos.usarBaseDatosEnMemoria("benchmark_sentencias");
+        System.setProperty("db.pool.maximumPoolSize", "1");
+        DatosSinteticos.cargarFacturas(NUM_FACTURAS);
+
+        facturaDAO = new FacturaDAO();
+        lineaFacturaDAO = new LineaFacturaDAO();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        DatabaseConnection.close();
+    }
+
+    private static String idAleatorio() {
+        return String.format("BEN-%08d", ThreadLocalRandom.current().nextInt(1, NUM_FACTURAS + 1));
+    }
+
+    /**
+     * Factura con sus líneas: SELECT por ID más la carga de líneas
+     */
+    @Benchmark
+    public Factura obtenerFacturaPorId() {
+        return facturaDAO.obtenerPorId(idAleatorio());
+    }
+
+    @Benchmark
+    public List<LineaFactura> obtenerLineasPorFactura() {
+        return lineaFacturaDAO.obtenerPorFactura(idAleatorio());
+    }
+
+    /**
+     * Factura por ID tras ejecutar OTRAS_CONSULTAS sentencias distintas en la misma conexión,
+     * como ocurre al navegar entre pantallas. Con más sentencias que la caché de H2, esta
+     * ya no evita volver a analizar el SQL de la factura.
+     */
+    @Benchmark
+    public Factura obtenerFacturaPorIdTrasOtrasConsultas(OtrasConsultas otras) {
+        return facturaDAO.obtenerPorId(idAleatorio());
+    }
+
+    /**
+     * Ejecuta las otras consultas antes de cada llamada, fuera del tiempo medido
+     * (con una sola conexión en el pool, siempre es la misma sesión de H2)
+     */
+    @State(Scope.Thread)
+    public static class OtrasConsultas {
+
+        @Setup(Level.Invocation)
+        public void ejecutar() throws SQLException {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                for (int i = 0; i < OTRAS_CONSULTAS; i++) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "SELECT COUNT(*) FROM Factura WHERE id_factura = ? AND " + i + " >= 0")) {
+                        stmt.setString(1, idAleatorio());
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            rs.next();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
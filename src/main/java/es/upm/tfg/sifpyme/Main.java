@@ -1,5 +1,6 @@
 package es.upm.tfg.sifpyme;
 
+import es.upm.tfg.sifpyme.service.ArranqueService;
 import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import es.upm.tfg.sifpyme.util.NavigationManager;
 import es.upm.tfg.sifpyme.view.MainMenuView;
@@ -8,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import java.lang.management.ManagementFactory;
 
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
@@ -19,12 +21,17 @@ public class Main {
             // Configurar Look and Feel del sistema
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
 
+            // Base de datos, cachés y generación de PDF en segundo plano mientras se abre la interfaz
+            ArranqueService.iniciar();
+
             // Navegar directamente al menú principal
             logger.info("Iniciando aplicación, mostrando menú principal...");
             SwingUtilities.invokeLater(() -> {
                 MainMenuView mainMenu = new MainMenuView();
                 NavigationManager navigationManager = NavigationManager.getInstance();
                 navigationManager.navigateToAndCloseCurrent(mainMenu);
+                logger.info("Menú principal visible a los {} ms del inicio de la JVM",
+                        ManagementFactory.getRuntimeMXBean().getUptime());
             });
 
         } catch (Exception e) {
@@ -2,10 +2,12 @@ package es.upm.tfg.sifpyme.controller;
 
 import es.upm.tfg.sifpyme.model.dao.ClienteDAO;
 import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Controlador para gestionar las operaciones relacionadas con Cliente
@@ -174,6 +176,23 @@ public class ClienteController {
         }
     }
     
+    /**
+     * Busca clientes por término con un máximo de resultados y posibilidad de cancelación,
+     * entregándolos a 'destino' según se leen (sin término, todos los clientes)
+     */
+    public void buscarClientes(String termino, int limite, ConsultaCancelable cancelacion,
+                               Consumer<Cliente> destino) {
+        try {
+            if (termino == null || termino.trim().isEmpty()) {
+                clienteDAO.recorrerTodos(cancelacion, destino);
+            } else {
+                clienteDAO.buscar(termino.trim(), limite, cancelacion, destino);
+            }
+        } catch (Exception e) {
+            logger.error("Error al buscar clientes", e);
+        }
+    }
+    
     /**
      * Obtiene el total de clientes registrados
      */
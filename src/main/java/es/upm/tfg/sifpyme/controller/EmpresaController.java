@@ -2,10 +2,12 @@ package es.upm.tfg.sifpyme.controller;
 
 import es.upm.tfg.sifpyme.model.dao.EmpresaDAO;
 import es.upm.tfg.sifpyme.model.entity.Empresa;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Controlador para gestionar las operaciones relacionadas con Empresa
@@ -106,6 +108,27 @@ public class EmpresaController {
         }
     }
     
+    /**
+     * Busca empresas por razón social, NIF o email
+     * 
+     * @param termino Texto a buscar (vacío para obtener todas)
+     * @param limite Número máximo de resultados
+     * @param cancelacion Permite abortar la consulta en curso (puede ser null)
+     * @param destino Recibe las empresas encontradas según se leen
+     */
+    public void buscarEmpresas(String termino, int limite, ConsultaCancelable cancelacion,
+                               Consumer<Empresa> destino) {
+        try {
+            if (termino == null || termino.trim().isEmpty()) {
+                empresaDAO.recorrerTodas(cancelacion, destino);
+            } else {
+                empresaDAO.buscar(termino.trim(), limite, cancelacion, destino);
+            }
+        } catch (Exception e) {
+            logger.error("Error al buscar empresas", e);
+        }
+    }
+    
     /**
      * Obtiene la empresa por defecto
      * 
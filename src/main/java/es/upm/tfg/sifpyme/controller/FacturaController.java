@@ -3,10 +3,16 @@ package es.upm.tfg.sifpyme.controller;
 import es.upm.tfg.sifpyme.model.dao.*;
 import es.upm.tfg.sifpyme.model.entity.*;
 import es.upm.tfg.sifpyme.service.CalculadoraFacturaService;
+import es.upm.tfg.sifpyme.service.NumeracionFacturaService;
+import es.upm.tfg.sifpyme.service.ValidacionFacturaService;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Controlador para gestionar las operaciones relacionadas con Factura
@@ -20,6 +26,8 @@ public class FacturaController {
     private final ClienteDAO clienteDAO;
     private final ProductoDAO productoDAO;
     private final CalculadoraFacturaService calculadoraService;
+    private final NumeracionFacturaService numeracionService;
+    private final ValidacionFacturaService validacionService;
     
     public FacturaController() {
         this.facturaDAO = new FacturaDAO();
@@ -27,6 +35,8 @@ public class FacturaController {
         this.clienteDAO = new ClienteDAO();
         this.productoDAO = new ProductoDAO();
         this.calculadoraService = new CalculadoraFacturaService();
+        this.numeracionService = new NumeracionFacturaService();
+        this.validacionService = new ValidacionFacturaService();
     }
     
     /**
@@ -34,13 +44,21 @@ public class FacturaController {
      */
     public boolean guardarFactura(Factura factura) {
         try {
-            logger.info("Guardando factura: {}", factura.getIdFactura());
+            boolean idAutomatico = factura.getIdFactura() == null || factura.getIdFactura().trim().isEmpty();
             
-            if (!validarFactura(factura)) {
+            logger.info("Guardando factura: {}", idAutomatico ? "(numeración automática)" : factura.getIdFactura());
+            
+            if (!validarFactura(factura, !idAutomatico)) {
                 logger.warn("Validación de factura fallida");
                 return false;
             }
             
+            // Sin ID: reservar el siguiente número de la serie del año de la empresa una vez validada
+            if (idAutomatico) {
+                factura.setIdFactura(numeracionService.siguienteId(
+                        NumeracionFacturaService.serieActual(factura.getIdEmpresa())));
+            }
+            
             // Verificar ID duplicado
             if (facturaDAO.existeId(factura.getIdFactura(), null)) {
                 logger.warn("Ya existe una factura con el ID: {}", factura.getIdFactura());
@@ -67,6 +85,18 @@ public class FacturaController {
         }
     }
     
+    /**
+     * Devuelve el siguiente ID de la serie del año para la empresa, sin reservarlo
+     */
+    public String sugerirIdFactura(Integer idEmpresa) {
+        try {
+            return numeracionService.consultarSiguienteId(NumeracionFacturaService.serieActual(idEmpresa));
+        } catch (Exception e) {
+            logger.error("Error al sugerir ID de factura", e);
+            return null;
+        }
+    }
+    
     /**
      * Actualiza una factura existente
      */
@@ -74,7 +104,7 @@ public class FacturaController {
         try {
             logger.info("Actualizando factura ID: {}", factura.getIdFactura());
             
-            if (!validarFactura(factura)) {
+            if (!validarFactura(factura, true)) {
                 return false;
             }
             
@@ -147,9 +177,7 @@ public class FacturaController {
             List<Factura> facturas = facturaDAO.obtenerTodas();
             
             // Cargar datos relacionados
-            for (Factura factura : facturas) {
-                cargarDatosRelacionados(factura);
-            }
+            cargarDatosRelacionados(facturas);
             
             return facturas;
         } catch (Exception e) {
@@ -158,6 +186,42 @@ public class FacturaController {
         }
     }
     
+    /**
+     * Obtiene una página de resúmenes de facturas posteriores a la clave indicada
+     */
+    public List<FacturaResumen> obtenerPaginaResumenes(String termino, FacturaResumen despuesDe, int limite) {
+        try {
+            return facturaDAO.obtenerPaginaResumenes(termino, despuesDe, limite);
+        } catch (Exception e) {
+            logger.error("Error al obtener página de resúmenes de facturas", e);
+            return List.of();
+        }
+    }
+    
+    /**
+     * Obtiene la clave de paginación de la fila en la posición indicada
+     */
+    public FacturaResumen obtenerClaveResumen(String termino, int posicion) {
+        try {
+            return facturaDAO.obtenerClaveResumen(termino, posicion);
+        } catch (Exception e) {
+            logger.error("Error al obtener clave de resumen de factura", e);
+            return null;
+        }
+    }
+    
+    /**
+     * Cuenta las facturas que coinciden con el término de búsqueda
+     */
+    public int contarResumenes(String termino) {
+        try {
+            return facturaDAO.contarResumenes(termino);
+        } catch (Exception e) {
+            logger.error("Error al contar resúmenes de facturas", e);
+            return 0;
+        }
+    }
+    
     /**
      * Obtiene una factura por su ID, con todas sus líneas y relaciones
      */
@@ -188,9 +252,7 @@ public class FacturaController {
             List<Factura> facturas = facturaDAO.buscar(termino.trim());
             
             // Cargar datos relacionados
-            for (Factura factura : facturas) {
-                cargarDatosRelacionados(factura);
-            }
+            cargarDatosRelacionados(facturas);
             
             return facturas;
         } catch (Exception e) {
@@ -207,9 +269,7 @@ public class FacturaController {
             List<Factura> facturas = facturaDAO.obtenerPorCliente(idCliente);
             
             // Cargar datos relacionados
-            for (Factura factura : facturas) {
-                cargarDatosRelacionados(factura);
-            }
+            cargarDatosRelacionados(facturas);
             
             return facturas;
         } catch (Exception e) {
@@ -226,9 +286,7 @@ public class FacturaController {
             List<Factura> facturas = facturaDAO.obtenerPorEmpresa(idEmpresa);
             
             // Cargar datos relacionados
-            for (Factura factura : facturas) {
-                cargarDatosRelacionados(factura);
-            }
+            cargarDatosRelacionados(facturas);
             
             return facturas;
         } catch (Exception e) {
@@ -309,6 +367,24 @@ public class FacturaController {
         }
     }
     
+    /**
+     * Busca productos para el selector de la línea de factura, como máximo 'limite'.
+     * Con el término vacío devuelve los primeros por orden alfabético; si no, usa el
+     * índice de búsqueda por prefijo, que se mantiene al día al modificar productos.
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     */
+    public List<Producto> buscarProductos(String termino, int limite, ConsultaCancelable cancelacion) {
+        try {
+            if (termino == null || termino.isBlank()) {
+                return productoDAO.obtenerPrimeros(limite);
+            }
+            return productoDAO.buscar(termino, limite, cancelacion);
+        } catch (Exception e) {
+            logger.error("Error al buscar productos", e);
+            return List.of();
+        }
+    }
+    
     /**
      * Obtiene un producto por su ID
      */
@@ -358,60 +434,56 @@ public class FacturaController {
     }
     
     /**
-     * Valida los datos de una factura
+     * Carga los datos relacionados de una lista de facturas con una consulta
+     * para todas las empresas y otra para todos los clientes referenciados
      */
-    private boolean validarFactura(Factura factura) {
-        if (factura == null) {
-            logger.warn("Factura es null");
-            return false;
-        }
-        
-        if (factura.getIdFactura() == null || factura.getIdFactura().trim().isEmpty()) {
-            logger.warn("ID de factura vacío");
-            return false;
-        }
-        
-        if (factura.getIdFactura().length() > 20) {
-            logger.warn("ID de factura excede 20 caracteres");
-            return false;
-        }
-        
-        if (factura.getIdEmpresa() == null) {
-            logger.warn("Empresa no especificada");
-            return false;
-        }
-        
-        if (factura.getIdCliente() == null) {
-            logger.warn("Cliente no especificado");
-            return false;
+    private void cargarDatosRelacionados(List<Factura> facturas) {
+        if (facturas.isEmpty()) {
+            return;
         }
         
-        if (factura.getMetodoPago() == null || factura.getMetodoPago().trim().isEmpty()) {
-            logger.warn("Método de pago vacío");
-            return false;
+        try {
+            Set<Integer> idsEmpresa = new HashSet<>();
+            Set<Integer> idsCliente = new HashSet<>();
+            
+            for (Factura factura : facturas) {
+                if (factura.getIdEmpresa() != null) {
+                    idsEmpresa.add(factura.getIdEmpresa());
+                }
+                if (factura.getIdCliente() != null) {
+                    idsCliente.add(factura.getIdCliente());
+                }
+            }
+            
+            Map<Integer, Empresa> empresas = empresaDAO.obtenerPorIds(idsEmpresa);
+            Map<Integer, Cliente> clientes = clienteDAO.obtenerPorIds(idsCliente);
+            
+            for (Factura factura : facturas) {
+                if (factura.getIdEmpresa() != null) {
+                    factura.setEmpresa(empresas.get(factura.getIdEmpresa()));
+                }
+                if (factura.getIdCliente() != null) {
+                    factura.setCliente(clientes.get(factura.getIdCliente()));
+                }
+            }
+            
+        } catch (Exception e) {
+            logger.error("Error al cargar datos relacionados de facturas", e);
         }
+    }
+    
+    /**
+     * Valida los datos de una factura
+     * Con idObligatorio a false se admite una factura sin ID (se numerará al guardarla)
+     */
+    private boolean validarFactura(Factura factura, boolean idObligatorio) {
+        String error = validacionService.validar(factura, idObligatorio);
         
-        if (factura.getLineas() == null || factura.getLineas().isEmpty()) {
-            logger.warn("Factura sin líneas");
+        if (error != null) {
+            logger.warn(error);
             return false;
         }
         
-        // Validar cada línea
-        for (LineaFactura linea : factura.getLineas()) {
-            if (linea.getCantidad() == null || linea.getCantidad().signum() <= 0) {
-                logger.warn("Cantidad inválida en línea");
-                return false;
-            }
-            if (linea.getPrecioUnitario() == null || linea.getPrecioUnitario().signum() < 0) {
-                logger.warn("Precio unitario inválido en línea");
-                return false;
-            }
-            if (linea.getPorcentajeIva() == null || linea.getPorcentajeIva().signum() < 0) {
-                logger.warn("Porcentaje de IVA inválido en línea");
-                return false;
-            }
-        }
-        
         return true;
     }
 }
\ No newline at end of file
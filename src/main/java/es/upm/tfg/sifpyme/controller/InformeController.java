@@ -0,0 +1,86 @@
+package es.upm.tfg.sifpyme.controller;
+
+import es.upm.tfg.sifpyme.model.dao.ResumenFacturacionDAO;
+import es.upm.tfg.sifpyme.model.entity.ResumenFacturacion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Controlador de los informes de facturación (paneles de totales por mes, cliente,
+ * método de pago y tipo de IVA). Lee los resúmenes precalculados, no las facturas.
+ * En todos los métodos, idEmpresa, desde y hasta a null significan sin filtro.
+ */
+public class InformeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(InformeController.class);
+    private final ResumenFacturacionDAO resumenDAO;
+
+    public InformeController() {
+        this.resumenDAO = new ResumenFacturacionDAO();
+    }
+
+    /**
+     * Obtiene la facturación mes a mes
+     */
+    public List<ResumenFacturacion> obtenerFacturacionMensual(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        try {
+            return resumenDAO.obtenerPorMes(idEmpresa, desde, hasta);
+        } catch (Exception e) {
+            logger.error("Error al obtener la facturación mensual", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Obtiene los clientes con mayor facturación
+     */
+    public List<ResumenFacturacion> obtenerMejoresClientes(Integer idEmpresa, YearMonth desde, YearMonth hasta,
+                                                           int limite) {
+        try {
+            return resumenDAO.obtenerPorCliente(idEmpresa, desde, hasta, limite);
+        } catch (Exception e) {
+            logger.error("Error al obtener la facturación por cliente", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Obtiene la facturación por método de pago
+     */
+    public List<ResumenFacturacion> obtenerFacturacionPorMetodoPago(Integer idEmpresa, YearMonth desde,
+                                                                    YearMonth hasta) {
+        try {
+            return resumenDAO.obtenerPorMetodoPago(idEmpresa, desde, hasta);
+        } catch (Exception e) {
+            logger.error("Error al obtener la facturación por método de pago", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Obtiene bases y cuotas por tipo de IVA
+     */
+    public List<ResumenFacturacion> obtenerFacturacionPorIva(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        try {
+            return resumenDAO.obtenerPorIva(idEmpresa, desde, hasta);
+        } catch (Exception e) {
+            logger.error("Error al obtener la facturación por tipo de IVA", e);
+            return List.of();
+        }
+    }
+
+    /**
+     * Obtiene los totales del periodo
+     */
+    public ResumenFacturacion obtenerTotalPeriodo(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        try {
+            return resumenDAO.obtenerTotal(idEmpresa, desde, hasta);
+        } catch (Exception e) {
+            logger.error("Error al obtener los totales del periodo", e);
+            return new ResumenFacturacion();
+        }
+    }
+}
@@ -2,12 +2,14 @@ package es.upm.tfg.sifpyme.controller;
 
 import es.upm.tfg.sifpyme.model.dao.ProductoDAO;
 import es.upm.tfg.sifpyme.model.entity.Producto;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Controlador para gestionar las operaciones relacionadas con Producto
@@ -191,6 +193,23 @@ public class ProductoController {
         }
     }
     
+    /**
+     * Busca productos por término con un máximo de resultados y posibilidad de cancelación,
+     * entregándolos a 'destino' según se leen (sin término, todos los productos)
+     */
+    public void buscarProductos(String termino, int limite, ConsultaCancelable cancelacion,
+                                Consumer<Producto> destino) {
+        try {
+            if (termino == null || termino.trim().isEmpty()) {
+                productoDAO.recorrerTodos(cancelacion, destino);
+            } else {
+                productoDAO.buscar(termino.trim(), limite, cancelacion, destino);
+            }
+        } catch (Exception e) {
+            logger.error("Error al buscar productos", e);
+        }
+    }
+    
     /**
      * Obtiene el total de productos registrados
      */
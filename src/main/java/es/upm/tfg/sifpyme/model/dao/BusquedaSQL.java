@@ -0,0 +1,35 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+/**
+ * Utilidades comunes para las consultas de búsqueda con LIKE
+ */
+final class BusquedaSQL {
+
+    // Carácter de escape declarado en las cláusulas LIKE ... ESCAPE
+    static final String ESCAPE = " ESCAPE '\\'";
+
+    private BusquedaSQL() {
+    }
+
+    /**
+     * Construye el patrón "contiene" para LIKE, escapando los comodines % y _
+     * para que el término se busque de forma literal
+     */
+    static String patronContiene(String termino) {
+        return "%" + escapar(termino) + "%";
+    }
+
+    /**
+     * Construye el patrón "empieza por" para LIKE, que puede resolverse con un rango del índice
+     */
+    static String patronPrefijo(String termino) {
+        return escapar(termino) + "%";
+    }
+
+    private static String escapar(String termino) {
+        return termino
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
@@ -1,13 +1,20 @@
 package es.upm.tfg.sifpyme.model.dao;
 
+import es.upm.tfg.sifpyme.model.dao.IndiceBusquedaDAO.EntidadIndexada;
 import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.util.CacheLRU;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * DAO para la gestión de clientes en la base de datos
@@ -15,6 +22,11 @@ import java.util.List;
 public class ClienteDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(ClienteDAO.class);
+
+    // Caché compartida por todas las instancias del DAO; se invalida tras modificar o borrar
+    private static final int TAMANO_CACHE = 1000;
+    private static final CacheLRU<Integer, Cliente> cache = new CacheLRU<>("Cliente", TAMANO_CACHE, Cliente::new);
+    private final IndiceBusquedaDAO indiceBusquedaDAO = new IndiceBusquedaDAO();
     
     // Las consultas SQL ya están correctas para el nuevo esquema
     private static final String SQL_INSERT = 
@@ -31,18 +43,27 @@ public class ClienteDAO {
     private static final String SQL_SELECT_BY_ID = 
         "SELECT * FROM Cliente WHERE id_cliente = ?";
     
+    private static final String SQL_SELECT_BY_IDS_PREFIX = 
+        "SELECT * FROM Cliente WHERE id_cliente IN (";
+    
+    // Clientes con facturas más recientes, los que más se consultan al facturar
+    private static final String SQL_SELECT_RECIENTES = 
+        "SELECT c.* FROM Cliente c JOIN (SELECT id_cliente, MAX(fecha_emision) AS ultima " +
+        "FROM Factura GROUP BY id_cliente ORDER BY ultima DESC LIMIT ?) f ON f.id_cliente = c.id_cliente";
+    
     private static final String SQL_SELECT_BY_NIF = 
         "SELECT * FROM Cliente WHERE nif = ?";
     
     private static final String SQL_DELETE = 
         "DELETE FROM Cliente WHERE id_cliente = ?";
     
-    private static final String SQL_SEARCH = 
-        "SELECT * FROM Cliente WHERE " +
-        "LOWER(nombre_fiscal) LIKE LOWER(?) OR " +
-        "LOWER(nif) LIKE LOWER(?) OR " +
-        "LOWER(email) LIKE LOWER(?) " +
-        "ORDER BY nombre_fiscal";
+    // Búsqueda sobre el índice de palabras: se completa con la subconsulta de ranking
+    private static final String SQL_SEARCH_PREFIX = 
+        "SELECT c.* FROM Cliente c JOIN (";
+    
+    private static final String SQL_SEARCH_SUFFIX = 
+        ") r ON c.id_cliente = CAST(r.id_entidad AS INT) " +
+        "ORDER BY r.puntuacion DESC, c.nombre_fiscal LIMIT ?";
     
     private static final String SQL_COUNT = 
         "SELECT COUNT(*) FROM Cliente";
@@ -88,6 +109,7 @@ public class ClienteDAO {
             stmt.setInt(6, cliente.getIdCliente());
             
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(cliente.getIdCliente());
             
             if (filasAfectadas > 0) {
                 logger.info("Cliente actualizado: {}", cliente.getIdCliente());
@@ -106,28 +128,87 @@ public class ClienteDAO {
      */
     public List<Cliente> obtenerTodos() {
         List<Cliente> clientes = new ArrayList<>();
+        recorrerTodos(null, clientes::add);
+        return clientes;
+    }
+    
+    /**
+     * Entrega todos los clientes a 'destino' según se leen, sin esperar a que termine
+     * la consulta (p. ej. para mostrar las primeras filas de una lista cuanto antes).
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     * @return Número de clientes entregados
+     */
+    public int recorrerTodos(ConsultaCancelable cancelacion, Consumer<Cliente> destino) {
+        int total = 0;
         
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+             Statement stmt = conn.createStatement()) {
+            
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
             
-            while (rs.next()) {
-                clientes.add(mapResultSetToCliente(rs));
+            try (ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+                // H2 puede tener ya todo el resultado leído: cancel() no corta el recorrido
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToCliente(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
+                }
             }
             
-            logger.info("Se obtuvieron {} clientes", clientes.size());
+            logger.info("Se obtuvieron {} clientes", total);
             
         } catch (SQLException e) {
-            logger.error("Error al obtener clientes", e);
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Consulta de clientes cancelada");
+            } else {
+                logger.error("Error al obtener clientes", e);
+            }
         }
         
-        return clientes;
+        return total;
+    }
+    
+    /**
+     * Carga en la caché los clientes facturados más recientemente (al arrancar, en segundo plano)
+     * @return Número de clientes cargados
+     */
+    public int precargarCache() {
+        return cache.precargar(() -> {
+            Map<Integer, Cliente> clientes = new HashMap<>();
+            
+            try (Connection conn = DatabaseConnection.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_RECIENTES)) {
+                
+                stmt.setInt(1, TAMANO_CACHE);
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        Cliente cliente = mapResultSetToCliente(rs);
+                        clientes.put(cliente.getIdCliente(), cliente);
+                    }
+                }
+                
+            } catch (SQLException e) {
+                logger.error("Error al precargar clientes", e);
+            }
+            
+            return clientes;
+        });
     }
     
     /**
-     * Obtiene un cliente por su ID
+     * Obtiene un cliente por su ID (a través de la caché)
      */
     public Cliente obtenerPorId(Integer id) {
+        return id == null ? null : cache.obtener(id, this::consultarPorId);
+    }
+    
+    private Cliente consultarPorId(Integer id) {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_ID)) {
             
@@ -146,6 +227,46 @@ public class ClienteDAO {
         return null;
     }
     
+    /**
+     * Obtiene los clientes con los IDs indicados, indexados por ID
+     * (una consulta IN por cada bloque de ConsultasIN.TAMANO_LOTE IDs)
+     */
+    public Map<Integer, Cliente> obtenerPorIds(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return cache.obtenerTodos(ids, this::consultarPorIds);
+    }
+    
+    private Map<Integer, Cliente> consultarPorIds(Collection<Integer> ids) {
+        Map<Integer, Cliente> clientes = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            
+            for (List<Integer> lote : ConsultasIN.lotes(ids)) {
+                String sql = SQL_SELECT_BY_IDS_PREFIX + ConsultasIN.marcadores(lote.size()) + ")";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        stmt.setInt(i + 1, lote.get(i));
+                    }
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Cliente cliente = mapResultSetToCliente(rs);
+                            clientes.put(cliente.getIdCliente(), cliente);
+                        }
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error al obtener clientes por IDs", e);
+        }
+        
+        return clientes;
+    }
+    
     /**
      * Obtiene un cliente por su NIF
      */
@@ -172,29 +293,71 @@ public class ClienteDAO {
      * Busca clientes por nombre, NIF o email
      */
     public List<Cliente> buscar(String termino) {
+        return buscar(termino, Integer.MAX_VALUE, null);
+    }
+    
+    /**
+     * Busca clientes por nombre, NIF o email, devolviendo como máximo 'limite' resultados.
+     * Cada palabra del término se busca como prefijo en el índice de búsqueda y los
+     * resultados se ordenan por relevancia (coincidencias exactas primero).
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     */
+    public List<Cliente> buscar(String termino, int limite, ConsultaCancelable cancelacion) {
         List<Cliente> clientes = new ArrayList<>();
+        buscar(termino, limite, cancelacion, clientes::add);
+        return clientes;
+    }
+    
+    /**
+     * Igual que buscar(termino, limite, cancelacion), pero entrega los clientes a 'destino'
+     * según se leen, sin esperar a que termine la consulta
+     * @return Número de clientes entregados
+     */
+    public int buscar(String termino, int limite, ConsultaCancelable cancelacion, Consumer<Cliente> destino) {
+        int total = 0;
+        
+        List<String> palabras = IndiceBusquedaDAO.tokenizar(termino);
+        if (palabras.isEmpty()) {
+            return total;
+        }
+        
+        indiceBusquedaDAO.asegurarIndice(EntidadIndexada.CLIENTE);
+        
+        String sql = SQL_SEARCH_PREFIX + indiceBusquedaDAO.subconsultaRanking(palabras) +
+                SQL_SEARCH_SUFFIX;
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SQL_SEARCH)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            String terminoBusqueda = "%" + termino + "%";
-            stmt.setString(1, terminoBusqueda);
-            stmt.setString(2, terminoBusqueda);
-            stmt.setString(3, terminoBusqueda);
+            int indice = indiceBusquedaDAO.setParametrosRanking(stmt, 1, EntidadIndexada.CLIENTE, palabras);
+            stmt.setInt(indice, limite);
+            
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    clientes.add(mapResultSetToCliente(rs));
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToCliente(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
                 }
             }
             
-            logger.info("Búsqueda '{}' encontró {} clientes", termino, clientes.size());
+            logger.info("Búsqueda '{}' encontró {} clientes", termino, total);
             
         } catch (SQLException e) {
-            logger.error("Error al buscar clientes", e);
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Búsqueda de clientes '{}' cancelada", termino);
+            } else {
+                logger.error("Error al buscar clientes", e);
+            }
         }
         
-        return clientes;
+        return total;
     }
     
     /**
@@ -206,6 +369,7 @@ public class ClienteDAO {
             
             stmt.setInt(1, id);
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(id);
             
             if (filasAfectadas > 0) {
                 logger.info("Cliente eliminado: {}", id);
@@ -294,4 +458,11 @@ public class ClienteDAO {
         
         return cliente;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Caché de clientes por ID (para consultar sus estadísticas)
+     */
+    public static CacheLRU<Integer, Cliente> getCache() {
+        return cache;
+    }
+}
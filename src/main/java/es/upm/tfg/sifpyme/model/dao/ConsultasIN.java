@@ -0,0 +1,40 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Utilidades comunes para las consultas IN (?, ?, ...) con listas de IDs.
+ * Las listas se parten en bloques de TAMANO_LOTE: una sentencia con miles de
+ * parámetros es lenta de preparar y no se reutiliza en la caché de sentencias.
+ */
+final class ConsultasIN {
+
+    // Máximo de IDs por consulta IN (...)
+    static final int TAMANO_LOTE = 500;
+
+    private ConsultasIN() {
+    }
+
+    /**
+     * Parte los IDs en bloques consecutivos de como mucho TAMANO_LOTE elementos
+     */
+    static <T> List<List<T>> lotes(Collection<T> ids) {
+        List<T> lista = ids instanceof List ? (List<T>) ids : new ArrayList<>(ids);
+        List<List<T>> lotes = new ArrayList<>();
+
+        for (int inicio = 0; inicio < lista.size(); inicio += TAMANO_LOTE) {
+            lotes.add(lista.subList(inicio, Math.min(inicio + TAMANO_LOTE, lista.size())));
+        }
+        return lotes;
+    }
+
+    /**
+     * Marcadores "?, ?, ..." para un bloque de 'cantidad' IDs
+     */
+    static String marcadores(int cantidad) {
+        return String.join(", ", Collections.nCopies(cantidad, "?"));
+    }
+}
@@ -0,0 +1,141 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.h2.api.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+
+/**
+ * DAO de los contadores de numeración de facturas (tabla Contador_serie)
+ * Cada fila guarda el siguiente número libre de una serie. El contador es por serie y no
+ * por empresa porque id_factura es único en toda la tabla Factura: si dos empresas usan la
+ * misma serie, comparten su numeración. Los números se reservan por bloques con una única
+ * actualización de la fila, de modo que varios hilos pueden numerar en paralelo sin repetir
+ * números ni recorrer la tabla Factura.
+ */
+public class ContadorFacturaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContadorFacturaDAO.class);
+
+    // Reintentos si otro hilo crea a la vez el contador de la misma serie
+    private static final int MAX_INTENTOS = 3;
+
+    private static final String SQL_SELECT_FOR_UPDATE =
+        "SELECT siguiente FROM Contador_serie WHERE serie = ? FOR UPDATE";
+
+    private static final String SQL_SELECT =
+        "SELECT siguiente FROM Contador_serie WHERE serie = ?";
+
+    private static final String SQL_INSERT =
+        "INSERT INTO Contador_serie (serie, siguiente) VALUES (?, ?)";
+
+    private static final String SQL_UPDATE =
+        "UPDATE Contador_serie SET siguiente = ? WHERE serie = ?";
+
+    // Solo se usa al crear el contador de una serie para continuar la numeración existente
+    private static final String SQL_IDS_SERIE =
+        "SELECT id_factura FROM Factura WHERE id_factura LIKE ?" + BusquedaSQL.ESCAPE;
+
+    /**
+     * Reserva 'cantidad' números consecutivos de la serie y devuelve el primero.
+     * Si la serie aún no tiene contador, se crea a partir de las facturas existentes
+     * cuyo ID sigue el formato serie + separador + número.
+     */
+    public long reservarBloque(String serie, String separador, int cantidad)
+            throws SQLException {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad a reservar debe ser positiva");
+        }
+
+        for (int intento = 1; ; intento++) {
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                conn.setAutoCommit(false);
+
+                try {
+                    long primero = leerSiguiente(conn, serie, true);
+                    boolean nuevo = primero == 0;
+                    if (nuevo) {
+                        primero = calcularInicioSerie(conn, serie + separador);
+                    }
+
+                    try (PreparedStatement stmt = conn.prepareStatement(nuevo ? SQL_INSERT : SQL_UPDATE)) {
+                        if (nuevo) {
+                            stmt.setString(1, serie);
+                            stmt.setLong(2, primero + cantidad);
+                        } else {
+                            stmt.setLong(1, primero + cantidad);
+                            stmt.setString(2, serie);
+                        }
+                        stmt.executeUpdate();
+                    }
+
+                    conn.commit();
+                    logger.debug("Reservados {} números de la serie {} desde {}", cantidad, serie, primero);
+                    return primero;
+
+                } catch (SQLException e) {
+                    conn.rollback();
+
+                    // Otro hilo ha creado el contador entre la lectura y el INSERT
+                    if (e.getErrorCode() == ErrorCode.DUPLICATE_KEY_1 && intento < MAX_INTENTOS) {
+                        continue;
+                    }
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Devuelve el siguiente número de la serie sin reservarlo (para sugerirlo en pantalla)
+     */
+    public long consultarSiguiente(String serie, String separador) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            long siguiente = leerSiguiente(conn, serie, false);
+            return siguiente > 0 ? siguiente : calcularInicioSerie(conn, serie + separador);
+
+        } catch (SQLException e) {
+            logger.error("Error al consultar el contador de la serie {}", serie, e);
+        }
+
+        return 1;
+    }
+
+    /**
+     * Lee el siguiente número del contador, o 0 si la serie no tiene contador
+     */
+    private long leerSiguiente(Connection conn, String serie, boolean bloquear) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(bloquear ? SQL_SELECT_FOR_UPDATE : SQL_SELECT)) {
+            stmt.setString(1, serie);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Primer número libre de una serie según las facturas ya existentes con ese prefijo
+     * Recorre solo el rango del prefijo en la clave primaria de Factura
+     */
+    private long calcularInicioSerie(Connection conn, String prefijo) throws SQLException {
+        long maximo = 0;
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_IDS_SERIE)) {
+            stmt.setString(1, BusquedaSQL.patronPrefijo(prefijo));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String numero = rs.getString(1).substring(prefijo.length());
+                    if (!numero.isEmpty() && numero.length() < 19 && numero.chars().allMatch(Character::isDigit)) {
+                        maximo = Math.max(maximo, Long.parseLong(numero));
+                    }
+                }
+            }
+        }
+
+        return maximo + 1;
+    }
+}
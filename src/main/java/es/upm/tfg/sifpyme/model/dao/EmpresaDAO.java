@@ -1,6 +1,8 @@
 package es.upm.tfg.sifpyme.model.dao;
 
 import es.upm.tfg.sifpyme.model.entity.Empresa;
+import es.upm.tfg.sifpyme.util.CacheLRU;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,7 +10,11 @@ import org.slf4j.LoggerFactory;
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * DAO para la gestión de empresas en la base de datos
@@ -16,6 +22,10 @@ import java.util.List;
 public class EmpresaDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(EmpresaDAO.class);
+
+    // Caché compartida por todas las instancias del DAO; se invalida tras modificar o borrar
+    private static final int TAMANO_CACHE = 64;
+    private static final CacheLRU<Integer, Empresa> cache = new CacheLRU<>("Empresa", TAMANO_CACHE, Empresa::new);
     
     // Consultas SQL actualizadas (sin nombre_comercial)
     private static final String SQL_INSERT = 
@@ -34,12 +44,22 @@ public class EmpresaDAO {
     private static final String SQL_SELECT_BY_ID = 
         "SELECT * FROM Empresa WHERE id_empresa = ?";
     
+    private static final String SQL_SELECT_BY_IDS_PREFIX = 
+        "SELECT * FROM Empresa WHERE id_empresa IN (";
+    
     private static final String SQL_SELECT_POR_DEFECTO = 
         "SELECT * FROM Empresa WHERE por_defecto = TRUE LIMIT 1";
     
     private static final String SQL_DESACTIVAR_POR_DEFECTO = 
         "UPDATE Empresa SET por_defecto = FALSE WHERE por_defecto = TRUE";
     
+    private static final String SQL_SEARCH = 
+        "SELECT * FROM Empresa WHERE " +
+        "LOWER(razon_social) LIKE LOWER(?)" + BusquedaSQL.ESCAPE + " OR " +
+        "LOWER(nif) LIKE LOWER(?)" + BusquedaSQL.ESCAPE + " OR " +
+        "LOWER(email) LIKE LOWER(?)" + BusquedaSQL.ESCAPE + " " +
+        "ORDER BY razon_social LIMIT ?";
+    
     private static final String SQL_DELETE = 
         "DELETE FROM Empresa WHERE id_empresa = ?";
     
@@ -84,9 +104,10 @@ public class EmpresaDAO {
              PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
             
             setEmpresaParameters(stmt, empresa);
-            stmt.setInt(9, empresa.getIdEmpresa());
+            stmt.setInt(8, empresa.getIdEmpresa());
             
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(empresa.getIdEmpresa());
             
             if (filasAfectadas > 0) {
                 logger.info("Empresa actualizada: {}", empresa.getIdEmpresa());
@@ -105,28 +126,75 @@ public class EmpresaDAO {
      */
     public List<Empresa> obtenerTodas() {
         List<Empresa> empresas = new ArrayList<>();
+        recorrerTodas(null, empresas::add);
+        return empresas;
+    }
+    
+    /**
+     * Entrega todas las empresas a 'destino' según se leen, sin esperar a que termine
+     * la consulta (p. ej. para mostrar las primeras filas de una lista cuanto antes).
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     * @return Número de empresas entregadas
+     */
+    public int recorrerTodas(ConsultaCancelable cancelacion, Consumer<Empresa> destino) {
+        int total = 0;
         
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+             Statement stmt = conn.createStatement()) {
+            
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
             
-            while (rs.next()) {
-                empresas.add(mapResultSetToEmpresa(rs));
+            try (ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+                // H2 puede tener ya todo el resultado leído: cancel() no corta el recorrido
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToEmpresa(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
+                }
             }
             
-            logger.info("Se obtuvieron {} empresas", empresas.size());
+            logger.info("Se obtuvieron {} empresas", total);
             
         } catch (SQLException e) {
-            logger.error("Error al obtener empresas", e);
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Consulta de empresas cancelada");
+            } else {
+                logger.error("Error al obtener empresas", e);
+            }
         }
         
-        return empresas;
+        return total;
     }
     
     /**
-     * Obtiene una empresa por su ID
+     * Carga las empresas en la caché (al arrancar, en segundo plano)
+     * @return Número de empresas cargadas
+     */
+    public int precargarCache() {
+        return cache.precargar(() -> {
+            Map<Integer, Empresa> empresas = new HashMap<>();
+            for (Empresa empresa : obtenerTodas()) {
+                if (empresas.size() < TAMANO_CACHE) {
+                    empresas.put(empresa.getIdEmpresa(), empresa);
+                }
+            }
+            return empresas;
+        });
+    }
+    
+    /**
+     * Obtiene una empresa por su ID (a través de la caché)
      */
     public Empresa obtenerPorId(Integer id) {
+        return id == null ? null : cache.obtener(id, this::consultarPorId);
+    }
+    
+    private Empresa consultarPorId(Integer id) {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_ID)) {
             
@@ -145,6 +213,92 @@ public class EmpresaDAO {
         return null;
     }
     
+    /**
+     * Obtiene las empresas con los IDs indicados, indexadas por ID
+     * (una consulta IN por cada bloque de ConsultasIN.TAMANO_LOTE IDs)
+     */
+    public Map<Integer, Empresa> obtenerPorIds(Collection<Integer> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        return cache.obtenerTodos(ids, this::consultarPorIds);
+    }
+    
+    private Map<Integer, Empresa> consultarPorIds(Collection<Integer> ids) {
+        Map<Integer, Empresa> empresas = new HashMap<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            
+            for (List<Integer> lote : ConsultasIN.lotes(ids)) {
+                String sql = SQL_SELECT_BY_IDS_PREFIX + ConsultasIN.marcadores(lote.size()) + ")";
+                
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        stmt.setInt(i + 1, lote.get(i));
+                    }
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            Empresa empresa = mapResultSetToEmpresa(rs);
+                            empresas.put(empresa.getIdEmpresa(), empresa);
+                        }
+                    }
+                }
+            }
+            
+        } catch (SQLException e) {
+            logger.error("Error al obtener empresas por IDs", e);
+        }
+        
+        return empresas;
+    }
+    
+    /**
+     * Busca empresas por razón social, NIF o email, entregando a 'destino' como máximo 'limite'
+     * resultados según se leen, sin esperar a que termine la consulta.
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     * @return Número de empresas entregadas
+     */
+    public int buscar(String termino, int limite, ConsultaCancelable cancelacion, Consumer<Empresa> destino) {
+        int total = 0;
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_SEARCH)) {
+            
+            String terminoBusqueda = BusquedaSQL.patronContiene(termino);
+            stmt.setString(1, terminoBusqueda);
+            stmt.setString(2, terminoBusqueda);
+            stmt.setString(3, terminoBusqueda);
+            stmt.setInt(4, limite);
+            
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToEmpresa(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
+                }
+            }
+            
+            logger.info("Búsqueda '{}' encontró {} empresas", termino, total);
+            
+        } catch (SQLException e) {
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Búsqueda de empresas '{}' cancelada", termino);
+            } else {
+                logger.error("Error al buscar empresas", e);
+            }
+        }
+        
+        return total;
+    }
+    
     /**
      * Obtiene la empresa configurada por defecto
      */
@@ -172,6 +326,7 @@ public class EmpresaDAO {
              Statement stmt = conn.createStatement()) {
             
             stmt.executeUpdate(SQL_DESACTIVAR_POR_DEFECTO);
+            cache.invalidarTodo();
             logger.info("Empresas por defecto desactivadas");
             
         } catch (SQLException e) {
@@ -188,6 +343,7 @@ public class EmpresaDAO {
             
             stmt.setInt(1, id);
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(id);
             
             if (filasAfectadas > 0) {
                 logger.info("Empresa eliminada: {}", id);
@@ -259,4 +415,11 @@ public class EmpresaDAO {
         
         return empresa;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Caché de empresas por ID (para consultar sus estadísticas)
+     */
+    public static CacheLRU<Integer, Empresa> getCache() {
+        return cache;
+    }
+}
@@ -1,7 +1,12 @@
 package es.upm.tfg.sifpyme.model.dao;
 
+import es.upm.tfg.sifpyme.model.dao.IndiceBusquedaDAO.EntidadIndexada;
+import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.model.entity.Empresa;
 import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.model.entity.FacturaResumen;
 import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,7 +14,13 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 
 /**
  * DAO para la gestión de facturas en la base de datos
@@ -18,6 +29,8 @@ public class FacturaDAO {
 
     private static final Logger logger = LoggerFactory.getLogger(FacturaDAO.class);
     private final LineaFacturaDAO lineaFacturaDAO;
+    private final IndiceBusquedaDAO indiceBusquedaDAO;
+    private final ResumenFacturacionDAO resumenDAO;
 
     // Consultas SQL actualizadas según el nuevo esquema
     private static final String SQL_INSERT = "INSERT INTO Factura (id_factura, id_empresa, id_cliente, fecha_emision, "
@@ -31,35 +44,74 @@ public class FacturaDAO {
 
     private static final String SQL_SELECT_ALL = "SELECT * FROM Factura ORDER BY fecha_emision DESC";
 
+    private static final String SQL_RESUMEN_FROM = "FROM Factura f " +
+            "LEFT JOIN Cliente c ON c.id_cliente = f.id_cliente " +
+            "LEFT JOIN Empresa e ON e.id_empresa = f.id_empresa ";
+
+    private static final String SQL_RESUMEN_ORDER = "ORDER BY f.fecha_emision DESC, f.id_factura DESC";
+
+    private static final String SQL_SELECT_RESUMEN = "SELECT f.id_factura, f.fecha_emision, f.subtotal, f.total_iva, " +
+            "f.total, f.metodo_pago, c.nombre_fiscal, e.razon_social " + SQL_RESUMEN_FROM;
+
+    private static final String SQL_SELECT_CLAVE_RESUMEN = "SELECT f.id_factura, f.fecha_emision " + SQL_RESUMEN_FROM;
+
+    private static final String SQL_COUNT_RESUMEN = "SELECT COUNT(*) " + SQL_RESUMEN_FROM;
+
+    // Paginación por clave: filas estrictamente posteriores a (fecha_emision, id_factura) en orden descendente
+    private static final String SQL_RESUMEN_CURSOR = "(f.fecha_emision < ? OR " +
+            "(f.fecha_emision = ? AND f.id_factura < ?))";
+
     private static final String SQL_SELECT_BY_ID = "SELECT * FROM Factura WHERE id_factura = ?";
 
     private static final String SQL_DELETE = "DELETE FROM Factura WHERE id_factura = ?";
 
-    private static final String SQL_SEARCH = "SELECT * FROM Factura WHERE " +
-            "LOWER(id_factura) LIKE LOWER(?) OR " +
-            "id_cliente IN (SELECT id_cliente FROM Cliente WHERE LOWER(nombre_fiscal) LIKE LOWER(?)) " +
-            "ORDER BY fecha_emision DESC";
+    private static final String SQL_SEARCH_PREFIX = "SELECT * FROM Factura f WHERE ";
+
+    private static final String SQL_SEARCH_SUFFIX = " ORDER BY fecha_emision DESC LIMIT ?";
 
     private static final String SQL_COUNT = "SELECT COUNT(*) FROM Factura";
 
-    private static final String SQL_NEXT_ID = "SELECT COALESCE(MAX(CAST(SUBSTRING(id_factura, 4) AS INT)), 0) + 1 " +
-            "FROM Factura WHERE id_factura LIKE 'FAC%' AND SUBSTRING(id_factura, 4) ~ '^[0-9]+$'";
+    private static final String SQL_SELECT_IDS_PREFIX = "SELECT id_factura FROM Factura WHERE id_factura IN (";
 
     private static final String SQL_EXISTS_ID = "SELECT COUNT(*) FROM Factura " +
             "WHERE id_factura = ? AND (? IS NULL OR id_factura != ?)";
 
-    private static final String SQL_SELECT_BY_CLIENTE = "SELECT * FROM Factura WHERE id_cliente = ? ORDER BY fecha_emision DESC";
+    // H2 elegiría el índice de la clave ajena y ordenaría después: se indica el índice compuesto
+    // si existe (ver IndicesSQL) y se ordena también por su primera columna para que devuelva
+    // las filas ya ordenadas
+    private static final String SQL_SELECT_BY_CLIENTE = "SELECT * FROM Factura %s" +
+            "WHERE id_cliente = ? ORDER BY id_cliente, fecha_emision DESC";
+
+    private static final String SQL_SELECT_BY_EMPRESA = "SELECT * FROM Factura %s" +
+            "WHERE id_empresa = ? ORDER BY id_empresa, fecha_emision DESC";
+
+    private static final String SQL_SELECT_BY_IDS_PREFIX = "SELECT * FROM Factura WHERE id_factura IN (";
 
-    private static final String SQL_SELECT_BY_EMPRESA = "SELECT * FROM Factura WHERE id_empresa = ? ORDER BY fecha_emision DESC";
+    private static final String SQL_SELECT_IDS_FILTRO = "SELECT id_factura FROM Factura";
+
+    private static final String SQL_SELECT_LINEAS_PERIODO =
+        "SELECT f.*, l.id_linea, l.nombre_producto, l.cantidad, l.precio_base, l.precio_unitario, " +
+        "l.descuento, l.subtotal_linea, l.porcentaje_iva, l.importe_iva, l.porcentaje_retencion, " +
+        "l.importe_retencion, l.total_linea, l.numero_linea, " +
+        "c.nombre_fiscal, c.nif AS nif_cliente, e.razon_social " +
+        "FROM Factura f " +
+        "JOIN Linea_factura l ON l.id_factura = f.id_factura " +
+        "JOIN Cliente c ON c.id_cliente = f.id_cliente " +
+        "JOIN Empresa e ON e.id_empresa = f.id_empresa";
+
+    // Filas que se piden al driver en cada viaje al recorrer consultas grandes
+    private static final int TAMANO_LOTE_RECORRIDO = 1000;
 
     private static final String SQL_SELECT_BY_FECHA_RANGO = "SELECT * FROM Factura WHERE fecha_emision BETWEEN ? AND ? ORDER BY fecha_emision DESC";
 
     public FacturaDAO() {
         this.lineaFacturaDAO = new LineaFacturaDAO();
+        this.indiceBusquedaDAO = new IndiceBusquedaDAO();
+        this.resumenDAO = new ResumenFacturacionDAO();
     }
 
     /**
-     * Inserta una nueva factura con sus líneas en una transacción
+     * Inserta una nueva factura con sus líneas y la suma a los resúmenes en una transacción
      */
     public boolean insertar(Factura factura) {
         Connection conn = null;
@@ -71,12 +123,9 @@ public class FacturaDAO {
             if (insertarFactura(conn, factura)) {
 
                 // Insertar líneas
-                if (factura.getLineas() != null && !factura.getLineas().isEmpty()) {
-                    for (LineaFactura linea : factura.getLineas()) {
-                        linea.setIdFactura(factura.getIdFactura());
-                        lineaFacturaDAO.insertar(conn, linea);
-                    }
-                }
+                insertarLineas(conn, factura);
+
+                resumenDAO.aplicar(conn, List.of(factura.getIdFactura()), 1);
 
                 conn.commit();
                 logger.info("Factura insertada: {}", factura.getIdFactura());
@@ -108,6 +157,56 @@ public class FacturaDAO {
         }
     }
 
+    /**
+     * Inserta varias facturas con sus líneas en una única transacción, con una
+     * sentencia por lotes para las cabeceras y otra para todas las líneas.
+     * Si falla alguna, se deshace el lote completo y se propaga la excepción.
+     */
+    public void insertarLote(List<Factura> facturas) throws SQLException {
+        if (facturas == null || facturas.isEmpty()) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try {
+                List<LineaFactura> lineas = new ArrayList<>();
+
+                try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+                    for (Factura factura : facturas) {
+                        setFacturaParameters(stmt, factura);
+                        stmt.addBatch();
+
+                        if (factura.getLineas() != null) {
+                            for (LineaFactura linea : factura.getLineas()) {
+                                linea.setIdFactura(factura.getIdFactura());
+                                lineas.add(linea);
+                            }
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+
+                lineaFacturaDAO.insertarTodas(conn, lineas);
+
+                List<String> ids = new ArrayList<>(facturas.size());
+                for (Factura factura : facturas) {
+                    ids.add(factura.getIdFactura());
+                }
+                resumenDAO.aplicar(conn, ids, 1);
+
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
     /**
      * Inserta solo la factura (sin líneas) en una conexión existente
      */
@@ -121,6 +220,20 @@ public class FacturaDAO {
         }
     }
 
+    /**
+     * Inserta las líneas de la factura en un único lote en una conexión existente
+     */
+    private void insertarLineas(Connection conn, Factura factura) throws SQLException {
+        if (factura.getLineas() == null || factura.getLineas().isEmpty()) {
+            return;
+        }
+
+        for (LineaFactura linea : factura.getLineas()) {
+            linea.setIdFactura(factura.getIdFactura());
+        }
+        lineaFacturaDAO.insertarTodas(conn, factura.getLineas());
+    }
+
     /**
      * Actualiza una factura existente con sus líneas en una transacción
      */
@@ -130,6 +243,10 @@ public class FacturaDAO {
             conn = DatabaseConnection.getConnection();
             conn.setAutoCommit(false);
 
+            // Quitar de los resúmenes la factura tal y como estaba guardada
+            List<String> ids = List.of(factura.getIdFactura());
+            resumenDAO.aplicar(conn, ids, -1);
+
             // Actualizar factura
             try (PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
                 setFacturaParametersUPDATE(stmt, factura);
@@ -137,15 +254,10 @@ public class FacturaDAO {
                 stmt.executeUpdate();
             }
 
-            // Eliminar líneas existentes y reinsertar
-            lineaFacturaDAO.eliminarPorFactura(conn, factura.getIdFactura());
+            // Aplicar solo las diferencias con las líneas guardadas
+            lineaFacturaDAO.sincronizar(conn, factura.getIdFactura(), factura.getLineas());
 
-            if (factura.getLineas() != null && !factura.getLineas().isEmpty()) {
-                for (LineaFactura linea : factura.getLineas()) {
-                    linea.setIdFactura(factura.getIdFactura());
-                    lineaFacturaDAO.insertar(conn, linea);
-                }
-            }
+            resumenDAO.aplicar(conn, ids, 1);
 
             conn.commit();
             logger.info("Factura actualizada: {}", factura.getIdFactura());
@@ -184,11 +296,11 @@ public class FacturaDAO {
                 ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
 
             while (rs.next()) {
-                Factura factura = mapResultSetToFactura(rs);
-                cargarLineasFactura(factura);
-                facturas.add(factura);
+                facturas.add(mapResultSetToFactura(rs));
             }
 
+            cargarLineasFacturas(conn, facturas);
+
             logger.info("Se obtuvieron {} facturas", facturas.size());
 
         } catch (SQLException e) {
@@ -198,6 +310,105 @@ public class FacturaDAO {
         return facturas;
     }
 
+    /**
+     * Obtiene una página de resúmenes de facturas mediante paginación por clave.
+     * Devuelve como máximo 'limite' filas posteriores a 'despuesDe' (null para la primera página),
+     * filtradas opcionalmente por ID de factura o nombre de cliente.
+     */
+    public List<FacturaResumen> obtenerPaginaResumenes(String termino, FacturaResumen despuesDe, int limite) {
+        List<FacturaResumen> resumenes = new ArrayList<>();
+        List<String> palabras = prepararBusqueda(termino);
+        String sql = SQL_SELECT_RESUMEN + construirWhereResumen(termino, palabras, despuesDe != null) +
+                SQL_RESUMEN_ORDER + " LIMIT ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = setParametrosResumen(stmt, termino, palabras, despuesDe);
+            stmt.setInt(indice, limite);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    resumenes.add(mapResultSetToResumen(rs));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener página de resúmenes de facturas", e);
+        }
+
+        return resumenes;
+    }
+
+    /**
+     * Consulta de una página del listado sin filtro de búsqueda, como la construye
+     * obtenerPaginaResumenes (para comprobar su plan en PlanesConsultaDAO)
+     */
+    static String sqlPaginaResumenes(boolean conCursor) {
+        return SQL_SELECT_RESUMEN + (conCursor ? "WHERE " + SQL_RESUMEN_CURSOR + " " : "") +
+                SQL_RESUMEN_ORDER + " LIMIT ?";
+    }
+
+    /**
+     * Obtiene la clave (fecha_emision, id_factura) de la fila en la posición indicada
+     * del listado de resúmenes. Permite saltar a una página sin recorrer las anteriores.
+     */
+    public FacturaResumen obtenerClaveResumen(String termino, int posicion) {
+        List<String> palabras = prepararBusqueda(termino);
+        String sql = SQL_SELECT_CLAVE_RESUMEN + construirWhereResumen(termino, palabras, false) +
+                SQL_RESUMEN_ORDER + " LIMIT 1 OFFSET ?";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = setParametrosResumen(stmt, termino, palabras, null);
+            stmt.setInt(indice, posicion);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    FacturaResumen clave = new FacturaResumen();
+                    clave.setIdFactura(rs.getString("id_factura"));
+                    clave.setFechaEmision(rs.getDate("fecha_emision").toLocalDate());
+                    return clave;
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener clave de resumen de factura", e);
+        }
+
+        return null;
+    }
+
+    /**
+     * Cuenta los resúmenes de facturas que cumplen el filtro (todas si el término está vacío)
+     */
+    public int contarResumenes(String termino) {
+        if (termino == null || termino.isEmpty()) {
+            return contarFacturas();
+        }
+
+        List<String> palabras = prepararBusqueda(termino);
+        String sql = SQL_COUNT_RESUMEN + construirWhereResumen(termino, palabras, false);
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            setParametrosResumen(stmt, termino, palabras, null);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getInt(1);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al contar resúmenes de facturas", e);
+        }
+
+        return 0;
+    }
+
     /**
      * Obtiene una factura por su ID, incluyendo sus líneas
      */
@@ -210,7 +421,7 @@ public class FacturaDAO {
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     Factura factura = mapResultSetToFactura(rs);
-                    cargarLineasFactura(factura);
+                    cargarLineasFacturas(conn, List.of(factura));
                     return factura;
                 }
             }
@@ -226,32 +437,68 @@ public class FacturaDAO {
      * Busca facturas por término de búsqueda
      */
     public List<Factura> buscar(String termino) {
+        return buscar(termino, Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Busca facturas por término de búsqueda, devolviendo como máximo 'limite' resultados.
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     */
+    public List<Factura> buscar(String termino, int limite, ConsultaCancelable cancelacion) {
         List<Factura> facturas = new ArrayList<>();
 
+        List<String> palabras = prepararBusqueda(termino);
+        String sql = SQL_SEARCH_PREFIX + condicionBusqueda(palabras) + SQL_SEARCH_SUFFIX;
+
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(SQL_SEARCH)) {
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = setParametrosBusqueda(stmt, 1, termino, palabras);
+            stmt.setInt(indice, limite);
 
-            String terminoBusqueda = "%" + termino + "%";
-            stmt.setString(1, terminoBusqueda);
-            stmt.setString(2, terminoBusqueda);
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Factura factura = mapResultSetToFactura(rs);
-                    cargarLineasFactura(factura);
-                    facturas.add(factura);
+                    facturas.add(mapResultSetToFactura(rs));
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
                 }
             }
 
+            cargarLineasFacturas(conn, facturas);
+
             logger.info("Búsqueda '{}' encontró {} facturas", termino, facturas.size());
 
         } catch (SQLException e) {
-            logger.error("Error al buscar facturas", e);
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Búsqueda de facturas '{}' cancelada", termino);
+            } else {
+                logger.error("Error al buscar facturas", e);
+            }
         }
 
         return facturas;
     }
 
+    /**
+     * Consulta de las facturas de un cliente, con el índice compuesto si existe
+     */
+    static String sqlPorCliente() {
+        return String.format(SQL_SELECT_BY_CLIENTE, IndicesSQL.usar(IndicesSQL.FACTURA_CLIENTE_FECHA));
+    }
+
+    /**
+     * Consulta de las facturas de una empresa, con el índice compuesto si existe
+     */
+    static String sqlPorEmpresa() {
+        return String.format(SQL_SELECT_BY_EMPRESA, IndicesSQL.usar(IndicesSQL.FACTURA_EMPRESA_FECHA));
+    }
+
     /**
      * Obtiene facturas por cliente
      */
@@ -259,18 +506,18 @@ public class FacturaDAO {
         List<Factura> facturas = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_CLIENTE)) {
+                PreparedStatement stmt = conn.prepareStatement(sqlPorCliente())) {
 
             stmt.setInt(1, idCliente);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Factura factura = mapResultSetToFactura(rs);
-                    cargarLineasFactura(factura);
-                    facturas.add(factura);
+                    facturas.add(mapResultSetToFactura(rs));
                 }
             }
 
+            cargarLineasFacturas(conn, facturas);
+
         } catch (SQLException e) {
             logger.error("Error al obtener facturas por cliente", e);
         }
@@ -285,18 +532,18 @@ public class FacturaDAO {
         List<Factura> facturas = new ArrayList<>();
 
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_EMPRESA)) {
+                PreparedStatement stmt = conn.prepareStatement(sqlPorEmpresa())) {
 
             stmt.setInt(1, idEmpresa);
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Factura factura = mapResultSetToFactura(rs);
-                    cargarLineasFactura(factura);
-                    facturas.add(factura);
+                    facturas.add(mapResultSetToFactura(rs));
                 }
             }
 
+            cargarLineasFacturas(conn, facturas);
+
         } catch (SQLException e) {
             logger.error("Error al obtener facturas por empresa", e);
         }
@@ -318,12 +565,12 @@ public class FacturaDAO {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Factura factura = mapResultSetToFactura(rs);
-                    cargarLineasFactura(factura);
-                    facturas.add(factura);
+                    facturas.add(mapResultSetToFactura(rs));
                 }
             }
 
+            cargarLineasFacturas(conn, facturas);
+
         } catch (SQLException e) {
             logger.error("Error al obtener facturas por rango de fechas", e);
         }
@@ -332,18 +579,142 @@ public class FacturaDAO {
     }
 
     /**
-     * Elimina una factura y sus líneas (por CASCADE)
+     * Obtiene los IDs de las facturas entre dos fechas y/o de una empresa, ordenados por
+     * fecha de emisión. Los filtros a null no se aplican.
      */
-    public boolean eliminar(String id) {
+    public List<String> obtenerIds(LocalDate desde, LocalDate hasta, Integer idEmpresa) {
+        List<String> ids = new ArrayList<>();
+
+        String sql = SQL_SELECT_IDS_FILTRO + condicionPeriodo(desde, hasta, idEmpresa, "") +
+                " ORDER BY fecha_emision, id_factura";
+
         try (Connection conn = DatabaseConnection.getConnection();
-                PreparedStatement stmt = conn.prepareStatement(SQL_DELETE)) {
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, id);
-            int filasAfectadas = stmt.executeUpdate();
+            setParametrosPeriodo(stmt, desde, hasta, idEmpresa);
 
-            if (filasAfectadas > 0) {
-                logger.info("Factura eliminada: {}", id);
-                return true;
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getString(1));
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener IDs de facturas", e);
+        }
+
+        return ids;
+    }
+
+    /**
+     * Recorre las líneas de las facturas entre dos fechas y/o de una empresa, en orden de
+     * fecha, factura y número de línea, sin cargarlas todas en memoria (p. ej. para el libro
+     * de facturas). Todas las líneas de una factura reciben la misma instancia de Factura,
+     * con el nombre y NIF del cliente y la razón social de la empresa; sus líneas no se
+     * añaden a la factura.
+     *
+     * @throws SQLException si falla la consulta; el recorrido se interrumpe
+     */
+    public void recorrerLineas(LocalDate desde, LocalDate hasta, Integer idEmpresa,
+                               BiConsumer<Factura, LineaFactura> consumidor) throws SQLException {
+        String sql = SQL_SELECT_LINEAS_PERIODO + condicionPeriodo(desde, hasta, idEmpresa, "f.") +
+                " ORDER BY f.fecha_emision, f.id_factura, l.numero_linea";
+
+        try (Connection conn = DatabaseConnection.getConnection();
+                PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setFetchSize(TAMANO_LOTE_RECORRIDO);
+            setParametrosPeriodo(stmt, desde, hasta, idEmpresa);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                Factura actual = null;
+
+                while (rs.next()) {
+                    String idFactura = rs.getString("id_factura");
+
+                    if (actual == null || !actual.getIdFactura().equals(idFactura)) {
+                        actual = mapResultSetToFactura(rs);
+
+                        Cliente cliente = new Cliente();
+                        cliente.setIdCliente(actual.getIdCliente());
+                        cliente.setNombreFiscal(rs.getString("nombre_fiscal"));
+                        cliente.setNif(rs.getString("nif_cliente"));
+                        actual.setCliente(cliente);
+
+                        Empresa empresa = new Empresa();
+                        empresa.setIdEmpresa(actual.getIdEmpresa());
+                        empresa.setRazonSocial(rs.getString("razon_social"));
+                        actual.setEmpresa(empresa);
+                    }
+
+                    consumidor.accept(actual, lineaFacturaDAO.mapResultSetToLinea(rs));
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene varias facturas completas (con líneas) por su ID, con una consulta IN
+     * por cada bloque de ConsultasIN.TAMANO_LOTE IDs
+     */
+    public List<Factura> obtenerPorIds(List<String> ids) {
+        List<Factura> facturas = new ArrayList<>();
+
+        if (ids == null || ids.isEmpty()) {
+            return facturas;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+
+            for (List<String> lote : ConsultasIN.lotes(ids)) {
+                String sql = SQL_SELECT_BY_IDS_PREFIX + ConsultasIN.marcadores(lote.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        stmt.setString(i + 1, lote.get(i));
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            facturas.add(mapResultSetToFactura(rs));
+                        }
+                    }
+                }
+            }
+
+            cargarLineasFacturas(conn, facturas);
+
+        } catch (SQLException e) {
+            logger.error("Error al obtener facturas por IDs", e);
+        }
+
+        return facturas;
+    }
+
+    /**
+     * Elimina una factura y sus líneas (por CASCADE) y la descuenta de los resúmenes
+     */
+    public boolean eliminar(String id) {
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_DELETE)) {
+                resumenDAO.aplicar(conn, List.of(id), -1);
+
+                stmt.setString(1, id);
+                int filasAfectadas = stmt.executeUpdate();
+                conn.commit();
+
+                if (filasAfectadas > 0) {
+                    logger.info("Factura eliminada: {}", id);
+                    return true;
+                }
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
 
         } catch (SQLException e) {
@@ -373,23 +744,38 @@ public class FacturaDAO {
     }
 
     /**
-     * Genera el siguiente ID de factura
+     * Devuelve cuáles de los IDs dados corresponden a facturas existentes
      */
-    public String generarSiguienteId() {
-        try (Connection conn = DatabaseConnection.getConnection();
-                Statement stmt = conn.createStatement();
-                ResultSet rs = stmt.executeQuery(SQL_NEXT_ID)) {
+    public Set<String> obtenerIdsExistentes(Collection<String> ids) {
+        Set<String> existentes = new HashSet<>();
 
-            if (rs.next()) {
-                int siguiente = rs.getInt(1);
-                return String.format("FAC%06d", siguiente);
+        if (ids == null || ids.isEmpty()) {
+            return existentes;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+
+            for (List<String> lote : ConsultasIN.lotes(ids)) {
+                String sql = SQL_SELECT_IDS_PREFIX + ConsultasIN.marcadores(lote.size()) + ")";
+
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < lote.size(); i++) {
+                        stmt.setString(i + 1, lote.get(i));
+                    }
+
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            existentes.add(rs.getString(1));
+                        }
+                    }
+                }
             }
 
         } catch (SQLException e) {
-            logger.error("Error al generar siguiente ID de factura", e);
+            logger.error("Error al comprobar IDs de factura existentes", e);
         }
 
-        return "FAC000001";
+        return existentes;
     }
 
     /**
@@ -419,13 +805,95 @@ public class FacturaDAO {
     }
 
     /**
-     * Carga las líneas de una factura
+     * Carga las líneas de un conjunto de facturas con una única consulta por bloque,
+     * reutilizando la conexión de la consulta principal
+     */
+    private void cargarLineasFacturas(Connection conn, List<Factura> facturas) throws SQLException {
+        if (facturas.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(facturas.size());
+        for (Factura factura : facturas) {
+            ids.add(factura.getIdFactura());
+        }
+
+        Map<String, List<LineaFactura>> lineasPorFactura = lineaFacturaDAO.obtenerPorFacturas(conn, ids);
+
+        for (Factura factura : facturas) {
+            List<LineaFactura> lineas = lineasPorFactura.get(factura.getIdFactura());
+            factura.setLineas(lineas != null ? lineas : new ArrayList<>());
+        }
+    }
+
+    /**
+     * Trocea el término de búsqueda y se asegura de que el índice de clientes está construido
+     */
+    private List<String> prepararBusqueda(String termino) {
+        if (termino == null || termino.isEmpty()) {
+            return List.of();
+        }
+        indiceBusquedaDAO.asegurarIndice(EntidadIndexada.CLIENTE);
+        return IndiceBusquedaDAO.tokenizar(termino);
+    }
+
+    /**
+     * Condición de búsqueda de facturas (alias f): ID que empieza por el término,
+     * o cliente que contiene todas sus palabras según el índice de búsqueda
+     */
+    private String condicionBusqueda(List<String> palabras) {
+        String condicion = "(f.id_factura LIKE ?" + BusquedaSQL.ESCAPE;
+        if (!palabras.isEmpty()) {
+            condicion += " OR f.id_cliente IN (SELECT CAST(r.id_entidad AS INT) FROM (" +
+                    indiceBusquedaDAO.subconsultaRanking(palabras) + ") r)";
+        }
+        return condicion + ")";
+    }
+
+    /**
+     * Establece los parámetros de condicionBusqueda a partir del índice dado.
+     * Devuelve el índice del siguiente parámetro libre.
+     */
+    private int setParametrosBusqueda(PreparedStatement stmt, int indice, String termino, List<String> palabras)
+            throws SQLException {
+        stmt.setString(indice++, BusquedaSQL.patronPrefijo(termino.toUpperCase(Locale.ROOT)));
+        if (!palabras.isEmpty()) {
+            indice = indiceBusquedaDAO.setParametrosRanking(stmt, indice, EntidadIndexada.CLIENTE, palabras);
+        }
+        return indice;
+    }
+
+    /**
+     * Construye la cláusula WHERE de las consultas de resumen según el filtro y el cursor
      */
-    private void cargarLineasFactura(Factura factura) {
-        if (factura != null && factura.getIdFactura() != null) {
-            List<LineaFactura> lineas = lineaFacturaDAO.obtenerPorFactura(factura.getIdFactura());
-            factura.setLineas(lineas);
+    private String construirWhereResumen(String termino, List<String> palabras, boolean conCursor) {
+        List<String> condiciones = new ArrayList<>();
+        if (termino != null && !termino.isEmpty()) {
+            condiciones.add(condicionBusqueda(palabras));
         }
+        if (conCursor) {
+            condiciones.add(SQL_RESUMEN_CURSOR);
+        }
+        return condiciones.isEmpty() ? "" : "WHERE " + String.join(" AND ", condiciones) + " ";
+    }
+
+    /**
+     * Establece los parámetros de filtro y cursor de las consultas de resumen.
+     * Devuelve el índice del siguiente parámetro libre.
+     */
+    private int setParametrosResumen(PreparedStatement stmt, String termino, List<String> palabras,
+            FacturaResumen despuesDe) throws SQLException {
+        int indice = 1;
+        if (termino != null && !termino.isEmpty()) {
+            indice = setParametrosBusqueda(stmt, indice, termino, palabras);
+        }
+        if (despuesDe != null) {
+            Date fecha = Date.valueOf(despuesDe.getFechaEmision());
+            stmt.setDate(indice++, fecha);
+            stmt.setDate(indice++, fecha);
+            stmt.setString(indice++, despuesDe.getIdFactura());
+        }
+        return indice;
     }
 
     /**
@@ -460,6 +928,39 @@ public class FacturaDAO {
         stmt.setString(9, factura.getIdFactura());
     }
 
+    /**
+     * Condición WHERE por periodo y empresa; los filtros a null no se aplican
+     */
+    private static String condicionPeriodo(LocalDate desde, LocalDate hasta, Integer idEmpresa, String alias) {
+        List<String> condiciones = new ArrayList<>();
+
+        if (desde != null) {
+            condiciones.add(alias + "fecha_emision >= ?");
+        }
+        if (hasta != null) {
+            condiciones.add(alias + "fecha_emision <= ?");
+        }
+        if (idEmpresa != null) {
+            condiciones.add(alias + "id_empresa = ?");
+        }
+
+        return condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+    }
+
+    private static void setParametrosPeriodo(PreparedStatement stmt, LocalDate desde, LocalDate hasta,
+                                             Integer idEmpresa) throws SQLException {
+        int indice = 1;
+        if (desde != null) {
+            stmt.setDate(indice++, Date.valueOf(desde));
+        }
+        if (hasta != null) {
+            stmt.setDate(indice++, Date.valueOf(hasta));
+        }
+        if (idEmpresa != null) {
+            stmt.setInt(indice, idEmpresa);
+        }
+    }
+
     /**
      * Mapea un ResultSet a un objeto Factura
      */
@@ -481,4 +982,25 @@ public class FacturaDAO {
 
         return factura;
     }
+
+    /**
+     * Mapea un ResultSet de la consulta de resumen a un objeto FacturaResumen
+     */
+    private FacturaResumen mapResultSetToResumen(ResultSet rs) throws SQLException {
+        FacturaResumen resumen = new FacturaResumen();
+
+        resumen.setIdFactura(rs.getString("id_factura"));
+
+        Date fecha = rs.getDate("fecha_emision");
+        resumen.setFechaEmision(fecha != null ? fecha.toLocalDate() : LocalDate.now());
+
+        resumen.setNombreCliente(rs.getString("nombre_fiscal"));
+        resumen.setNombreEmpresa(rs.getString("razon_social"));
+        resumen.setSubtotal(rs.getBigDecimal("subtotal"));
+        resumen.setTotalIva(rs.getBigDecimal("total_iva"));
+        resumen.setTotal(rs.getBigDecimal("total"));
+        resumen.setMetodoPago(rs.getString("metodo_pago"));
+
+        return resumen;
+    }
 }
\ No newline at end of file
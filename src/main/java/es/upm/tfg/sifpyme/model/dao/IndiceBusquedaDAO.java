@@ -0,0 +1,331 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DAO del índice invertido de búsqueda (tabla Indice_busqueda)
+ * Guarda cada palabra normalizada de los campos de texto de clientes y productos,
+ * de forma que las búsquedas por prefijo recorren un rango del índice en lugar
+ * de hacer LIKE '%...%' sobre toda la tabla. Los triggers de IndiceBusquedaTrigger
+ * lo mantienen sincronizado en cada INSERT, UPDATE y DELETE.
+ */
+public class IndiceBusquedaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBusquedaDAO.class);
+
+    /**
+     * Tablas indexadas: columna clave y columnas de texto que se trocean en palabras
+     */
+    public enum EntidadIndexada {
+        CLIENTE("Cliente", "id_cliente", "nombre_fiscal", "nif", "email"),
+        PRODUCTO("Producto", "id_producto", "nombre", "codigo");
+
+        private final String tabla;
+        private final String columnaId;
+        private final String[] columnasTexto;
+
+        EntidadIndexada(String tabla, String columnaId, String... columnasTexto) {
+            this.tabla = tabla;
+            this.columnaId = columnaId;
+            this.columnasTexto = columnasTexto;
+        }
+
+        public String getTabla() {
+            return tabla;
+        }
+
+        public String getColumnaId() {
+            return columnaId;
+        }
+
+        public String[] getColumnasTexto() {
+            return columnasTexto;
+        }
+
+        /**
+         * Obtiene la entidad asociada a un nombre de tabla (sin distinguir mayúsculas)
+         */
+        public static EntidadIndexada porTabla(String tabla) {
+            for (EntidadIndexada entidad : values()) {
+                if (entidad.tabla.equalsIgnoreCase(tabla)) {
+                    return entidad;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Longitud máxima de una palabra indexada (columna palabra)
+    private static final int LONGITUD_MAX_PALABRA = 100;
+
+    // Las palabras más cortas coinciden como prefijo con buena parte del índice: no se usan
+    // para recorrerlo, solo para filtrar los candidatos de las demás (ver subconsultaRanking)
+    private static final int LONGITUD_MIN_PREFIJO = 3;
+
+    // Entradas del índice que se leen como máximo cuando todas las palabras buscadas son cortas
+    private static final int MAX_COINCIDENCIAS_PREFIJO_CORTO = 1000;
+
+    private static final String SQL_INSERT =
+        "INSERT INTO Indice_busqueda (entidad, id_entidad, palabra) VALUES (?, ?, ?)";
+
+    private static final String SQL_DELETE =
+        "DELETE FROM Indice_busqueda WHERE entidad = ? AND id_entidad = ?";
+
+    private static final String SQL_DELETE_ENTIDAD =
+        "DELETE FROM Indice_busqueda WHERE entidad = ?";
+
+    private static final String SQL_EXISTE_ENTIDAD =
+        "SELECT 1 FROM Indice_busqueda WHERE entidad = ? LIMIT 1";
+
+    // Una rama por palabra buscada: 2 puntos si la palabra coincide entera, 1 si solo por prefijo.
+    // El prefijo se busca como rango [prefijo, fin) y no con LIKE ?: H2 no convierte un LIKE con
+    // parámetro en un rango de la clave primaria y recorrería todas las palabras de la entidad.
+    private static final String SQL_RAMA_RANKING =
+        "SELECT id_entidad, %d AS termino, CASE WHEN palabra = ? THEN 2 ELSE 1 END AS puntos " +
+        "FROM Indice_busqueda WHERE entidad = ? AND palabra >= ? AND palabra < ?";
+
+    // Palabra corta: el candidato debe tener alguna palabra con ese prefijo. Se leen sus pocas
+    // palabras por el índice (entidad, id_entidad); por la clave primaria se recorrería el rango
+    // del prefijo, casi toda la entidad, una vez por candidato.
+    private static final String SQL_FILTRO_PREFIJO_CORTO =
+        " AND EXISTS (SELECT 1 FROM Indice_busqueda i USE INDEX (idx_indice_busqueda_entidad) " +
+        "WHERE i.entidad = ? AND i.id_entidad = coincidencias.id_entidad " +
+        "AND i.palabra >= ? AND i.palabra < ?)";
+
+    // Entidades cuyo índice ya se ha comprobado en este proceso
+    private static final Set<EntidadIndexada> entidadesVerificadas = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Trocea un texto en palabras normalizadas: minúsculas, sin tildes y separadas
+     * por cualquier carácter que no sea letra o dígito
+     */
+    public static List<String> tokenizar(String texto) {
+        if (texto == null || texto.isBlank()) {
+            return List.of();
+        }
+
+        String normalizado = Normalizer.normalize(texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+
+        Set<String> palabras = new LinkedHashSet<>();
+        for (String palabra : normalizado.split("[^\\p{Alnum}]+")) {
+            if (!palabra.isEmpty()) {
+                palabras.add(palabra.length() > LONGITUD_MAX_PALABRA
+                        ? palabra.substring(0, LONGITUD_MAX_PALABRA)
+                        : palabra);
+            }
+        }
+        return new ArrayList<>(palabras);
+    }
+
+    /**
+     * Indexa las palabras de los textos de una entidad en una conexión existente
+     */
+    public void indexar(Connection conn, EntidadIndexada entidad, String id, String... textos)
+            throws SQLException {
+        Set<String> palabras = new LinkedHashSet<>();
+        for (String texto : textos) {
+            palabras.addAll(tokenizar(texto));
+        }
+
+        if (palabras.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT)) {
+            for (String palabra : palabras) {
+                stmt.setString(1, entidad.name());
+                stmt.setString(2, id);
+                stmt.setString(3, palabra);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Elimina del índice todas las palabras de una entidad en una conexión existente
+     */
+    public void eliminar(Connection conn, EntidadIndexada entidad, String id) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_DELETE)) {
+            stmt.setString(1, entidad.name());
+            stmt.setString(2, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Comprueba una vez por proceso que el índice de la entidad está construido
+     * y lo reconstruye si está vacío (p. ej. datos anteriores a la creación del índice)
+     */
+    public void asegurarIndice(EntidadIndexada entidad) {
+        if (entidadesVerificadas.contains(entidad)) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean indexada;
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_EXISTE_ENTIDAD)) {
+                stmt.setString(1, entidad.name());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    indexada = rs.next();
+                }
+            }
+
+            if (!indexada) {
+                reconstruir(conn, entidad);
+            }
+            entidadesVerificadas.add(entidad);
+
+        } catch (SQLException e) {
+            logger.error("Error al verificar el índice de búsqueda de {}", entidad, e);
+        }
+    }
+
+    /**
+     * Reconstruye por completo el índice de una entidad a partir de su tabla
+     */
+    public void reconstruir(Connection conn, EntidadIndexada entidad) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        String sqlSelect = "SELECT " + entidad.getColumnaId() + ", " +
+                String.join(", ", entidad.getColumnasTexto()) + " FROM " + entidad.getTabla();
+
+        int filas = 0;
+        try (PreparedStatement borrar = conn.prepareStatement(SQL_DELETE_ENTIDAD);
+             PreparedStatement insertar = conn.prepareStatement(SQL_INSERT);
+             Statement stmt = conn.createStatement()) {
+
+            borrar.setString(1, entidad.name());
+            borrar.executeUpdate();
+
+            try (ResultSet rs = stmt.executeQuery(sqlSelect)) {
+                String[] textos = new String[entidad.getColumnasTexto().length];
+
+                while (rs.next()) {
+                    String id = rs.getString(1);
+                    for (int i = 0; i < textos.length; i++) {
+                        textos[i] = rs.getString(i + 2);
+                    }
+
+                    Set<String> palabras = new LinkedHashSet<>();
+                    for (String texto : textos) {
+                        palabras.addAll(tokenizar(texto));
+                    }
+                    for (String palabra : palabras) {
+                        insertar.setString(1, entidad.name());
+                        insertar.setString(2, id);
+                        insertar.setString(3, palabra);
+                        insertar.addBatch();
+                    }
+
+                    if (++filas % 1000 == 0) {
+                        insertar.executeBatch();
+                    }
+                }
+            }
+
+            insertar.executeBatch();
+            conn.commit();
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        logger.info("Índice de búsqueda de {} reconstruido: {} filas en {} ms",
+                entidad, filas, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Subconsulta que devuelve (id_entidad, puntuacion) de las entidades que contienen
+     * todas las palabras buscadas como prefijo de alguna de sus palabras indexadas.
+     *
+     * Solo las palabras de al menos LONGITUD_MIN_PREFIJO letras recorren el índice y se
+     * agrupan; las cortas se comprueban después sobre cada candidato. Si todas son cortas,
+     * la primera recorre como mucho MAX_COINCIDENCIAS_PREFIJO_CORTO entradas en orden
+     * alfabético (primero la palabra exacta), y se devuelven solo las entidades de esas entradas.
+     */
+    public String subconsultaRanking(List<String> palabras) {
+        List<String> recorren = palabrasQueRecorren(palabras);
+        boolean todasCortas = recorren.size() == 1 && esCorta(recorren.get(0));
+
+        List<String> ramas = new ArrayList<>(recorren.size());
+        for (int i = 0; i < recorren.size(); i++) {
+            ramas.add(String.format(SQL_RAMA_RANKING, i));
+        }
+        String union = String.join(" UNION ALL ", ramas);
+        if (todasCortas) {
+            union += " ORDER BY entidad, palabra LIMIT " + MAX_COINCIDENCIAS_PREFIJO_CORTO;
+        }
+
+        return "SELECT id_entidad, SUM(puntos) AS puntuacion FROM (" + union + ") coincidencias " +
+                "GROUP BY id_entidad HAVING COUNT(DISTINCT termino) = " + recorren.size() +
+                SQL_FILTRO_PREFIJO_CORTO.repeat(palabras.size() - recorren.size());
+    }
+
+    /**
+     * Establece los parámetros de la subconsulta de ranking a partir del índice dado.
+     * Devuelve el índice del siguiente parámetro libre.
+     */
+    public int setParametrosRanking(PreparedStatement stmt, int indice, EntidadIndexada entidad,
+            List<String> palabras) throws SQLException {
+        List<String> recorren = palabrasQueRecorren(palabras);
+        for (String palabra : recorren) {
+            stmt.setString(indice++, palabra);
+            stmt.setString(indice++, entidad.name());
+            stmt.setString(indice++, palabra);
+            stmt.setString(indice++, finRangoPrefijo(palabra));
+        }
+        for (String palabra : palabras) {
+            if (!recorren.contains(palabra)) {
+                stmt.setString(indice++, entidad.name());
+                stmt.setString(indice++, palabra);
+                stmt.setString(indice++, finRangoPrefijo(palabra));
+            }
+        }
+        return indice;
+    }
+
+    /**
+     * Primera cadena posterior a todas las que empiezan por el prefijo (último carácter + 1).
+     * Las palabras de tokenizar solo tienen letras y dígitos ASCII, así que no hay desbordamiento.
+     */
+    private static String finRangoPrefijo(String prefijo) {
+        int ultimo = prefijo.length() - 1;
+        return prefijo.substring(0, ultimo) + (char) (prefijo.charAt(ultimo) + 1);
+    }
+
+    /**
+     * Palabras que recorren el índice: las largas o, si todas son cortas, solo la primera
+     */
+    private static List<String> palabrasQueRecorren(List<String> palabras) {
+        List<String> largas = new ArrayList<>();
+        for (String palabra : palabras) {
+            if (!esCorta(palabra)) {
+                largas.add(palabra);
+            }
+        }
+        return largas.isEmpty() ? List.of(palabras.get(0)) : largas;
+    }
+
+    private static boolean esCorta(String palabra) {
+        return palabra.length() < LONGITUD_MIN_PREFIJO;
+    }
+}
@@ -0,0 +1,74 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.model.dao.IndiceBusquedaDAO.EntidadIndexada;
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Trigger de H2 que mantiene Indice_busqueda sincronizado con las tablas indexadas
+ * Se declara en V5__indice_busqueda.sql para Cliente y Producto (AFTER INSERT, UPDATE, DELETE)
+ * y se ejecuta dentro de la misma transacción que la modificación
+ */
+public class IndiceBusquedaTrigger implements Trigger {
+
+    private final IndiceBusquedaDAO indiceBusquedaDAO = new IndiceBusquedaDAO();
+
+    private EntidadIndexada entidad;
+    private int posicionId;
+    private int[] posicionesTexto;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName,
+            String tableName, boolean before, int type) throws SQLException {
+        entidad = EntidadIndexada.porTabla(tableName);
+        if (entidad == null) {
+            throw new SQLException("Tabla sin índice de búsqueda: " + tableName);
+        }
+
+        posicionId = posicionColumna(conn, schemaName, tableName, entidad.getColumnaId());
+
+        String[] columnasTexto = entidad.getColumnasTexto();
+        posicionesTexto = new int[columnasTexto.length];
+        for (int i = 0; i < columnasTexto.length; i++) {
+            posicionesTexto[i] = posicionColumna(conn, schemaName, tableName, columnasTexto[i]);
+        }
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null) {
+            indiceBusquedaDAO.eliminar(conn, entidad, String.valueOf(oldRow[posicionId]));
+        }
+
+        if (newRow != null) {
+            String[] textos = new String[posicionesTexto.length];
+            for (int i = 0; i < posicionesTexto.length; i++) {
+                Object valor = newRow[posicionesTexto[i]];
+                textos[i] = valor != null ? valor.toString() : null;
+            }
+            indiceBusquedaDAO.indexar(conn, entidad, String.valueOf(newRow[posicionId]), textos);
+        }
+    }
+
+    /**
+     * Obtiene la posición (base 0) de una columna dentro de las filas que recibe el trigger
+     */
+    private int posicionColumna(Connection conn, String schemaName, String tableName, String columna)
+            throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+
+        try (ResultSet rs = metaData.getColumns(null, schemaName, tableName, null)) {
+            while (rs.next()) {
+                if (rs.getString("COLUMN_NAME").equalsIgnoreCase(columna)) {
+                    return rs.getInt("ORDINAL_POSITION") - 1;
+                }
+            }
+        }
+
+        throw new SQLException("Columna no encontrada: " + tableName + "." + columna);
+    }
+}
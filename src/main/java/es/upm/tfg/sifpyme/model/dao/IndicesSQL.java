@@ -0,0 +1,31 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+
+/**
+ * Indicaciones USE INDEX para las consultas cuyo índice compuesto H2 no elige por sí solo:
+ * a igual coste prefiere el índice que crea para la clave ajena, que no devuelve las filas
+ * ordenadas por fecha ni por número de línea.
+ *
+ * La indicación solo se añade si el índice existe. Si la migración que lo crea no se ha
+ * aplicado (p. ej. db.init.scripts sin V3), la consulta se ejecuta sin ella en lugar de fallar.
+ * Los índices existentes los lee DatabaseConnection después de aplicar las migraciones.
+ */
+final class IndicesSQL {
+
+    // Índices de la migración V3__indices_compuestos.sql
+    static final String FACTURA_CLIENTE_FECHA = "idx_factura_cliente_fecha";
+    static final String FACTURA_EMPRESA_FECHA = "idx_factura_empresa_fecha";
+    static final String FACTURA_FECHA_ID = "idx_factura_fecha_id";
+    static final String LINEA_FACTURA_NUMERO = "idx_linea_factura_factura_numero";
+
+    private IndicesSQL() {
+    }
+
+    /**
+     * Devuelve "USE INDEX (indice) " si el índice existe, o una cadena vacía si no
+     */
+    static String usar(String indice) {
+        return DatabaseConnection.existeIndice(indice) ? "USE INDEX (" + indice + ") " : "";
+    }
+}
@@ -5,9 +5,16 @@ import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 /**
  * DAO para la gestión de líneas de factura en la base de datos
@@ -23,8 +30,20 @@ public class LineaFacturaDAO {
         "importe_iva, porcentaje_retencion, importe_retencion, total_linea, " +
         "numero_linea) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
     
+    // Con el índice (id_factura, numero_linea) las líneas salen ya ordenadas; H2 elegiría el de
+    // la clave ajena, así que se indica si existe (ver IndicesSQL)
     private static final String SQL_SELECT_BY_FACTURA = 
-        "SELECT * FROM Linea_factura WHERE id_factura = ? ORDER BY numero_linea";
+        "SELECT * FROM Linea_factura %s" +
+        "WHERE id_factura = ? ORDER BY id_factura, numero_linea";
+    
+    private static final String SQL_SELECT_BY_FACTURAS_PREFIX = 
+        "SELECT * FROM Linea_factura WHERE id_factura IN (";
+    
+    private static final String SQL_SELECT_BY_FACTURAS_SUFFIX = 
+        ") ORDER BY id_factura, numero_linea";
+    
+    // Máximo de sentencias por executeBatch en las operaciones en bloque
+    private static final int TAMANO_LOTE_BATCH = 500;
     
     private static final String SQL_DELETE_BY_FACTURA = 
         "DELETE FROM Linea_factura WHERE id_factura = ?";
@@ -65,6 +84,41 @@ public class LineaFacturaDAO {
         return null;
     }
     
+    /**
+     * Inserta varias líneas de factura en una conexión existente con un único
+     * PreparedStatement y executeBatch, asignando a cada línea su ID generado
+     */
+    public void insertarTodas(Connection conn, List<LineaFactura> lineas) throws SQLException {
+        if (lineas == null || lineas.isEmpty()) {
+            return;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT, 
+                Statement.RETURN_GENERATED_KEYS)) {
+            
+            for (int inicio = 0; inicio < lineas.size(); inicio += TAMANO_LOTE_BATCH) {
+                List<LineaFactura> lote = lineas.subList(inicio, 
+                        Math.min(inicio + TAMANO_LOTE_BATCH, lineas.size()));
+                
+                for (LineaFactura linea : lote) {
+                    setLineaParameters(stmt, linea);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                
+                // Las claves se devuelven en el mismo orden en que se añadieron al lote
+                try (ResultSet rs = stmt.getGeneratedKeys()) {
+                    for (LineaFactura linea : lote) {
+                        if (!rs.next()) {
+                            break;
+                        }
+                        linea.setIdLinea(rs.getInt(1));
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * Inserta una línea de factura (nueva conexión)
      */
@@ -101,9 +155,7 @@ public class LineaFacturaDAO {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
             
-            setLineaParameters(stmt, linea);
-            stmt.setString(12, linea.getNombreProducto());  // Añadido nombre_producto
-            stmt.setInt(13, linea.getIdLinea());
+            setLineaParametersUpdate(stmt, linea);
             
             int filasAfectadas = stmt.executeUpdate();
             
@@ -140,6 +192,13 @@ public class LineaFacturaDAO {
         return null;
     }
     
+    /**
+     * Consulta de las líneas de una factura, con el índice compuesto si existe
+     */
+    static String sqlPorFactura() {
+        return String.format(SQL_SELECT_BY_FACTURA, IndicesSQL.usar(IndicesSQL.LINEA_FACTURA_NUMERO));
+    }
+    
     /**
      * Obtiene todas las líneas de una factura
      */
@@ -147,7 +206,7 @@ public class LineaFacturaDAO {
         List<LineaFactura> lineas = new ArrayList<>();
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_FACTURA)) {
+             PreparedStatement stmt = conn.prepareStatement(sqlPorFactura())) {
             
             stmt.setString(1, idFactura);
             
@@ -164,6 +223,42 @@ public class LineaFacturaDAO {
         return lineas;
     }
     
+    /**
+     * Obtiene las líneas de varias facturas en una conexión existente,
+     * agrupadas por ID de factura y ordenadas por número de línea.
+     * Lanza una consulta IN (...) por cada bloque de ConsultasIN.TAMANO_LOTE facturas.
+     */
+    public Map<String, List<LineaFactura>> obtenerPorFacturas(Connection conn, List<String> idsFactura)
+            throws SQLException {
+        if (idsFactura == null || idsFactura.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        
+        Map<String, List<LineaFactura>> lineasPorFactura = new HashMap<>();
+        
+        for (List<String> lote : ConsultasIN.lotes(idsFactura)) {
+            String sql = SQL_SELECT_BY_FACTURAS_PREFIX + ConsultasIN.marcadores(lote.size()) +
+                    SQL_SELECT_BY_FACTURAS_SUFFIX;
+            
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < lote.size(); i++) {
+                    stmt.setString(i + 1, lote.get(i));
+                }
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        LineaFactura linea = mapResultSetToLinea(rs);
+                        lineasPorFactura
+                                .computeIfAbsent(linea.getIdFactura(), k -> new ArrayList<>())
+                                .add(linea);
+                    }
+                }
+            }
+        }
+        
+        return lineasPorFactura;
+    }
+    
     /**
      * Elimina una línea de factura por su ID
      */
@@ -185,6 +280,116 @@ public class LineaFacturaDAO {
         return false;
     }
     
+    /**
+     * Sincroniza las líneas guardadas de una factura con las recibidas en una conexión existente.
+     * Las líneas se emparejan por id_linea (o por numero_linea si la recibida no tiene ID)
+     * y solo se eliminan, actualizan o insertan las que cambian, cada grupo en un lote.
+     */
+    public void sincronizar(Connection conn, String idFactura, List<LineaFactura> lineas) 
+            throws SQLException {
+        List<LineaFactura> recibidas = lineas != null ? lineas : Collections.emptyList();
+        List<LineaFactura> guardadas = obtenerPorFacturas(conn, List.of(idFactura))
+                .getOrDefault(idFactura, Collections.emptyList());
+        
+        // Líneas guardadas aún sin emparejar
+        Map<Integer, LineaFactura> pendientes = new HashMap<>();
+        for (LineaFactura guardada : guardadas) {
+            pendientes.put(guardada.getIdLinea(), guardada);
+        }
+        
+        Map<LineaFactura, LineaFactura> emparejadas = new IdentityHashMap<>();
+        for (LineaFactura linea : recibidas) {
+            linea.setIdFactura(idFactura);
+            if (linea.getIdLinea() != null) {
+                LineaFactura guardada = pendientes.remove(linea.getIdLinea());
+                if (guardada != null) {
+                    emparejadas.put(linea, guardada);
+                }
+            }
+        }
+        
+        // Líneas nuevas que ocupan la posición de una guardada que ya no se recibe
+        Map<Integer, LineaFactura> pendientesPorNumero = new HashMap<>();
+        for (LineaFactura guardada : pendientes.values()) {
+            pendientesPorNumero.putIfAbsent(guardada.getNumeroLinea(), guardada);
+        }
+        for (LineaFactura linea : recibidas) {
+            if (linea.getIdLinea() == null) {
+                LineaFactura guardada = pendientesPorNumero.remove(linea.getNumeroLinea());
+                if (guardada != null) {
+                    pendientes.remove(guardada.getIdLinea());
+                    emparejadas.put(linea, guardada);
+                }
+            }
+        }
+        
+        List<LineaFactura> nuevas = new ArrayList<>();
+        List<LineaFactura> modificadas = new ArrayList<>();
+        for (LineaFactura linea : recibidas) {
+            LineaFactura guardada = emparejadas.get(linea);
+            if (guardada == null) {
+                linea.setIdLinea(null);
+                nuevas.add(linea);
+            } else {
+                linea.setIdLinea(guardada.getIdLinea());
+                if (!mismosDatos(linea, guardada)) {
+                    modificadas.add(linea);
+                }
+            }
+        }
+        
+        eliminarTodas(conn, pendientes.keySet());
+        actualizarTodas(conn, modificadas);
+        insertarTodas(conn, nuevas);
+        
+        logger.debug("Líneas de la factura {}: {} eliminadas, {} actualizadas, {} insertadas",
+                idFactura, pendientes.size(), modificadas.size(), nuevas.size());
+    }
+    
+    /**
+     * Actualiza varias líneas de factura en una conexión existente con executeBatch
+     */
+    public void actualizarTodas(Connection conn, List<LineaFactura> lineas) throws SQLException {
+        if (lineas == null || lineas.isEmpty()) {
+            return;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_UPDATE)) {
+            for (int i = 0; i < lineas.size(); i++) {
+                setLineaParametersUpdate(stmt, lineas.get(i));
+                stmt.addBatch();
+                
+                if ((i + 1) % TAMANO_LOTE_BATCH == 0) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Elimina varias líneas de factura por ID en una conexión existente con executeBatch
+     */
+    public void eliminarTodas(Connection conn, Collection<Integer> ids) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+        
+        try (PreparedStatement stmt = conn.prepareStatement(SQL_DELETE)) {
+            int pendientesLote = 0;
+            for (Integer id : ids) {
+                stmt.setInt(1, id);
+                stmt.addBatch();
+                
+                if (++pendientesLote == TAMANO_LOTE_BATCH) {
+                    stmt.executeBatch();
+                    pendientesLote = 0;
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+    
     /**
      * Elimina todas las líneas de una factura en una conexión existente
      */
@@ -215,10 +420,54 @@ public class LineaFacturaDAO {
         stmt.setInt(13, linea.getNumeroLinea());
     }
     
+    /**
+     * Establece los parámetros de SQL_UPDATE con los datos de la línea
+     */
+    private void setLineaParametersUpdate(PreparedStatement stmt, LineaFactura linea) 
+            throws SQLException {
+        stmt.setBigDecimal(1, linea.getCantidad());
+        stmt.setBigDecimal(2, linea.getPrecioBase());
+        stmt.setBigDecimal(3, linea.getPrecioUnitario());
+        stmt.setBigDecimal(4, linea.getDescuento());
+        stmt.setBigDecimal(5, linea.getSubtotalLinea());
+        stmt.setBigDecimal(6, linea.getPorcentajeIva());
+        stmt.setBigDecimal(7, linea.getImporteIva());
+        stmt.setBigDecimal(8, linea.getPorcentajeRetencion());
+        stmt.setBigDecimal(9, linea.getImporteRetencion());
+        stmt.setBigDecimal(10, linea.getTotalLinea());
+        stmt.setInt(11, linea.getNumeroLinea());
+        stmt.setString(12, linea.getNombreProducto());
+        stmt.setInt(13, linea.getIdLinea());
+    }
+    
+    /**
+     * Indica si una línea recibida tiene los mismos datos que la guardada
+     * (los importes se comparan por valor, sin tener en cuenta la escala)
+     */
+    private boolean mismosDatos(LineaFactura linea, LineaFactura guardada) {
+        return Objects.equals(linea.getNombreProducto(), guardada.getNombreProducto())
+                && Objects.equals(linea.getNumeroLinea(), guardada.getNumeroLinea())
+                && mismoImporte(linea.getCantidad(), guardada.getCantidad())
+                && mismoImporte(linea.getPrecioBase(), guardada.getPrecioBase())
+                && mismoImporte(linea.getPrecioUnitario(), guardada.getPrecioUnitario())
+                && mismoImporte(linea.getDescuento(), guardada.getDescuento())
+                && mismoImporte(linea.getSubtotalLinea(), guardada.getSubtotalLinea())
+                && mismoImporte(linea.getPorcentajeIva(), guardada.getPorcentajeIva())
+                && mismoImporte(linea.getImporteIva(), guardada.getImporteIva())
+                && mismoImporte(linea.getPorcentajeRetencion(), guardada.getPorcentajeRetencion())
+                && mismoImporte(linea.getImporteRetencion(), guardada.getImporteRetencion())
+                && mismoImporte(linea.getTotalLinea(), guardada.getTotalLinea());
+    }
+    
+    private boolean mismoImporte(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+    
     /**
      * Mapea un ResultSet a un objeto LineaFactura
+     * Accesible en el paquete para las consultas de FacturaDAO que combinan factura y líneas
      */
-    private LineaFactura mapResultSetToLinea(ResultSet rs) throws SQLException {
+    LineaFactura mapResultSetToLinea(ResultSet rs) throws SQLException {
         LineaFactura linea = new LineaFactura();
         
         linea.setIdLinea(rs.getInt("id_linea"));
@@ -0,0 +1,72 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Comprueba con EXPLAIN que las consultas principales de facturas usan los índices
+ * compuestos de V3__indices_compuestos.sql: listado paginado, facturas de un cliente y de
+ * una empresa y líneas de una factura. Si H2 eligiera otro índice, esas consultas volverían
+ * a leer y ordenar todas las facturas de la tabla, del cliente o de la empresa.
+ * La comprobación la ejecuta FacturaDAOBenchmark antes de medir, no el arranque de la aplicación.
+ */
+public class PlanesConsultaDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanesConsultaDAO.class);
+
+    /**
+     * Ejecuta EXPLAIN sobre cada consulta y devuelve las que no usan su índice
+     * (nombre de la consulta y plan obtenido); la lista está vacía si todas lo usan
+     */
+    public List<String> comprobarIndices() {
+        List<String> fallos = new ArrayList<>();
+        Date hoy = Date.valueOf(LocalDate.now());
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            comprobar(conn, fallos, "listado de facturas", FacturaDAO.sqlPaginaResumenes(false),
+                    IndicesSQL.FACTURA_FECHA_ID, 50);
+            comprobar(conn, fallos, "listado de facturas (página siguiente)", FacturaDAO.sqlPaginaResumenes(true),
+                    IndicesSQL.FACTURA_FECHA_ID, hoy, hoy, "", 50);
+            comprobar(conn, fallos, "facturas de un cliente", FacturaDAO.sqlPorCliente(),
+                    IndicesSQL.FACTURA_CLIENTE_FECHA, 1);
+            comprobar(conn, fallos, "facturas de una empresa", FacturaDAO.sqlPorEmpresa(),
+                    IndicesSQL.FACTURA_EMPRESA_FECHA, 1);
+            comprobar(conn, fallos, "líneas de una factura", LineaFacturaDAO.sqlPorFactura(),
+                    IndicesSQL.LINEA_FACTURA_NUMERO, "");
+
+        } catch (SQLException e) {
+            logger.error("Error al comprobar los planes de consulta", e);
+            fallos.add("Error al comprobar los planes de consulta: " + e.getMessage());
+        }
+
+        return fallos;
+    }
+
+    private void comprobar(Connection conn, List<String> fallos, String nombre, String sql, String indice,
+                           Object... parametros) throws SQLException {
+        String plan;
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < parametros.length; i++) {
+                stmt.setObject(i + 1, parametros[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                plan = rs.next() ? rs.getString(1) : "";
+            }
+        }
+
+        // El índice elegido aparece en un comentario del plan: /* PUBLIC.INDICE */ o /* PUBLIC.INDICE: ... */
+        String nombreIndice = "." + indice.toUpperCase(Locale.ROOT);
+        if (plan.contains(nombreIndice + " */") || plan.contains(nombreIndice + ":")) {
+            logger.debug("La consulta '{}' usa el índice {}", nombre, indice);
+        } else {
+            fallos.add("La consulta '" + nombre + "' no usa el índice " + indice + ":\n" + plan);
+        }
+    }
+}
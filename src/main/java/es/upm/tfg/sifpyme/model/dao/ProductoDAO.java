@@ -1,13 +1,19 @@
 package es.upm.tfg.sifpyme.model.dao;
 
+import es.upm.tfg.sifpyme.model.dao.IndiceBusquedaDAO.EntidadIndexada;
 import es.upm.tfg.sifpyme.model.entity.Producto;
+import es.upm.tfg.sifpyme.util.CacheLRU;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import es.upm.tfg.sifpyme.util.DatabaseConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * DAO para la gestión de productos en la base de datos
@@ -15,6 +21,11 @@ import java.util.List;
 public class ProductoDAO {
     
     private static final Logger logger = LoggerFactory.getLogger(ProductoDAO.class);
+
+    // Caché compartida por todas las instancias del DAO; se invalida tras modificar o borrar
+    private static final int TAMANO_CACHE = 1000;
+    private static final CacheLRU<Integer, Producto> cache = new CacheLRU<>("Producto", TAMANO_CACHE, Producto::new);
+    private final IndiceBusquedaDAO indiceBusquedaDAO = new IndiceBusquedaDAO();
     
     // Consultas SQL actualizadas según el nuevo esquema
     private static final String SQL_INSERT = 
@@ -28,6 +39,9 @@ public class ProductoDAO {
     private static final String SQL_SELECT_ALL = 
         "SELECT * FROM Producto ORDER BY nombre";
     
+    private static final String SQL_SELECT_PRIMEROS = 
+        "SELECT * FROM Producto ORDER BY nombre LIMIT ?";
+    
     private static final String SQL_SELECT_BY_ID = 
         "SELECT * FROM Producto WHERE id_producto = ?";
     
@@ -37,11 +51,13 @@ public class ProductoDAO {
     private static final String SQL_DELETE = 
         "DELETE FROM Producto WHERE id_producto = ?";
     
-    private static final String SQL_SEARCH = 
-        "SELECT * FROM Producto WHERE " +
-        "LOWER(nombre) LIKE LOWER(?) OR " +
-        "LOWER(codigo) LIKE LOWER(?) " +
-        "ORDER BY nombre";
+    // Búsqueda sobre el índice de palabras: se completa con la subconsulta de ranking
+    private static final String SQL_SEARCH_PREFIX = 
+        "SELECT p.* FROM Producto p JOIN (";
+    
+    private static final String SQL_SEARCH_SUFFIX = 
+        ") r ON p.id_producto = CAST(r.id_entidad AS INT) " +
+        "ORDER BY r.puntuacion DESC, p.nombre LIMIT ?";
     
     private static final String SQL_COUNT = 
         "SELECT COUNT(*) FROM Producto";
@@ -87,6 +103,7 @@ public class ProductoDAO {
             stmt.setInt(7, producto.getIdProducto());
             
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(producto.getIdProducto());
             
             if (filasAfectadas > 0) {
                 logger.info("Producto actualizado: {}", producto.getIdProducto());
@@ -105,16 +122,68 @@ public class ProductoDAO {
      */
     public List<Producto> obtenerTodos() {
         List<Producto> productos = new ArrayList<>();
+        recorrerTodos(null, productos::add);
+        return productos;
+    }
+    
+    /**
+     * Entrega todos los productos a 'destino' según se leen, sin esperar a que termine
+     * la consulta (p. ej. para mostrar las primeras filas de una lista cuanto antes).
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     * @return Número de productos entregados
+     */
+    public int recorrerTodos(ConsultaCancelable cancelacion, Consumer<Producto> destino) {
+        int total = 0;
         
         try (Connection conn = DatabaseConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+             Statement stmt = conn.createStatement()) {
+            
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery(SQL_SELECT_ALL)) {
+                // H2 puede tener ya todo el resultado leído: cancel() no corta el recorrido
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToProducto(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
+                }
+            }
+            
+            logger.info("Se obtuvieron {} productos", total);
             
-            while (rs.next()) {
-                productos.add(mapResultSetToProducto(rs));
+        } catch (SQLException e) {
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Consulta de productos cancelada");
+            } else {
+                logger.error("Error al obtener productos", e);
             }
+        }
+        
+        return total;
+    }
+    
+    /**
+     * Obtiene los primeros 'limite' productos por orden alfabético
+     * (p. ej. para mostrar el selector de productos antes de escribir nada)
+     */
+    public List<Producto> obtenerPrimeros(int limite) {
+        List<Producto> productos = new ArrayList<>();
+        
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_PRIMEROS)) {
             
-            logger.info("Se obtuvieron {} productos", productos.size());
+            stmt.setInt(1, limite);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    productos.add(mapResultSetToProducto(rs));
+                }
+            }
             
         } catch (SQLException e) {
             logger.error("Error al obtener productos", e);
@@ -124,9 +193,28 @@ public class ProductoDAO {
     }
     
     /**
-     * Obtiene un producto por su ID
+     * Carga en la caché los primeros productos por orden alfabético, los que muestra el
+     * selector de productos (al arrancar, en segundo plano)
+     * @return Número de productos cargados
+     */
+    public int precargarCache() {
+        return cache.precargar(() -> {
+            Map<Integer, Producto> productos = new HashMap<>();
+            for (Producto producto : obtenerPrimeros(TAMANO_CACHE)) {
+                productos.put(producto.getIdProducto(), producto);
+            }
+            return productos;
+        });
+    }
+    
+    /**
+     * Obtiene un producto por su ID (a través de la caché)
      */
     public Producto obtenerPorId(Integer id) {
+        return id == null ? null : cache.obtener(id, this::consultarPorId);
+    }
+    
+    private Producto consultarPorId(Integer id) {
         try (Connection conn = DatabaseConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(SQL_SELECT_BY_ID)) {
             
@@ -171,28 +259,71 @@ public class ProductoDAO {
      * Busca productos por nombre o código
      */
     public List<Producto> buscar(String termino) {
+        return buscar(termino, Integer.MAX_VALUE, null);
+    }
+    
+    /**
+     * Busca productos por nombre o código, devolviendo como máximo 'limite' resultados.
+     * Cada palabra del término se busca como prefijo en el índice de búsqueda y los
+     * resultados se ordenan por relevancia (coincidencias exactas primero).
+     * La consulta puede abortarse desde otro hilo mediante 'cancelacion' (opcional)
+     */
+    public List<Producto> buscar(String termino, int limite, ConsultaCancelable cancelacion) {
         List<Producto> productos = new ArrayList<>();
+        buscar(termino, limite, cancelacion, productos::add);
+        return productos;
+    }
+    
+    /**
+     * Igual que buscar(termino, limite, cancelacion), pero entrega los productos a 'destino'
+     * según se leen, sin esperar a que termine la consulta
+     * @return Número de productos entregados
+     */
+    public int buscar(String termino, int limite, ConsultaCancelable cancelacion, Consumer<Producto> destino) {
+        int total = 0;
+        
+        List<String> palabras = IndiceBusquedaDAO.tokenizar(termino);
+        if (palabras.isEmpty()) {
+            return total;
+        }
+        
+        indiceBusquedaDAO.asegurarIndice(EntidadIndexada.PRODUCTO);
+        
+        String sql = SQL_SEARCH_PREFIX + indiceBusquedaDAO.subconsultaRanking(palabras) +
+                SQL_SEARCH_SUFFIX;
         
         try (Connection conn = DatabaseConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(SQL_SEARCH)) {
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            int indice = indiceBusquedaDAO.setParametrosRanking(stmt, 1, EntidadIndexada.PRODUCTO, palabras);
+            stmt.setInt(indice, limite);
             
-            String terminoBusqueda = "%" + termino + "%";
-            stmt.setString(1, terminoBusqueda);
-            stmt.setString(2, terminoBusqueda);
+            if (cancelacion != null) {
+                cancelacion.registrar(stmt);
+            }
             
             try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    productos.add(mapResultSetToProducto(rs));
+                while (rs.next() && (cancelacion == null || !cancelacion.isCancelada())) {
+                    destino.accept(mapResultSetToProducto(rs));
+                    total++;
+                }
+            } finally {
+                if (cancelacion != null) {
+                    cancelacion.liberar();
                 }
             }
             
-            logger.info("Búsqueda '{}' encontró {} productos", termino, productos.size());
+            logger.info("Búsqueda '{}' encontró {} productos", termino, total);
             
         } catch (SQLException e) {
-            logger.error("Error al buscar productos", e);
+            if (ConsultaCancelable.esCancelacion(e)) {
+                logger.debug("Búsqueda de productos '{}' cancelada", termino);
+            } else {
+                logger.error("Error al buscar productos", e);
+            }
         }
         
-        return productos;
+        return total;
     }
     
     /**
@@ -204,6 +335,7 @@ public class ProductoDAO {
             
             stmt.setInt(1, id);
             int filasAfectadas = stmt.executeUpdate();
+            cache.invalidar(id);
             
             if (filasAfectadas > 0) {
                 logger.info("Producto eliminado: {}", id);
@@ -298,4 +430,11 @@ public class ProductoDAO {
         
         return producto;
     }
-}
\ No newline at end of file
+    
+    /**
+     * Caché de productos por ID (para consultar sus estadísticas)
+     */
+    public static CacheLRU<Integer, Producto> getCache() {
+        return cache;
+    }
+}
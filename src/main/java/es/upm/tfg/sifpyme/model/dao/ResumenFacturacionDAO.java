@@ -0,0 +1,460 @@
+package es.upm.tfg.sifpyme.model.dao;
+
+import es.upm.tfg.sifpyme.model.entity.DesgloseIva;
+import es.upm.tfg.sifpyme.model.entity.ResumenFacturacion;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.h2.api.ErrorCode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * DAO de los totales precalculados de facturación (tablas Resumen_facturacion y Resumen_iva)
+ * FacturaDAO aplica a estas tablas, en la misma transacción, la diferencia que supone
+ * cada alta, modificación o baja de facturas, de modo que los informes leen una fila por
+ * empresa, mes y dimensión en lugar de recorrer todas las facturas y líneas.
+ */
+public class ResumenFacturacionDAO {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenFacturacionDAO.class);
+
+    // Reintentos si otra transacción crea a la vez la misma fila de resumen
+    private static final int MAX_INTENTOS = 3;
+
+    private static final String PERIODO_FECHA = "YEAR(f.fecha_emision) * 100 + MONTH(f.fecha_emision)";
+
+    // %1$d = signo (1 al sumar, -1 al restar), %2$s = marcadores de la lista de IDs
+    private static final String SQL_MERGE_FACTURAS =
+        "MERGE INTO Resumen_facturacion r USING (" +
+        "SELECT f.id_empresa, " + PERIODO_FECHA + " AS periodo, f.id_cliente, f.metodo_pago, " +
+        "COUNT(*) * %1$d AS num_facturas, SUM(f.subtotal) * %1$d AS subtotal, " +
+        "SUM(f.total_iva) * %1$d AS total_iva, SUM(COALESCE(f.total_retencion, 0)) * %1$d AS total_retencion, " +
+        "SUM(f.total) * %1$d AS total " +
+        "FROM Factura f WHERE f.id_factura IN (%2$s) " +
+        "GROUP BY f.id_empresa, periodo, f.id_cliente, f.metodo_pago) d " +
+        "ON (r.id_empresa = d.id_empresa AND r.periodo = d.periodo AND r.id_cliente = d.id_cliente " +
+        "AND r.metodo_pago = d.metodo_pago) " +
+        "WHEN MATCHED THEN UPDATE SET num_facturas = r.num_facturas + d.num_facturas, " +
+        "subtotal = r.subtotal + d.subtotal, total_iva = r.total_iva + d.total_iva, " +
+        "total_retencion = r.total_retencion + d.total_retencion, total = r.total + d.total " +
+        "WHEN NOT MATCHED THEN INSERT (id_empresa, periodo, id_cliente, metodo_pago, num_facturas, " +
+        "subtotal, total_iva, total_retencion, total) VALUES (d.id_empresa, d.periodo, d.id_cliente, " +
+        "d.metodo_pago, d.num_facturas, d.subtotal, d.total_iva, d.total_retencion, d.total)";
+
+    private static final String RETENCION_LINEA = "COALESCE(l.porcentaje_retencion, 0)";
+
+    private static final String SQL_MERGE_IVA =
+        "MERGE INTO Resumen_iva r USING (" +
+        "SELECT f.id_empresa, " + PERIODO_FECHA + " AS periodo, f.id_cliente, l.porcentaje_iva, " +
+        RETENCION_LINEA + " AS porcentaje_retencion, COUNT(DISTINCT f.id_factura) * %1$d AS num_facturas, " +
+        "COUNT(*) * %1$d AS num_lineas, SUM(l.subtotal_linea) * %1$d AS base_imponible, " +
+        "SUM(l.importe_iva) * %1$d AS cuota_iva, " +
+        "SUM(COALESCE(l.importe_retencion, 0)) * %1$d AS importe_retencion, SUM(l.total_linea) * %1$d AS total " +
+        "FROM Factura f JOIN Linea_factura l ON l.id_factura = f.id_factura " +
+        "WHERE f.id_factura IN (%2$s) " +
+        "GROUP BY f.id_empresa, periodo, f.id_cliente, l.porcentaje_iva, " + RETENCION_LINEA + ") d " +
+        "ON (r.id_empresa = d.id_empresa AND r.periodo = d.periodo AND r.id_cliente = d.id_cliente " +
+        "AND r.porcentaje_iva = d.porcentaje_iva AND r.porcentaje_retencion = d.porcentaje_retencion) " +
+        "WHEN MATCHED THEN UPDATE SET num_facturas = r.num_facturas + d.num_facturas, " +
+        "num_lineas = r.num_lineas + d.num_lineas, " +
+        "base_imponible = r.base_imponible + d.base_imponible, cuota_iva = r.cuota_iva + d.cuota_iva, " +
+        "importe_retencion = r.importe_retencion + d.importe_retencion, total = r.total + d.total " +
+        "WHEN NOT MATCHED THEN INSERT (id_empresa, periodo, id_cliente, porcentaje_iva, porcentaje_retencion, " +
+        "num_facturas, num_lineas, base_imponible, cuota_iva, importe_retencion, total) VALUES (d.id_empresa, " +
+        "d.periodo, d.id_cliente, d.porcentaje_iva, d.porcentaje_retencion, d.num_facturas, d.num_lineas, " +
+        "d.base_imponible, d.cuota_iva, d.importe_retencion, d.total)";
+
+    // Empresa, mes y cliente de las facturas dadas: prefijo de la clave de ambos resúmenes
+    private static final String SQL_CLAVES =
+        "SELECT DISTINCT f.id_empresa, " + PERIODO_FECHA + " AS periodo, f.id_cliente " +
+        "FROM Factura f WHERE f.id_factura IN (%s)";
+
+    // Las filas que se quedan a cero tras restar no aportan nada a los informes
+    private static final String SQL_DELETE_VACIAS_FACTURAS =
+        "DELETE FROM Resumen_facturacion WHERE id_empresa = ? AND periodo = ? AND id_cliente = ? " +
+        "AND num_facturas = 0";
+
+    private static final String SQL_DELETE_VACIAS_IVA =
+        "DELETE FROM Resumen_iva WHERE id_empresa = ? AND periodo = ? AND id_cliente = ? " +
+        "AND num_lineas = 0";
+
+    private static final String SQL_RECONSTRUIR_FACTURAS =
+        "INSERT INTO Resumen_facturacion (id_empresa, periodo, id_cliente, metodo_pago, num_facturas, " +
+        "subtotal, total_iva, total_retencion, total) " +
+        "SELECT f.id_empresa, " + PERIODO_FECHA + " AS periodo, f.id_cliente, f.metodo_pago, COUNT(*), " +
+        "SUM(f.subtotal), SUM(f.total_iva), SUM(COALESCE(f.total_retencion, 0)), SUM(f.total) " +
+        "FROM Factura f GROUP BY f.id_empresa, periodo, f.id_cliente, f.metodo_pago";
+
+    private static final String SQL_RECONSTRUIR_IVA =
+        "INSERT INTO Resumen_iva (id_empresa, periodo, id_cliente, porcentaje_iva, porcentaje_retencion, " +
+        "num_facturas, num_lineas, base_imponible, cuota_iva, importe_retencion, total) " +
+        "SELECT f.id_empresa, " + PERIODO_FECHA + " AS periodo, f.id_cliente, l.porcentaje_iva, " +
+        RETENCION_LINEA + ", COUNT(DISTINCT f.id_factura), COUNT(*), SUM(l.subtotal_linea), SUM(l.importe_iva), " +
+        "SUM(COALESCE(l.importe_retencion, 0)), SUM(l.total_linea) " +
+        "FROM Factura f JOIN Linea_factura l ON l.id_factura = f.id_factura " +
+        "GROUP BY f.id_empresa, periodo, f.id_cliente, l.porcentaje_iva, " + RETENCION_LINEA;
+
+    // El resumen está al día si cuenta las mismas facturas y líneas que las tablas de origen
+    private static final String SQL_COMPROBAR =
+        "SELECT (SELECT COALESCE(SUM(num_facturas), 0) FROM Resumen_facturacion) = " +
+        "(SELECT COUNT(*) FROM Factura) AND " +
+        "(SELECT COALESCE(SUM(num_lineas), 0) FROM Resumen_iva) = (SELECT COUNT(*) FROM Linea_factura)";
+
+    private static final String SQL_TOTALES =
+        "COALESCE(SUM(r.num_facturas), 0) AS num_facturas, COALESCE(SUM(r.subtotal), 0) AS base_imponible, " +
+        "COALESCE(SUM(r.total_iva), 0) AS cuota_iva, COALESCE(SUM(r.total_retencion), 0) AS importe_retencion, " +
+        "COALESCE(SUM(r.total), 0) AS total ";
+
+    private static final String SQL_TOTALES_IVA =
+        "SUM(r.num_lineas) AS num_lineas, SUM(r.base_imponible) AS base_imponible, " +
+        "SUM(r.cuota_iva) AS cuota_iva, SUM(r.importe_retencion) AS importe_retencion, SUM(r.total) AS total ";
+
+    private static final String SQL_POR_MES =
+        "SELECT r.periodo, " + SQL_TOTALES + "FROM Resumen_facturacion r WHERE %s " +
+        "GROUP BY r.periodo ORDER BY r.periodo";
+
+    private static final String SQL_POR_CLIENTE =
+        "SELECT r.id_cliente, c.nombre_fiscal, " + SQL_TOTALES + "FROM Resumen_facturacion r " +
+        "LEFT JOIN Cliente c ON c.id_cliente = r.id_cliente WHERE %s " +
+        "GROUP BY r.id_cliente, c.nombre_fiscal ORDER BY total DESC LIMIT ?";
+
+    private static final String SQL_POR_METODO_PAGO =
+        "SELECT r.metodo_pago, " + SQL_TOTALES + "FROM Resumen_facturacion r WHERE %s " +
+        "GROUP BY r.metodo_pago ORDER BY total DESC";
+
+    private static final String SQL_POR_IVA =
+        "SELECT r.porcentaje_iva, " + SQL_TOTALES_IVA + "FROM Resumen_iva r WHERE %s " +
+        "GROUP BY r.porcentaje_iva ORDER BY r.porcentaje_iva";
+
+    private static final String SQL_TOTAL_PERIODO =
+        "SELECT " + SQL_TOTALES + "FROM Resumen_facturacion r WHERE %s";
+
+    // Los periodos son AAAAMM: el trimestre sale del mes
+    private static final String SQL_DESGLOSE_IVA =
+        "SELECT (MOD(r.periodo, 100) - 1) / 3 + 1 AS trimestre, r.porcentaje_iva, r.porcentaje_retencion, " +
+        "SUM(r.num_facturas) AS num_facturas, " + SQL_TOTALES_IVA + "FROM Resumen_iva r WHERE %s " +
+        "GROUP BY trimestre, r.porcentaje_iva, r.porcentaje_retencion " +
+        "ORDER BY trimestre, r.porcentaje_iva DESC, r.porcentaje_retencion";
+
+    // Se comprueba una vez por proceso que el resumen cuadra con las facturas
+    private static volatile boolean verificado;
+
+    /**
+     * Lee una dimensión de la fila actual de la consulta
+     */
+    @FunctionalInterface
+    private interface Dimension {
+        void leer(ResultSet rs, ResumenFacturacion resumen) throws SQLException;
+    }
+
+    /**
+     * Suma (signo 1) o resta (signo -1) a los resúmenes las facturas dadas tal y como están
+     * guardadas en este momento en la conexión. Se llama dentro de la transacción que las
+     * modifica: restando antes de cambiarlas o borrarlas y sumando después de guardarlas.
+     * Las facturas se aplican en bloques de ConsultasIN.TAMANO_LOTE.
+     */
+    public void aplicar(Connection conn, Collection<String> idsFacturas, int signo) throws SQLException {
+        if (idsFacturas == null || idsFacturas.isEmpty()) {
+            return;
+        }
+        if (signo != 1 && signo != -1) {
+            throw new IllegalArgumentException("El signo debe ser 1 o -1");
+        }
+
+        for (List<String> lote : ConsultasIN.lotes(idsFacturas)) {
+            aplicarLote(conn, lote, signo);
+        }
+    }
+
+    private void aplicarLote(Connection conn, List<String> idsFacturas, int signo) throws SQLException {
+        String marcadores = ConsultasIN.marcadores(idsFacturas.size());
+
+        // Al restar, las filas que pueden quedarse a cero se localizan antes de modificar nada
+        List<int[]> claves = signo < 0 ? consultarClaves(conn, marcadores, idsFacturas) : List.of();
+
+        ejecutarMerge(conn, String.format(SQL_MERGE_FACTURAS, signo, marcadores), idsFacturas);
+        ejecutarMerge(conn, String.format(SQL_MERGE_IVA, signo, marcadores), idsFacturas);
+
+        if (!claves.isEmpty()) {
+            borrarVacias(conn, SQL_DELETE_VACIAS_FACTURAS, claves);
+            borrarVacias(conn, SQL_DELETE_VACIAS_IVA, claves);
+        }
+    }
+
+    private List<int[]> consultarClaves(Connection conn, String marcadores, Collection<String> ids)
+            throws SQLException {
+        List<int[]> claves = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(String.format(SQL_CLAVES, marcadores))) {
+            setIds(stmt, ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    claves.add(new int[] { rs.getInt(1), rs.getInt(2), rs.getInt(3) });
+                }
+            }
+        }
+
+        return claves;
+    }
+
+    private void borrarVacias(Connection conn, String sql, List<int[]> claves) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int[] clave : claves) {
+                stmt.setInt(1, clave[0]);
+                stmt.setInt(2, clave[1]);
+                stmt.setInt(3, clave[2]);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void ejecutarMerge(Connection conn, String sql, Collection<String> ids) throws SQLException {
+        for (int intento = 1; ; intento++) {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                setIds(stmt, ids);
+                stmt.executeUpdate();
+                return;
+
+            } catch (SQLException e) {
+                // Solo falla la sentencia: se puede repetir sin deshacer la transacción
+                if (e.getErrorCode() != ErrorCode.DUPLICATE_KEY_1 || intento >= MAX_INTENTOS) {
+                    throw e;
+                }
+                logger.debug("Fila de resumen creada por otra transacción, reintentando ({})", intento);
+            }
+        }
+    }
+
+    private static void setIds(PreparedStatement stmt, Collection<String> ids) throws SQLException {
+        int indice = 1;
+        for (String id : ids) {
+            stmt.setString(indice++, id);
+        }
+    }
+
+    /**
+     * Comprueba, la primera vez que se usa en el proceso, que los resúmenes cuadran con
+     * las facturas guardadas y los reconstruye si no (base de datos anterior a los resúmenes
+     * o facturas cargadas sin pasar por FacturaDAO)
+     */
+    public void asegurarResumen() {
+        if (verificado) {
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            boolean alDia;
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(SQL_COMPROBAR)) {
+                alDia = rs.next() && rs.getBoolean(1);
+            }
+
+            if (!alDia) {
+                reconstruir(conn);
+            }
+            verificado = true;
+
+        } catch (SQLException e) {
+            logger.error("Error al verificar los resúmenes de facturación", e);
+        }
+    }
+
+    /**
+     * Recalcula por completo los resúmenes a partir de las facturas y sus líneas
+     */
+    public void reconstruir(Connection conn) throws SQLException {
+        long inicio = System.currentTimeMillis();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        int filas;
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM Resumen_facturacion");
+            stmt.executeUpdate("DELETE FROM Resumen_iva");
+            filas = stmt.executeUpdate(SQL_RECONSTRUIR_FACTURAS);
+            filas += stmt.executeUpdate(SQL_RECONSTRUIR_IVA);
+            conn.commit();
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        logger.info("Resúmenes de facturación reconstruidos: {} filas en {} ms",
+                filas, System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Totales por mes, en orden cronológico
+     *
+     * @param idEmpresa Empresa emisora (null = todas)
+     * @param desde Primer mes incluido (null = sin límite)
+     * @param hasta Último mes incluido (null = sin límite)
+     */
+    public List<ResumenFacturacion> obtenerPorMes(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        return consultar(SQL_POR_MES, idEmpresa, desde, hasta, null, false,
+                (rs, resumen) -> resumen.setPeriodo(aPeriodo(rs.getInt("periodo"))));
+    }
+
+    /**
+     * Clientes con mayor facturación en el periodo, de mayor a menor total
+     */
+    public List<ResumenFacturacion> obtenerPorCliente(Integer idEmpresa, YearMonth desde, YearMonth hasta,
+                                                      int limite) {
+        return consultar(SQL_POR_CLIENTE, idEmpresa, desde, hasta, limite, false, (rs, resumen) -> {
+            resumen.setIdCliente(rs.getInt("id_cliente"));
+            resumen.setNombreCliente(rs.getString("nombre_fiscal"));
+        });
+    }
+
+    /**
+     * Totales por método de pago en el periodo
+     */
+    public List<ResumenFacturacion> obtenerPorMetodoPago(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        return consultar(SQL_POR_METODO_PAGO, idEmpresa, desde, hasta, null, false,
+                (rs, resumen) -> resumen.setMetodoPago(rs.getString("metodo_pago")));
+    }
+
+    /**
+     * Bases, cuotas y retenciones por tipo de IVA en el periodo (número de líneas, no de facturas)
+     */
+    public List<ResumenFacturacion> obtenerPorIva(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        return consultar(SQL_POR_IVA, idEmpresa, desde, hasta, null, true,
+                (rs, resumen) -> resumen.setPorcentajeIva(rs.getBigDecimal("porcentaje_iva")));
+    }
+
+    /**
+     * Desglose de bases, cuotas y retenciones por trimestre, tipo de IVA y tipo de retención
+     * para los informes de IVA (modelos 303 y 390). Los meses deben ser de un mismo año.
+     *
+     * @throws SQLException si falla la consulta
+     */
+    public List<DesgloseIva> obtenerDesgloseIva(Integer idEmpresa, YearMonth desde, YearMonth hasta)
+            throws SQLException {
+        asegurarResumen();
+        List<DesgloseIva> desglose = new ArrayList<>();
+
+        String sql = String.format(SQL_DESGLOSE_IVA, condicionPeriodo(idEmpresa, desde, hasta));
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            setParametrosPeriodo(stmt, idEmpresa, desde, hasta);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    DesgloseIva fila = new DesgloseIva();
+                    fila.setTrimestre(rs.getInt("trimestre"));
+                    fila.setPorcentajeIva(rs.getBigDecimal("porcentaje_iva"));
+                    fila.setPorcentajeRetencion(rs.getBigDecimal("porcentaje_retencion"));
+                    fila.setNumFacturas(rs.getLong("num_facturas"));
+                    fila.setNumLineas(rs.getLong("num_lineas"));
+                    fila.setBaseImponible(rs.getBigDecimal("base_imponible"));
+                    fila.setCuotaIva(rs.getBigDecimal("cuota_iva"));
+                    fila.setImporteRetencion(rs.getBigDecimal("importe_retencion"));
+                    desglose.add(fila);
+                }
+            }
+        }
+
+        return desglose;
+    }
+
+    /**
+     * Totales del periodo completo (una sola fila, a cero si no hay facturas)
+     */
+    public ResumenFacturacion obtenerTotal(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        List<ResumenFacturacion> filas = consultar(SQL_TOTAL_PERIODO, idEmpresa, desde, hasta, null, false,
+                (rs, resumen) -> { });
+        return filas.isEmpty() ? new ResumenFacturacion() : filas.get(0);
+    }
+
+    /**
+     * Ejecuta una consulta de totales agrupados. Con 'porLineas' el recuento es de líneas
+     * (Resumen_iva) en lugar de facturas.
+     */
+    private List<ResumenFacturacion> consultar(String plantilla, Integer idEmpresa, YearMonth desde,
+                                               YearMonth hasta, Integer limite, boolean porLineas,
+                                               Dimension dimension) {
+        asegurarResumen();
+        List<ResumenFacturacion> resultado = new ArrayList<>();
+
+        String sql = String.format(plantilla, condicionPeriodo(idEmpresa, desde, hasta));
+
+        try (Connection conn = DatabaseConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            int indice = setParametrosPeriodo(stmt, idEmpresa, desde, hasta);
+            if (limite != null) {
+                stmt.setInt(indice, limite);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ResumenFacturacion resumen = new ResumenFacturacion();
+                    dimension.leer(rs, resumen);
+                    if (porLineas) {
+                        resumen.setNumLineas(rs.getLong("num_lineas"));
+                    } else {
+                        resumen.setNumFacturas(rs.getLong("num_facturas"));
+                    }
+                    resumen.setBaseImponible(rs.getBigDecimal("base_imponible"));
+                    resumen.setCuotaIva(rs.getBigDecimal("cuota_iva"));
+                    resumen.setRetencion(rs.getBigDecimal("importe_retencion"));
+                    resumen.setTotal(rs.getBigDecimal("total"));
+                    resultado.add(resumen);
+                }
+            }
+
+        } catch (SQLException e) {
+            logger.error("Error al consultar los resúmenes de facturación", e);
+        }
+
+        return resultado;
+    }
+
+    private static String condicionPeriodo(Integer idEmpresa, YearMonth desde, YearMonth hasta) {
+        List<String> condiciones = new ArrayList<>();
+        if (idEmpresa != null) {
+            condiciones.add("r.id_empresa = ?");
+        }
+        if (desde != null) {
+            condiciones.add("r.periodo >= ?");
+        }
+        if (hasta != null) {
+            condiciones.add("r.periodo <= ?");
+        }
+        return condiciones.isEmpty() ? "1 = 1" : String.join(" AND ", condiciones);
+    }
+
+    private static int setParametrosPeriodo(PreparedStatement stmt, Integer idEmpresa, YearMonth desde,
+                                            YearMonth hasta) throws SQLException {
+        int indice = 1;
+        if (idEmpresa != null) {
+            stmt.setInt(indice++, idEmpresa);
+        }
+        if (desde != null) {
+            stmt.setInt(indice++, aEntero(desde));
+        }
+        if (hasta != null) {
+            stmt.setInt(indice++, aEntero(hasta));
+        }
+        return indice;
+    }
+
+    private static int aEntero(YearMonth mes) {
+        return mes.getYear() * 100 + mes.getMonthValue();
+    }
+
+    private static YearMonth aPeriodo(int periodo) {
+        return YearMonth.of(periodo / 100, periodo % 100);
+    }
+}
@@ -33,6 +33,13 @@ public class Cliente {
         this.nif = nif;
     }
     
+    /**
+     * Constructor de copia
+     */
+    public Cliente(Cliente otro) {
+        this(otro.idCliente, otro.nombreFiscal, otro.nif, otro.direccion, otro.telefono, otro.email);
+    }
+    
     // Getters y Setters
     public Integer getIdCliente() {
         return idCliente;
@@ -0,0 +1,99 @@
+package es.upm.tfg.sifpyme.model.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Totales de las líneas de factura de un trimestre con el mismo tipo de IVA y de retención
+ * Es la unidad de los informes de IVA (modelos 303 y 390)
+ */
+public class DesgloseIva {
+
+    private int trimestre;
+    private BigDecimal porcentajeIva = BigDecimal.ZERO;
+    private BigDecimal porcentajeRetencion = BigDecimal.ZERO;
+    private long numFacturas;
+    private long numLineas;
+    private BigDecimal baseImponible = BigDecimal.ZERO;
+    private BigDecimal cuotaIva = BigDecimal.ZERO;
+    private BigDecimal importeRetencion = BigDecimal.ZERO;
+
+    public DesgloseIva() {
+    }
+
+    // Getters y Setters
+    public int getTrimestre() {
+        return trimestre;
+    }
+
+    public void setTrimestre(int trimestre) {
+        this.trimestre = trimestre;
+    }
+
+    public BigDecimal getPorcentajeIva() {
+        return porcentajeIva;
+    }
+
+    public void setPorcentajeIva(BigDecimal porcentajeIva) {
+        this.porcentajeIva = porcentajeIva;
+    }
+
+    public BigDecimal getPorcentajeRetencion() {
+        return porcentajeRetencion;
+    }
+
+    public void setPorcentajeRetencion(BigDecimal porcentajeRetencion) {
+        this.porcentajeRetencion = porcentajeRetencion;
+    }
+
+    public long getNumFacturas() {
+        return numFacturas;
+    }
+
+    public void setNumFacturas(long numFacturas) {
+        this.numFacturas = numFacturas;
+    }
+
+    public long getNumLineas() {
+        return numLineas;
+    }
+
+    public void setNumLineas(long numLineas) {
+        this.numLineas = numLineas;
+    }
+
+    public BigDecimal getBaseImponible() {
+        return baseImponible;
+    }
+
+    public void setBaseImponible(BigDecimal baseImponible) {
+        this.baseImponible = baseImponible;
+    }
+
+    public BigDecimal getCuotaIva() {
+        return cuotaIva;
+    }
+
+    public void setCuotaIva(BigDecimal cuotaIva) {
+        this.cuotaIva = cuotaIva;
+    }
+
+    public BigDecimal getImporteRetencion() {
+        return importeRetencion;
+    }
+
+    public void setImporteRetencion(BigDecimal importeRetencion) {
+        this.importeRetencion = importeRetencion;
+    }
+
+    /**
+     * Base más cuota de IVA menos retención
+     */
+    public BigDecimal getTotal() {
+        return baseImponible.add(cuotaIva).subtract(importeRetencion);
+    }
+
+    @Override
+    public String toString() {
+        return trimestre + "T - IVA " + porcentajeIva + "% / ret. " + porcentajeRetencion + "%: " + baseImponible;
+    }
+}
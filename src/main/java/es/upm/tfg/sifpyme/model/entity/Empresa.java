@@ -29,6 +29,20 @@ public class Empresa {
         this.direccion = direccion;
     }
 
+    /**
+     * Constructor de copia
+     */
+    public Empresa(Empresa otra) {
+        this.idEmpresa = otra.idEmpresa;
+        this.razonSocial = otra.razonSocial;
+        this.nif = otra.nif;
+        this.direccion = otra.direccion;
+        this.telefono = otra.telefono;
+        this.email = otra.email;
+        this.tipoRetencionIrpf = otra.tipoRetencionIrpf;
+        this.porDefecto = otra.porDefecto;
+    }
+
     // Getters y Setters
     public Integer getIdEmpresa() {
         return idEmpresa;
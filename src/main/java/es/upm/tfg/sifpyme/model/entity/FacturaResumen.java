@@ -0,0 +1,107 @@
+package es.upm.tfg.sifpyme.model.entity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Proyección ligera de una factura para los listados
+ * Solo contiene los datos de cabecera y los nombres de cliente y empresa, sin líneas
+ */
+public class FacturaResumen {
+
+    private String idFactura;
+    private LocalDate fechaEmision;
+    private String nombreCliente;
+    private String nombreEmpresa;
+    private BigDecimal subtotal;
+    private BigDecimal totalIva;
+    private BigDecimal total;
+    private String metodoPago;
+
+    public FacturaResumen() {
+    }
+
+    // Getters y Setters
+    public String getIdFactura() {
+        return idFactura;
+    }
+
+    public void setIdFactura(String idFactura) {
+        this.idFactura = idFactura;
+    }
+
+    public LocalDate getFechaEmision() {
+        return fechaEmision;
+    }
+
+    public void setFechaEmision(LocalDate fechaEmision) {
+        this.fechaEmision = fechaEmision;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public void setNombreCliente(String nombreCliente) {
+        this.nombreCliente = nombreCliente;
+    }
+
+    public String getNombreEmpresa() {
+        return nombreEmpresa;
+    }
+
+    public void setNombreEmpresa(String nombreEmpresa) {
+        this.nombreEmpresa = nombreEmpresa;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+
+    public BigDecimal getTotalIva() {
+        return totalIva;
+    }
+
+    public void setTotalIva(BigDecimal totalIva) {
+        this.totalIva = totalIva;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public String getMetodoPago() {
+        return metodoPago;
+    }
+
+    public void setMetodoPago(String metodoPago) {
+        this.metodoPago = metodoPago;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        FacturaResumen that = (FacturaResumen) o;
+        return Objects.equals(idFactura, that.idFactura);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idFactura);
+    }
+
+    @Override
+    public String toString() {
+        return idFactura + " - " + fechaEmision;
+    }
+}
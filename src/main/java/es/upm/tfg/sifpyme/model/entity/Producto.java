@@ -41,6 +41,19 @@ public class Producto {
         this.tipoRetencion = BigDecimal.ZERO;
     }
     
+    /**
+     * Constructor de copia
+     */
+    public Producto(Producto otro) {
+        this.idProducto = otro.idProducto;
+        this.tipoIva = otro.tipoIva;
+        this.codigo = otro.codigo;
+        this.nombre = otro.nombre;
+        this.precio = otro.precio;
+        this.precioBase = otro.precioBase;
+        this.tipoRetencion = otro.tipoRetencion;
+    }
+    
     // Getters y Setters
     public Integer getIdProducto() {
         return idProducto;
@@ -0,0 +1,124 @@
+package es.upm.tfg.sifpyme.model.entity;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+/**
+ * Fila de un informe de facturación: totales acumulados de una agrupación
+ * (mes, cliente, método de pago o tipo de IVA). Los campos de las dimensiones
+ * que no forman parte de la agrupación quedan a null.
+ */
+public class ResumenFacturacion {
+
+    // Dimensiones
+    private YearMonth periodo;
+    private Integer idCliente;
+    private String nombreCliente;
+    private String metodoPago;
+    private BigDecimal porcentajeIva;
+
+    // Totales
+    private long numFacturas;
+    private long numLineas;
+    private BigDecimal baseImponible = BigDecimal.ZERO;
+    private BigDecimal cuotaIva = BigDecimal.ZERO;
+    private BigDecimal retencion = BigDecimal.ZERO;
+    private BigDecimal total = BigDecimal.ZERO;
+
+    public ResumenFacturacion() {
+    }
+
+    // Getters y Setters
+    public YearMonth getPeriodo() {
+        return periodo;
+    }
+
+    public void setPeriodo(YearMonth periodo) {
+        this.periodo = periodo;
+    }
+
+    public Integer getIdCliente() {
+        return idCliente;
+    }
+
+    public void setIdCliente(Integer idCliente) {
+        this.idCliente = idCliente;
+    }
+
+    public String getNombreCliente() {
+        return nombreCliente;
+    }
+
+    public void setNombreCliente(String nombreCliente) {
+        this.nombreCliente = nombreCliente;
+    }
+
+    public String getMetodoPago() {
+        return metodoPago;
+    }
+
+    public void setMetodoPago(String metodoPago) {
+        this.metodoPago = metodoPago;
+    }
+
+    public BigDecimal getPorcentajeIva() {
+        return porcentajeIva;
+    }
+
+    public void setPorcentajeIva(BigDecimal porcentajeIva) {
+        this.porcentajeIva = porcentajeIva;
+    }
+
+    public long getNumFacturas() {
+        return numFacturas;
+    }
+
+    public void setNumFacturas(long numFacturas) {
+        this.numFacturas = numFacturas;
+    }
+
+    public long getNumLineas() {
+        return numLineas;
+    }
+
+    public void setNumLineas(long numLineas) {
+        this.numLineas = numLineas;
+    }
+
+    public BigDecimal getBaseImponible() {
+        return baseImponible;
+    }
+
+    public void setBaseImponible(BigDecimal baseImponible) {
+        this.baseImponible = baseImponible;
+    }
+
+    public BigDecimal getCuotaIva() {
+        return cuotaIva;
+    }
+
+    public void setCuotaIva(BigDecimal cuotaIva) {
+        this.cuotaIva = cuotaIva;
+    }
+
+    public BigDecimal getRetencion() {
+        return retencion;
+    }
+
+    public void setRetencion(BigDecimal retencion) {
+        this.retencion = retencion;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    @Override
+    public String toString() {
+        return numFacturas + " facturas - " + total;
+    }
+}
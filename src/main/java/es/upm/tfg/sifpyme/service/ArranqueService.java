@@ -0,0 +1,104 @@
+package es.upm.tfg.sifpyme.service;
+
+import es.upm.tfg.sifpyme.model.dao.ClienteDAO;
+import es.upm.tfg.sifpyme.model.dao.EmpresaDAO;
+import es.upm.tfg.sifpyme.model.dao.ProductoDAO;
+import es.upm.tfg.sifpyme.model.dao.ResumenFacturacionDAO;
+import es.upm.tfg.sifpyme.util.DatabaseConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Arranque de la aplicación en segundo plano, mientras se muestra la ventana principal.
+ *
+ * En paralelo se precalienta la generación de PDF y se inicializa la base de datos
+ * (pool de conexiones y esquema). En cuanto la base de datos está lista, también en
+ * paralelo, se precargan las cachés de empresas, clientes y productos y se verifican los
+ * resúmenes de facturación. Cada fase se cronometra y se registra en el log.
+ *
+ * Si una pantalla pide una conexión antes de que termine la inicialización, espera a
+ * que acabe (DatabaseConnection no inicializa dos veces); las precargas no bloquean a nadie.
+ */
+public final class ArranqueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArranqueService.class);
+
+    private static final int NUM_HILOS = 4;
+
+    private static CompletableFuture<Void> arranque;
+
+    private ArranqueService() {
+    }
+
+    /**
+     * Lanza el arranque en segundo plano (solo la primera vez que se llama)
+     * @return Futuro que se completa cuando han terminado todas las fases, o con la
+     *         excepción de la base de datos si no se pudo inicializar
+     */
+    public static synchronized CompletableFuture<Void> iniciar() {
+        if (arranque != null) {
+            return arranque;
+        }
+
+        long inicio = System.nanoTime();
+        AtomicInteger numHilo = new AtomicInteger();
+        ExecutorService hilos = Executors.newFixedThreadPool(NUM_HILOS, tarea -> {
+            Thread hilo = new Thread(tarea, "arranque-" + numHilo.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+
+        CompletableFuture<Void> pdf = CompletableFuture.runAsync(
+                () -> fase("generación de PDF", FuentesPDF::precalentar), hilos);
+
+        CompletableFuture<Void> baseDatos = CompletableFuture.runAsync(
+                () -> fase("base de datos", DatabaseConnection::inicializar), hilos);
+
+        CompletableFuture<Void> precargas = baseDatos.thenCompose(ignorado -> CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> precarga("caché de empresas",
+                        () -> new EmpresaDAO().precargarCache()), hilos),
+                CompletableFuture.runAsync(() -> precarga("caché de clientes",
+                        () -> new ClienteDAO().precargarCache()), hilos),
+                CompletableFuture.runAsync(() -> precarga("caché de productos",
+                        () -> new ProductoDAO().precargarCache()), hilos),
+                CompletableFuture.runAsync(() -> fase("resúmenes de facturación",
+                        () -> new ResumenFacturacionDAO().asegurarResumen()), hilos)));
+
+        arranque = CompletableFuture.allOf(pdf, precargas).whenComplete((ignorado, error) -> {
+            hilos.shutdown();
+            long ms = (System.nanoTime() - inicio) / 1_000_000;
+            if (error == null) {
+                logger.info("Arranque en segundo plano completado en {} ms", ms);
+            } else {
+                logger.error("Arranque en segundo plano fallido tras {} ms", ms, error);
+            }
+        });
+        return arranque;
+    }
+
+    /**
+     * Futuro del arranque, o null si no se ha lanzado
+     */
+    public static synchronized CompletableFuture<Void> getArranque() {
+        return arranque;
+    }
+
+    private static void fase(String nombre, Runnable tarea) {
+        long inicio = System.nanoTime();
+        tarea.run();
+        logger.info("Arranque: {} en {} ms", nombre, (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private static void precarga(String nombre, IntSupplier tarea) {
+        long inicio = System.nanoTime();
+        int cargados = tarea.getAsInt();
+        logger.info("Arranque: {} en {} ms ({} registros)", nombre, (System.nanoTime() - inicio) / 1_000_000,
+                cargados);
+    }
+}
@@ -1,24 +1,34 @@
 package es.upm.tfg.sifpyme.service;
 
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
 import es.upm.tfg.sifpyme.model.entity.Cliente;
 import es.upm.tfg.sifpyme.model.entity.Empresa;
 import es.upm.tfg.sifpyme.model.entity.Factura;
 import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.function.LongConsumer;
 
 /**
  * Servicio para generar archivos Excel de facturas
@@ -28,6 +38,23 @@ public class FacturaExcelService {
     private static final Logger logger = LoggerFactory.getLogger(FacturaExcelService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
 
+    // Filas que el libro de facturas mantiene en memoria por hoja; el resto se vuelca a disco
+    public static final int VENTANA_FILAS = 100;
+    private static final int AVISO_PROGRESO = 10_000;
+    private static final int MAX_FILAS_HOJA = SpreadsheetVersion.EXCEL2007.getMaxRows();
+
+    private static final String[] COLUMNAS_LIBRO_FACTURAS = {
+        "Fecha", "Nº Factura", "Empresa", "Cliente", "NIF Cliente", "Método de Pago",
+        "Base Imponible", "IVA", "Retención", "Total"
+    };
+
+    private static final String[] COLUMNAS_LIBRO_LINEAS = {
+        "Fecha", "Nº Factura", "Línea", "Producto", "Cantidad", "Precio Unitario", "Descuento %",
+        "Base Imponible", "IVA %", "IVA", "Retención %", "Retención", "Total"
+    };
+
+    private final FacturaDAO facturaDAO = new FacturaDAO();
+
     /**
      * Genera un archivo Excel de factura y lo guarda en el directorio especificado
      */
@@ -38,9 +65,21 @@ public class FacturaExcelService {
             Files.createDirectories(directorio);
         }
 
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(rutaDestino))) {
+            generarExcel(factura, fos);
+
+            logger.info("Excel generado exitosamente en: {}", rutaDestino);
+            return rutaDestino;
+        }
+    }
+
+    /**
+     * Genera el Excel de una factura en el stream indicado (no lo cierra)
+     */
+    public void generarExcel(Factura factura, OutputStream salida) throws IOException {
         Workbook workbook = new XSSFWorkbook();
 
-        try (FileOutputStream fos = new FileOutputStream(rutaDestino)) {
+        try {
             Sheet sheet = workbook.createSheet("Factura");
 
             // Configurar ancho de columnas
@@ -72,15 +111,27 @@ public class FacturaExcelService {
             filaActual = agregarResumenFinal(sheet, factura, estiloHeader, estiloMoneda, estiloTotal, filaActual);
             agregarPiePagina(sheet, estiloNormal, filaActual);
 
-            workbook.write(fos);
-            logger.info("Excel generado exitosamente en: {}", rutaDestino);
-            return rutaDestino;
+            workbook.write(salida);
 
         } finally {
             workbook.close();
         }
     }
 
+    /**
+     * Genera el Excel de una factura en un canal (fichero, socket...) sin cerrarlo
+     */
+    public void generarExcel(Factura factura, WritableByteChannel canal) throws IOException {
+        SalidaExportacion.aCanal(canal, salida -> generarExcel(factura, salida));
+    }
+
+    /**
+     * Genera el Excel de una factura en memoria, sin ficheros temporales
+     */
+    public byte[] generarExcelBytes(Factura factura) throws IOException {
+        return SalidaExportacion.aBytes(salida -> generarExcel(factura, salida));
+    }
+
     private int agregarEncabezado(Sheet sheet, Factura factura, CellStyle estiloTitulo,
             CellStyle estiloSubtitulo, int filaActual) {
         Row row1 = sheet.createRow(filaActual++);
@@ -439,6 +490,192 @@ public class FacturaExcelService {
         sheet.addMergedRegion(new CellRangeAddress(filaActual, filaActual, 0, 4));
     }
 
+    /**
+     * Genera el libro de facturas de un periodo y/o empresa en un único Excel con dos hojas:
+     * una fila por factura ("Facturas") y una fila por línea ("Líneas").
+     * Usa SXSSFWorkbook, que solo mantiene en memoria las últimas VENTANA_FILAS filas de
+     * cada hoja y vuelca el resto a disco, y lee las líneas en streaming desde la base de
+     * datos, así que el consumo de memoria no depende del número de facturas. Si una hoja
+     * llega al máximo de filas de Excel se continúa en otra ("Líneas (2)", ...).
+     *
+     * @param progreso Recibe el número de líneas escritas cada AVISO_PROGRESO líneas y al final (puede ser null)
+     * @return Número de líneas escritas
+     * @throws SQLException si falla la lectura de las facturas
+     * @throws CancellationException si se interrumpe el hilo durante la generación
+     */
+    public long generarLibroExcel(LocalDate desde, LocalDate hasta, Integer idEmpresa, String rutaDestino,
+                                  LongConsumer progreso) throws IOException, SQLException {
+        Path directorio = Paths.get(rutaDestino).toAbsolutePath().getParent();
+        if (directorio != null && !Files.exists(directorio)) {
+            Files.createDirectories(directorio);
+        }
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(VENTANA_FILAS);
+        workbook.setCompressTempFiles(true);
+
+        try (FileOutputStream fos = new FileOutputStream(rutaDestino)) {
+            LibroExcel libro = new LibroExcel(workbook);
+
+            facturaDAO.recorrerLineas(desde, hasta, idEmpresa, (factura, linea) -> {
+                libro.agregarLinea(factura, linea);
+
+                if (libro.lineas % AVISO_PROGRESO == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new CancellationException("Generación del libro de facturas cancelada");
+                    }
+                    if (progreso != null) {
+                        progreso.accept(libro.lineas);
+                    }
+                }
+            });
+
+            if (progreso != null) {
+                progreso.accept(libro.lineas);
+            }
+
+            workbook.write(fos);
+            logger.info("Libro de facturas generado en {}: {} facturas, {} líneas",
+                    rutaDestino, libro.facturas, libro.lineas);
+            return libro.lineas;
+
+        } catch (IOException | SQLException | RuntimeException e) {
+            // No dejar un Excel a medias
+            Files.deleteIfExists(Paths.get(rutaDestino));
+            throw e;
+
+        } finally {
+            // Borra los ficheros temporales de las filas volcadas a disco
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    /**
+     * Estado de escritura del libro de facturas. Los estilos se crean una sola vez por libro.
+     */
+    private class LibroExcel {
+        private final Workbook workbook;
+        private final CellStyle estiloHeader;
+        private final CellStyle estiloNormal;
+        private final CellStyle estiloMoneda;
+        private final CellStyle estiloFecha;
+
+        private Sheet hojaFacturas;
+        private Sheet hojaLineas;
+        private int filaFacturas;
+        private int filaLineas;
+        private int numHojaFacturas = 1;
+        private int numHojaLineas = 1;
+
+        private String ultimaFactura;
+        private long facturas;
+        private long lineas;
+
+        LibroExcel(Workbook workbook) {
+            this.workbook = workbook;
+            this.estiloHeader = crearEstiloHeader(workbook);
+            this.estiloNormal = crearEstiloNormal(workbook);
+            this.estiloMoneda = crearEstiloMoneda(workbook);
+            this.estiloFecha = crearEstiloNormal(workbook);
+            this.estiloFecha.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy"));
+
+            nuevaHojaFacturas();
+            nuevaHojaLineas();
+        }
+
+        void agregarLinea(Factura factura, LineaFactura linea) {
+            if (!factura.getIdFactura().equals(ultimaFactura)) {
+                agregarFactura(factura);
+                ultimaFactura = factura.getIdFactura();
+            }
+
+            if (filaLineas == MAX_FILAS_HOJA) {
+                numHojaLineas++;
+                nuevaHojaLineas();
+            }
+
+            Row row = hojaLineas.createRow(filaLineas++);
+            crearCeldaFecha(row, 0, factura);
+            crearCeldaTexto(row, 1, factura.getIdFactura());
+            crearCeldaNumero(row, 2, linea.getNumeroLinea(), estiloNormal);
+            crearCeldaTexto(row, 3, linea.getNombreProducto());
+            crearCeldaNumero(row, 4, formatearNumeroDouble(linea.getCantidad()), estiloNormal);
+            crearCeldaNumero(row, 5, formatearNumeroDouble(linea.getPrecioUnitario()), estiloMoneda);
+            crearCeldaNumero(row, 6, formatearNumeroDouble(linea.getDescuento()), estiloNormal);
+            crearCeldaNumero(row, 7, formatearNumeroDouble(linea.getSubtotalLinea()), estiloMoneda);
+            crearCeldaNumero(row, 8, formatearNumeroDouble(linea.getPorcentajeIva()), estiloNormal);
+            crearCeldaNumero(row, 9, formatearNumeroDouble(linea.getImporteIva()), estiloMoneda);
+            crearCeldaNumero(row, 10, formatearNumeroDouble(linea.getPorcentajeRetencion()), estiloNormal);
+            crearCeldaNumero(row, 11, formatearNumeroDouble(linea.getImporteRetencion()), estiloMoneda);
+            crearCeldaNumero(row, 12, formatearNumeroDouble(linea.getTotalLinea()), estiloMoneda);
+            lineas++;
+        }
+
+        private void agregarFactura(Factura factura) {
+            if (filaFacturas == MAX_FILAS_HOJA) {
+                numHojaFacturas++;
+                nuevaHojaFacturas();
+            }
+
+            Row row = hojaFacturas.createRow(filaFacturas++);
+            crearCeldaFecha(row, 0, factura);
+            crearCeldaTexto(row, 1, factura.getIdFactura());
+            crearCeldaTexto(row, 2, factura.getEmpresa() != null ? factura.getEmpresa().getRazonSocial() : "");
+            crearCeldaTexto(row, 3, factura.getCliente() != null ? factura.getCliente().getNombreFiscal() : "");
+            crearCeldaTexto(row, 4, factura.getCliente() != null ? factura.getCliente().getNif() : "");
+            crearCeldaTexto(row, 5, factura.getMetodoPago());
+            crearCeldaNumero(row, 6, formatearNumeroDouble(factura.getSubtotal()), estiloMoneda);
+            crearCeldaNumero(row, 7, formatearNumeroDouble(factura.getTotalIva()), estiloMoneda);
+            crearCeldaNumero(row, 8, formatearNumeroDouble(factura.getTotalRetencion()), estiloMoneda);
+            crearCeldaNumero(row, 9, formatearNumeroDouble(factura.getTotal()), estiloMoneda);
+            facturas++;
+        }
+
+        private void nuevaHojaFacturas() {
+            hojaFacturas = crearHoja(numHojaFacturas == 1 ? "Facturas" : "Facturas (" + numHojaFacturas + ")",
+                    COLUMNAS_LIBRO_FACTURAS);
+            filaFacturas = 1;
+        }
+
+        private void nuevaHojaLineas() {
+            hojaLineas = crearHoja(numHojaLineas == 1 ? "Líneas" : "Líneas (" + numHojaLineas + ")",
+                    COLUMNAS_LIBRO_LINEAS);
+            filaLineas = 1;
+        }
+
+        private Sheet crearHoja(String nombre, String[] columnas) {
+            Sheet sheet = workbook.createSheet(nombre);
+            sheet.createFreezePane(0, 1);
+
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < columnas.length; i++) {
+                sheet.setColumnWidth(i, i == 3 ? 9000 : 4000);
+                Cell cell = header.createCell(i);
+                cell.setCellValue(columnas[i]);
+                cell.setCellStyle(estiloHeader);
+            }
+            return sheet;
+        }
+
+        private void crearCeldaFecha(Row row, int columna, Factura factura) {
+            Cell cell = row.createCell(columna);
+            cell.setCellValue(factura.getFechaEmision());
+            cell.setCellStyle(estiloFecha);
+        }
+
+        private void crearCeldaTexto(Row row, int columna, String valor) {
+            Cell cell = row.createCell(columna);
+            cell.setCellValue(valor != null ? valor : "");
+            cell.setCellStyle(estiloNormal);
+        }
+
+        private void crearCeldaNumero(Row row, int columna, double valor, CellStyle estilo) {
+            Cell cell = row.createCell(columna);
+            cell.setCellValue(valor);
+            cell.setCellStyle(estilo);
+        }
+    }
+
     // ==================== MÉTODOS PARA CREAR ESTILOS ====================
 
     private CellStyle crearEstiloTitulo(Workbook workbook) {
@@ -582,11 +819,11 @@ public class FacturaExcelService {
     }
 
     /**
-     * Método sobrecargado con ruta por defecto
+     * Método sobrecargado con ruta por defecto (ver SalidaExportacion.directorioPorDefecto)
      */
     public String generarExcel(Factura factura) throws IOException {
         String nombreArchivo = generarNombreArchivo(factura);
-        String rutaDestino = System.getProperty("user.home") + "/Downloads/" + nombreArchivo;
+        String rutaDestino = SalidaExportacion.directorioPorDefecto().resolve(nombreArchivo).toString();
         return generarExcel(factura, rutaDestino);
     }
 }
\ No newline at end of file
@@ -9,10 +9,13 @@ import es.upm.tfg.sifpyme.model.entity.LineaFactura;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -22,59 +25,13 @@ import java.util.Map;
 
 /**
  * Servicio para generar PDFs de facturas con diseño profesional
+ * No guarda estado: las fuentes y colores son los compartidos de FuentesPDF
  */
 public class FacturaPDFService {
 
     private static final Logger logger = LoggerFactory.getLogger(FacturaPDFService.class);
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
 
-    // Colores corporativos
-    private static final BaseColor COLOR_PRIMARIO = new BaseColor(52, 152, 219);
-    private static final BaseColor COLOR_SECUNDARIO = new BaseColor(236, 240, 241);
-    private static final BaseColor COLOR_TEXTO = BaseColor.BLACK;
-    private static final BaseColor COLOR_GRIS = new BaseColor(127, 140, 141);
-
-    // Fuentes
-    private Font fuenteTitulo;
-    private Font fuenteSubtitulo;
-    private Font fuenteNormal;
-    private Font fuenteNormalBold;
-    private Font fuentePequena;
-    private Font fuenteTablaHeader;
-    private Font fuenteTabla;
-
-    public FacturaPDFService() {
-        inicializarFuentes();
-    }
-
-    private void inicializarFuentes() {
-        try {
-            // Intentar usar fuentes del sistema
-            BaseFont baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
-            BaseFont baseFontBold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1252,
-                    BaseFont.NOT_EMBEDDED);
-
-            fuenteTitulo = new Font(baseFontBold, 18, Font.BOLD, COLOR_PRIMARIO);
-            fuenteSubtitulo = new Font(baseFontBold, 14, Font.BOLD, COLOR_TEXTO);
-            fuenteNormal = new Font(baseFont, 10, Font.NORMAL, COLOR_TEXTO);
-            fuenteNormalBold = new Font(baseFontBold, 10, Font.BOLD, COLOR_TEXTO);
-            fuentePequena = new Font(baseFont, 8, Font.NORMAL, COLOR_GRIS);
-            fuenteTablaHeader = new Font(baseFontBold, 9, Font.BOLD, BaseColor.WHITE);
-            fuenteTabla = new Font(baseFont, 9, Font.NORMAL, COLOR_TEXTO);
-
-        } catch (Exception e) {
-            logger.error("Error al cargar fuentes", e);
-            // Usar fuentes por defecto
-            fuenteTitulo = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, COLOR_PRIMARIO);
-            fuenteSubtitulo = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14);
-            fuenteNormal = FontFactory.getFont(FontFactory.HELVETICA, 10);
-            fuenteNormalBold = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10);
-            fuentePequena = FontFactory.getFont(FontFactory.HELVETICA, 8, COLOR_GRIS);
-            fuenteTablaHeader = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, BaseColor.WHITE);
-            fuenteTabla = FontFactory.getFont(FontFactory.HELVETICA, 9);
-        }
-    }
-
     /**
      * Genera un PDF de factura y lo guarda en el directorio especificado
      */
@@ -85,25 +42,48 @@ public class FacturaPDFService {
             Files.createDirectories(directorio);
         }
 
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(rutaDestino))) {
+            generarPDF(factura, fos);
+
+            logger.info("PDF generado exitosamente en: {}", rutaDestino);
+            return rutaDestino;
+        }
+    }
+
+    /**
+     * Genera el PDF de una factura en el stream indicado (no lo cierra)
+     */
+    public void generarPDF(Factura factura, OutputStream salida) throws DocumentException {
         Document document = new Document(PageSize.A4, 40, 40, 50, 50);
 
-        try (FileOutputStream fos = new FileOutputStream(rutaDestino)) {
-            PdfWriter.getInstance(document, fos);
-            document.open();
+        PdfWriter writer = PdfWriter.getInstance(document, salida);
+        writer.setCloseStream(false);
+        document.open();
 
-            // Agregar contenido
-            agregarEncabezado(document, factura);
-            agregarDatosEmisorReceptor(document, factura);
-            agregarDatosFactura(document, factura);
-            agregarTablaLineas(document, factura);
-            agregarTotales(document, factura);
-            agregarPiePagina(document);
+        // Agregar contenido
+        agregarEncabezado(document, factura);
+        agregarDatosEmisorReceptor(document, factura);
+        agregarDatosFactura(document, factura);
+        agregarTablaLineas(document, factura);
+        agregarTotales(document, factura);
+        agregarPiePagina(document);
 
-            document.close();
+        document.close();
+    }
 
-            logger.info("PDF generado exitosamente en: {}", rutaDestino);
-            return rutaDestino;
-        }
+    /**
+     * Genera el PDF de una factura en un canal (fichero, socket...) sin cerrarlo
+     */
+    public void generarPDF(Factura factura, WritableByteChannel canal) throws DocumentException, IOException {
+        SalidaExportacion.aCanal(canal, salida -> generarPDF(factura, salida));
+    }
+
+    /**
+     * Genera el PDF de una factura en memoria, sin ficheros temporales
+     * (p. ej. para adjuntarlo a un correo o guardarlo en un ZIP o en la base de datos)
+     */
+    public byte[] generarPDFBytes(Factura factura) throws DocumentException {
+        return SalidaExportacion.aBytes(salida -> generarPDF(factura, salida));
     }
 
     private void agregarEncabezado(Document document, Factura factura) throws DocumentException {
@@ -115,11 +95,11 @@ public class FacturaPDFService {
         PdfPCell cellEmpresa = new PdfPCell();
         cellEmpresa.setBorder(Rectangle.NO_BORDER);
 
-        Paragraph nombreEmpresa = new Paragraph(factura.getEmpresa().getRazonSocial(), fuenteTitulo);
+        Paragraph nombreEmpresa = new Paragraph(factura.getEmpresa().getRazonSocial(), FuentesPDF.TITULO);
         nombreEmpresa.setSpacingAfter(5);
         cellEmpresa.addElement(nombreEmpresa);
 
-        Paragraph razonSocial = new Paragraph(factura.getEmpresa().getRazonSocial(), fuenteNormal);
+        Paragraph razonSocial = new Paragraph(factura.getEmpresa().getRazonSocial(), FuentesPDF.NORMAL);
         cellEmpresa.addElement(razonSocial);
 
         table.addCell(cellEmpresa);
@@ -130,21 +110,21 @@ public class FacturaPDFService {
         cellFactura.setHorizontalAlignment(Element.ALIGN_RIGHT);
         cellFactura.setVerticalAlignment(Element.ALIGN_TOP);
 
-        Paragraph facturaTitulo = new Paragraph("FACTURA", fuenteTitulo);
+        Paragraph facturaTitulo = new Paragraph("FACTURA", FuentesPDF.TITULO);
         facturaTitulo.setAlignment(Element.ALIGN_RIGHT);
         cellFactura.addElement(facturaTitulo);
 
         // CAMBIO: Usar id_factura en lugar de serie + numero_factura
         Paragraph numeroFactura = new Paragraph(
                 factura.getIdFactura(),
-                fuenteSubtitulo);
+                FuentesPDF.SUBTITULO);
         numeroFactura.setAlignment(Element.ALIGN_RIGHT);
         cellFactura.addElement(numeroFactura);
 
         table.addCell(cellFactura);
 
         document.add(table);
-        document.add(new Paragraph(" ", fuenteNormal)); // Espacio
+        document.add(new Paragraph(" ", FuentesPDF.NORMAL)); // Espacio
     }
 
     private void agregarDatosEmisorReceptor(Document document, Factura factura) throws DocumentException {
@@ -177,7 +157,7 @@ public class FacturaPDFService {
             emisorInfo.append("\nEmail: ").append(empresa.getEmail());
         }
 
-        PdfPCell cellEmisorDatos = new PdfPCell(new Phrase(emisorInfo.toString(), fuenteNormal));
+        PdfPCell cellEmisorDatos = new PdfPCell(new Phrase(emisorInfo.toString(), FuentesPDF.NORMAL));
         cellEmisorDatos.setPadding(10);
         cellEmisorDatos.setBorder(Rectangle.LEFT | Rectangle.RIGHT | Rectangle.BOTTOM);
         table.addCell(cellEmisorDatos);
@@ -198,7 +178,7 @@ public class FacturaPDFService {
             receptorInfo.append("\nEmail: ").append(cliente.getEmail());
         }
 
-        PdfPCell cellReceptorDatos = new PdfPCell(new Phrase(receptorInfo.toString(), fuenteNormal));
+        PdfPCell cellReceptorDatos = new PdfPCell(new Phrase(receptorInfo.toString(), FuentesPDF.NORMAL));
         cellReceptorDatos.setPadding(10);
         cellReceptorDatos.setBorder(Rectangle.LEFT | Rectangle.RIGHT | Rectangle.BOTTOM);
         table.addCell(cellReceptorDatos);
@@ -237,8 +217,8 @@ public class FacturaPDFService {
         // Headers con fondo de color
         String[] headers = { "Producto", "Cantidad", "Precio (€)", "IVA (%)", "Descuento (%)", "Total (€)" };
         for (String header : headers) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, fuenteTablaHeader));
-            cell.setBackgroundColor(COLOR_PRIMARIO);
+            PdfPCell cell = new PdfPCell(new Phrase(header, FuentesPDF.TABLA_HEADER));
+            cell.setBackgroundColor(FuentesPDF.COLOR_PRIMARIO);
             cell.setPadding(8);
             cell.setHorizontalAlignment(Element.ALIGN_CENTER);
             table.addCell(cell);
@@ -257,7 +237,7 @@ public class FacturaPDFService {
                 nombre_producto = "Línea " + linea.getNumeroLinea();
             }
 
-            PdfPCell cellProducto = new PdfPCell(new Phrase(nombre_producto, fuenteTabla));
+            PdfPCell cellProducto = new PdfPCell(new Phrase(nombre_producto, FuentesPDF.TABLA));
             cellProducto.setPadding(8);
             table.addCell(cellProducto);
 
@@ -355,11 +335,11 @@ public class FacturaPDFService {
 
     private void agregarPiePagina(Document document) throws DocumentException {
         // Información adicional
-        document.add(new Paragraph(" ", fuenteNormal));
+        document.add(new Paragraph(" ", FuentesPDF.NORMAL));
 
         Paragraph info = new Paragraph(
                 "Documento generado electrónicamente por SifPyme",
-                fuentePequena);
+                FuentesPDF.PEQUENA);
         info.setAlignment(Element.ALIGN_CENTER);
         info.setSpacingBefore(20);
         document.add(info);
@@ -368,28 +348,28 @@ public class FacturaPDFService {
     // Métodos auxiliares
 
     private PdfPCell crearCelda(String texto, boolean esHeader) {
-        PdfPCell cell = new PdfPCell(new Phrase(texto, esHeader ? fuenteNormalBold : fuenteNormal));
+        PdfPCell cell = new PdfPCell(new Phrase(texto, esHeader ? FuentesPDF.NORMAL_BOLD : FuentesPDF.NORMAL));
         cell.setPadding(8);
         if (esHeader) {
-            cell.setBackgroundColor(COLOR_SECUNDARIO);
+            cell.setBackgroundColor(FuentesPDF.COLOR_SECUNDARIO);
             cell.setHorizontalAlignment(Element.ALIGN_CENTER);
         }
         return cell;
     }
 
     private PdfPCell crearCeldaNumero(String texto) {
-        PdfPCell cell = new PdfPCell(new Phrase(texto, fuenteTabla));
+        PdfPCell cell = new PdfPCell(new Phrase(texto, FuentesPDF.TABLA));
         cell.setPadding(8);
         cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
         return cell;
     }
 
     private PdfPCell crearCeldaTotal(String texto, boolean esHeader) {
-        PdfPCell cell = new PdfPCell(new Phrase(texto, esHeader ? fuenteNormalBold : fuenteNormal));
+        PdfPCell cell = new PdfPCell(new Phrase(texto, esHeader ? FuentesPDF.NORMAL_BOLD : FuentesPDF.NORMAL));
         cell.setPadding(8);
         cell.setHorizontalAlignment(Element.ALIGN_CENTER);
         if (esHeader) {
-            cell.setBackgroundColor(COLOR_SECUNDARIO);
+            cell.setBackgroundColor(FuentesPDF.COLOR_SECUNDARIO);
         }
         return cell;
     }
@@ -417,11 +397,11 @@ public class FacturaPDFService {
     }
 
     /**
-     * Método sobrecargado con ruta por defecto
+     * Método sobrecargado con ruta por defecto (ver SalidaExportacion.directorioPorDefecto)
      */
     public String generarPDF(Factura factura) throws DocumentException, IOException {
         String nombreArchivo = generarNombreArchivo(factura);
-        String rutaDestino = System.getProperty("user.home") + "/Downloads/" + nombreArchivo;
+        String rutaDestino = SalidaExportacion.directorioPorDefecto().resolve(nombreArchivo).toString();
         return generarPDF(factura, rutaDestino);
     }
 }
\ No newline at end of file
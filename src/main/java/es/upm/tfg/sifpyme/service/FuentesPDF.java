@@ -0,0 +1,120 @@
+package es.upm.tfg.sifpyme.service;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.pdf.BaseFont;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+
+/**
+ * Registro de fuentes y colores de los PDFs de facturas, compartido por todo el proceso.
+ * Las fuentes se crean una sola vez al cargar la clase (la JVM garantiza que esa
+ * inicialización es segura entre hilos) y no se modifican después, por lo que todas las
+ * instancias de FacturaPDFService y todos los hilos pueden usarlas a la vez.
+ * No deben modificarse: para una variante, crear una copia con new Font(fuente).
+ */
+public final class FuentesPDF {
+
+    private static final Logger logger = LoggerFactory.getLogger(FuentesPDF.class);
+
+    // Colores corporativos
+    public static final BaseColor COLOR_PRIMARIO = new BaseColor(52, 152, 219);
+    public static final BaseColor COLOR_SECUNDARIO = new BaseColor(236, 240, 241);
+    public static final BaseColor COLOR_TEXTO = BaseColor.BLACK;
+    public static final BaseColor COLOR_GRIS = new BaseColor(127, 140, 141);
+
+    public static final Font TITULO;
+    public static final Font SUBTITULO;
+    public static final Font NORMAL;
+    public static final Font NORMAL_BOLD;
+    public static final Font PEQUENA;
+    public static final Font TABLA_HEADER;
+    public static final Font TABLA;
+
+    static {
+        long inicio = System.nanoTime();
+        Font[] fuentes = crearFuentes();
+
+        TITULO = fuentes[0];
+        SUBTITULO = fuentes[1];
+        NORMAL = fuentes[2];
+        NORMAL_BOLD = fuentes[3];
+        PEQUENA = fuentes[4];
+        TABLA_HEADER = fuentes[5];
+        TABLA = fuentes[6];
+
+        logger.debug("Fuentes PDF inicializadas en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    private FuentesPDF() {
+    }
+
+    private static Font[] crearFuentes() {
+        try {
+            // Intentar usar fuentes del sistema
+            BaseFont baseFont = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.NOT_EMBEDDED);
+            BaseFont baseFontBold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.CP1252,
+                    BaseFont.NOT_EMBEDDED);
+
+            return new Font[] {
+                new Font(baseFontBold, 18, Font.BOLD, COLOR_PRIMARIO),
+                new Font(baseFontBold, 14, Font.BOLD, COLOR_TEXTO),
+                new Font(baseFont, 10, Font.NORMAL, COLOR_TEXTO),
+                new Font(baseFontBold, 10, Font.BOLD, COLOR_TEXTO),
+                new Font(baseFont, 8, Font.NORMAL, COLOR_GRIS),
+                new Font(baseFontBold, 9, Font.BOLD, BaseColor.WHITE),
+                new Font(baseFont, 9, Font.NORMAL, COLOR_TEXTO)
+            };
+
+        } catch (Exception e) {
+            logger.error("Error al cargar fuentes", e);
+            // Usar fuentes por defecto
+            return new Font[] {
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18, COLOR_PRIMARIO),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 14),
+                FontFactory.getFont(FontFactory.HELVETICA, 10),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 10),
+                FontFactory.getFont(FontFactory.HELVETICA, 8, COLOR_GRIS),
+                FontFactory.getFont(FontFactory.HELVETICA_BOLD, 9, BaseColor.WHITE),
+                FontFactory.getFont(FontFactory.HELVETICA, 9)
+            };
+        }
+    }
+
+    /**
+     * Inicializa las fuentes y carga las clases de iText generando un documento de prueba
+     * que se descarta, para que la primera exportación real no pague ese coste.
+     * Pensado para llamarse en segundo plano al arrancar la aplicación.
+     */
+    public static void precalentar() {
+        long inicio = System.nanoTime();
+        Document document = new Document(PageSize.A4);
+
+        try {
+            PdfWriter.getInstance(document, OutputStream.nullOutputStream());
+            document.open();
+
+            PdfPTable tabla = new PdfPTable(2);
+            for (Font fuente : new Font[] { TITULO, SUBTITULO, NORMAL, NORMAL_BOLD, PEQUENA, TABLA_HEADER, TABLA }) {
+                document.add(new Paragraph("Factura 0123456789 €", fuente));
+                tabla.addCell(new Paragraph("1.234,56 €", fuente));
+            }
+            tabla.completeRow();
+            document.add(tabla);
+
+            document.close();
+            logger.info("Generación de PDF precalentada en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+
+        } catch (Exception e) {
+            logger.warn("No se pudo precalentar la generación de PDF", e);
+        }
+    }
+}
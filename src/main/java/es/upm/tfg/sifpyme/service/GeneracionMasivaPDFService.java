@@ -0,0 +1,357 @@
+package es.upm.tfg.sifpyme.service;
+
+import es.upm.tfg.sifpyme.model.dao.ClienteDAO;
+import es.upm.tfg.sifpyme.model.dao.EmpresaDAO;
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+import es.upm.tfg.sifpyme.model.entity.Cliente;
+import es.upm.tfg.sifpyme.model.entity.Empresa;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generación masiva de PDFs de facturas (p. ej. el cierre de mes)
+ * Las facturas se cargan por bloques en el hilo llamante y se renderizan en un pool
+ * acotado de hilos que comparten un FacturaPDFService sin estado (las fuentes de
+ * FuentesPDF son inmutables). El resultado se escribe en un directorio o, si el destino
+ * termina en .zip, en un único fichero ZIP.
+ */
+public class GeneracionMasivaPDFService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneracionMasivaPDFService.class);
+
+    private static final int TAMANO_BLOQUE = 100;
+    private static final String CARACTERES_NO_VALIDOS = "[\\\\/:*?\"<>|]";
+
+    private final int numHilos;
+    private final FacturaDAO facturaDAO;
+    private final EmpresaDAO empresaDAO;
+    private final ClienteDAO clienteDAO;
+
+    private final FacturaPDFService pdfService = new FacturaPDFService();
+
+    public GeneracionMasivaPDFService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public GeneracionMasivaPDFService(int numHilos) {
+        if (numHilos <= 0) {
+            throw new IllegalArgumentException("El número de hilos debe ser positivo");
+        }
+        this.numHilos = numHilos;
+        this.facturaDAO = new FacturaDAO();
+        this.empresaDAO = new EmpresaDAO();
+        this.clienteDAO = new ClienteDAO();
+    }
+
+    /**
+     * Genera los PDFs de las facturas entre dos fechas y/o de una empresa
+     *
+     * @param desde Fecha de emisión mínima (null = sin límite)
+     * @param hasta Fecha de emisión máxima (null = sin límite)
+     * @param idEmpresa Empresa emisora (null = todas)
+     * @param destino Directorio de salida, o fichero .zip
+     * @param progreso Recibe (procesadas, total) tras cada factura; puede llamarse desde varios hilos
+     * @throws IOException si no se puede crear el destino
+     * @throws InterruptedException si se interrumpe el hilo llamante (se cancela la generación
+     *         y se borra lo escrito hasta entonces)
+     */
+    public Resultado generar(LocalDate desde, LocalDate hasta, Integer idEmpresa, Path destino,
+                             BiConsumer<Integer, Integer> progreso) throws IOException, InterruptedException {
+        long inicio = System.currentTimeMillis();
+        List<String> ids = facturaDAO.obtenerIds(desde, hasta, idEmpresa);
+        logger.info("Generando {} PDFs en {} con {} hilos", ids.size(), destino, numHilos);
+
+        boolean esZip = destino.getFileName().toString().toLowerCase().endsWith(".zip");
+        boolean directorioNuevo = !esZip && !Files.exists(destino);
+        Path directorio = esZip ? destino.toAbsolutePath().getParent() : destino;
+        if (directorio != null) {
+            Files.createDirectories(directorio);
+        }
+
+        Progreso estado = new Progreso(ids.size(), progreso);
+        List<Path> escritos = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            if (esZip) {
+                try (ZipOutputStream zip = new ZipOutputStream(
+                        new BufferedOutputStream(Files.newOutputStream(destino)))) {
+                    procesar(ids, estado, (nombre, factura) -> escribirEnZip(zip, nombre, factura));
+                }
+            } else {
+                procesar(ids, estado,
+                        (nombre, factura) -> escritos.add(escribirEnDirectorio(destino, nombre, factura)));
+            }
+
+        } catch (InterruptedException e) {
+            // procesar ya ha esperado a los hilos del pool: nadie sigue escribiendo en el destino
+            borrarParcial(esZip ? List.of(destino) : escritos, directorioNuevo ? destino : null);
+            logger.info("Generación masiva cancelada tras {} de {} PDFs", estado.procesadas.get(), ids.size());
+            throw e;
+        }
+
+        Resultado resultado = new Resultado(ids.size(), estado.generadas.get(), estado.fallos,
+                System.currentTimeMillis() - inicio);
+        logger.info("Generación masiva finalizada: {} de {} PDFs, {} fallos, {} ms",
+                resultado.getGeneradas(), resultado.getTotal(), resultado.getFallos().size(),
+                resultado.getMilisegundos());
+        return resultado;
+    }
+
+    /**
+     * Carga las facturas por bloques y reparte su renderizado en el pool.
+     * La cola del pool está acotada: si se llena, el hilo llamante renderiza la factura
+     * él mismo, lo que frena la carga y limita la memoria usada.
+     */
+    private void procesar(List<String> ids, Progreso estado, Escritor escritor) throws InterruptedException {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(numHilos, numHilos, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(numHilos * 2), new HilosGeneracion(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        try {
+            for (int i = 0; i < ids.size(); i += TAMANO_BLOQUE) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Generación de PDFs cancelada");
+                }
+
+                List<String> bloque = ids.subList(i, Math.min(i + TAMANO_BLOQUE, ids.size()));
+                List<Factura> facturas = cargarBloque(bloque);
+
+                Set<String> encontradas = new HashSet<>();
+                for (Factura factura : facturas) {
+                    encontradas.add(factura.getIdFactura());
+                    pool.execute(() -> generarUna(factura, estado, escritor));
+                }
+
+                // Facturas eliminadas mientras se generaba el lote
+                for (String id : bloque) {
+                    if (!encontradas.contains(id)) {
+                        estado.fallo(id, "Factura no encontrada");
+                    }
+                }
+            }
+
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Esperar a que terminen las facturas en cola
+            }
+
+        } finally {
+            detener(pool);
+        }
+    }
+
+    /**
+     * Descarta las facturas en cola y espera a que los hilos terminen la que tienen en curso,
+     * aunque el hilo llamante esté interrumpido: el destino no se cierra ni se borra mientras
+     * alguno sigue escribiendo en él. Al salir se restaura la interrupción del hilo llamante.
+     */
+    private static void detener(ThreadPoolExecutor pool) {
+        pool.shutdownNow();
+
+        boolean interrumpido = Thread.interrupted();
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrumpido = true;
+            }
+        }
+
+        if (interrumpido) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Borra la salida de una generación cancelada: el ZIP o los PDFs escritos y, si la
+     * generación creó el directorio, también el directorio
+     */
+    private void borrarParcial(List<Path> archivos, Path directorioCreado) {
+        try {
+            for (Path archivo : archivos) {
+                Files.deleteIfExists(archivo);
+            }
+            if (directorioCreado != null) {
+                Files.deleteIfExists(directorioCreado);
+            }
+        } catch (IOException e) {
+            logger.warn("No se ha podido borrar la salida parcial de la generación masiva", e);
+        }
+    }
+
+    private void generarUna(Factura factura, Progreso estado, Escritor escritor) {
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+
+        try {
+            String nombre = pdfService.generarNombreArchivo(factura)
+                    .replaceAll(CARACTERES_NO_VALIDOS, "-");
+            escritor.escribir(nombre, factura);
+            estado.generada();
+
+        } catch (Exception e) {
+            logger.warn("Error al generar el PDF de la factura {}", factura.getIdFactura(), e);
+            estado.fallo(factura.getIdFactura(), e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    /**
+     * Carga un bloque de facturas con sus líneas, empresa y cliente
+     */
+    private List<Factura> cargarBloque(List<String> ids) {
+        List<Factura> facturas = facturaDAO.obtenerPorIds(ids);
+
+        Map<Integer, Empresa> empresas = empresaDAO.obtenerPorIds(
+                facturas.stream().map(Factura::getIdEmpresa).collect(Collectors.toSet()));
+        Map<Integer, Cliente> clientes = clienteDAO.obtenerPorIds(
+                facturas.stream().map(Factura::getIdCliente).collect(Collectors.toSet()));
+
+        for (Factura factura : facturas) {
+            factura.setEmpresa(empresas.get(factura.getIdEmpresa()));
+            factura.setCliente(clientes.get(factura.getIdCliente()));
+        }
+
+        return facturas;
+    }
+
+    private Path escribirEnDirectorio(Path directorio, String nombre, Factura factura) throws Exception {
+        Path archivo = directorio.resolve(nombre);
+
+        try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(archivo))) {
+            pdfService.generarPDF(factura, salida);
+        } catch (Exception e) {
+            Files.deleteIfExists(archivo);
+            throw e;
+        }
+        return archivo;
+    }
+
+    /**
+     * El PDF se renderiza en memoria fuera del bloqueo; solo la escritura en el ZIP es exclusiva
+     */
+    private void escribirEnZip(ZipOutputStream zip, String nombre, Factura factura) throws Exception {
+        byte[] pdf = pdfService.generarPDFBytes(factura);
+
+        synchronized (zip) {
+            zip.putNextEntry(new ZipEntry(nombre));
+            zip.write(pdf);
+            zip.closeEntry();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Escritor {
+        void escribir(String nombre, Factura factura) throws Exception;
+    }
+
+    /**
+     * Contadores compartidos por los hilos del pool
+     */
+    private static class Progreso {
+        private final int total;
+        private final BiConsumer<Integer, Integer> callback;
+        private final AtomicInteger procesadas = new AtomicInteger();
+        private final AtomicInteger generadas = new AtomicInteger();
+        private final List<Fallo> fallos = Collections.synchronizedList(new ArrayList<>());
+
+        Progreso(int total, BiConsumer<Integer, Integer> callback) {
+            this.total = total;
+            this.callback = callback;
+        }
+
+        void generada() {
+            generadas.incrementAndGet();
+            notificar();
+        }
+
+        void fallo(String idFactura, String motivo) {
+            fallos.add(new Fallo(idFactura, motivo));
+            notificar();
+        }
+
+        private void notificar() {
+            int hechas = procesadas.incrementAndGet();
+            if (callback != null) {
+                callback.accept(hechas, total);
+            }
+        }
+    }
+
+    private static class HilosGeneracion implements ThreadFactory {
+        private final AtomicInteger contador = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable tarea) {
+            Thread hilo = new Thread(tarea, "pdf-masivo-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        }
+    }
+
+    /**
+     * Factura cuyo PDF no se ha podido generar
+     */
+    public static class Fallo {
+        private final String idFactura;
+        private final String motivo;
+
+        public Fallo(String idFactura, String motivo) {
+            this.idFactura = idFactura;
+            this.motivo = motivo;
+        }
+
+        public String getIdFactura() { return idFactura; }
+        public String getMotivo() { return motivo; }
+
+        @Override
+        public String toString() {
+            return idFactura + ": " + motivo;
+        }
+    }
+
+    /**
+     * Resumen de una generación masiva
+     */
+    public static class Resultado {
+        private final int total;
+        private final int generadas;
+        private final List<Fallo> fallos;
+        private final long milisegundos;
+
+        public Resultado(int total, int generadas, List<Fallo> fallos, long milisegundos) {
+            this.total = total;
+            this.generadas = generadas;
+            this.fallos = Collections.unmodifiableList(new ArrayList<>(fallos));
+            this.milisegundos = milisegundos;
+        }
+
+        public int getTotal() { return total; }
+        public int getGeneradas() { return generadas; }
+        public List<Fallo> getFallos() { return fallos; }
+        public long getMilisegundos() { return milisegundos; }
+    }
+}
@@ -0,0 +1,640 @@
+package es.upm.tfg.sifpyme.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Servicio de importación masiva de facturas desde CSV o JSON.
+ *
+ * El fichero se lee en streaming (una factura cada vez), cada factura se valida con
+ * ValidacionFacturaService y se recalcula con CalculadoraFacturaService, y las válidas
+ * se guardan en lotes de 'tamanoLote' facturas, cada lote en una transacción. Las
+ * facturas rechazadas se anotan con su motivo en un fichero CSV de rechazos.
+ *
+ * Campos (mismos nombres en CSV y JSON; en JSON también se admite camelCase):
+ * id_factura, id_empresa, id_cliente, fecha_emision (yyyy-MM-dd o dd/MM/yyyy), metodo_pago
+ * y, por línea, nombre_producto, cantidad, precio_base, precio_unitario (opcional),
+ * descuento (opcional), porcentaje_iva, porcentaje_retencion (opcional).
+ *
+ * CSV: una fila por línea de factura, con las filas de cada factura consecutivas.
+ * Separador ',' o ';' (con ';' se admite la coma decimal). No se admiten saltos de línea
+ * dentro de un campo.
+ * JSON: un array de facturas, o una factura por línea (JSON Lines), con sus líneas en "lineas".
+ */
+public class ImportacionFacturasService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionFacturasService.class);
+
+    public static final int TAMANO_LOTE_POR_DEFECTO = 500;
+
+    private static final DateTimeFormatter FORMATO_FECHA_ES = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int LONGITUD_MAX_MOTIVO = 300;
+
+    /**
+     * Formatos de fichero admitidos
+     */
+    public enum Formato {
+        CSV, JSON;
+
+        /**
+         * Deduce el formato a partir de la extensión del fichero (.json, .jsonl o .csv)
+         */
+        public static Formato desdeArchivo(Path archivo) {
+            String nombre = archivo.getFileName().toString().toLowerCase(Locale.ROOT);
+            return nombre.endsWith(".json") || nombre.endsWith(".jsonl") ? JSON : CSV;
+        }
+    }
+
+    /**
+     * Resultado (parcial o final) de una importación
+     */
+    public static class Resultado {
+        private final int leidas;
+        private final int importadas;
+        private final int rechazadas;
+        private final long milisegundos;
+
+        public Resultado(int leidas, int importadas, int rechazadas, long milisegundos) {
+            this.leidas = leidas;
+            this.importadas = importadas;
+            this.rechazadas = rechazadas;
+            this.milisegundos = milisegundos;
+        }
+
+        public int getLeidas() {
+            return leidas;
+        }
+
+        public int getImportadas() {
+            return importadas;
+        }
+
+        public int getRechazadas() {
+            return rechazadas;
+        }
+
+        public long getMilisegundos() {
+            return milisegundos;
+        }
+
+        /**
+         * Facturas importadas por segundo
+         */
+        public double getFacturasPorSegundo() {
+            return milisegundos > 0 ? importadas * 1000.0 / milisegundos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d leídas, %d importadas, %d rechazadas en %.1f s (%.0f facturas/s)",
+                    leidas, importadas, rechazadas, milisegundos / 1000.0, getFacturasPorSegundo());
+        }
+    }
+
+    private final int tamanoLote;
+    private final FacturaDAO facturaDAO;
+    private final CalculadoraFacturaService calculadora;
+    private final ValidacionFacturaService validacion;
+
+    public ImportacionFacturasService() {
+        this(TAMANO_LOTE_POR_DEFECTO);
+    }
+
+    public ImportacionFacturasService(int tamanoLote) {
+        if (tamanoLote <= 0) {
+            throw new IllegalArgumentException("El tamaño de lote debe ser positivo");
+        }
+        this.tamanoLote = tamanoLote;
+        this.facturaDAO = new FacturaDAO();
+        this.calculadora = new CalculadoraFacturaService();
+        this.validacion = new ValidacionFacturaService();
+    }
+
+    /**
+     * Importa las facturas de un fichero CSV o JSON.
+     *
+     * @param origen Fichero a importar (el formato se deduce de la extensión)
+     * @param rechazos Fichero CSV donde anotar las facturas rechazadas (null para no generarlo);
+     *                 solo se crea si hay algún rechazo
+     * @param progreso Recibe el resultado parcial tras cada lote (puede ser null)
+     * @return Resultado final de la importación
+     * @throws IOException si no se puede leer el origen o escribir los rechazos
+     */
+    public Resultado importar(Path origen, Path rechazos, Consumer<Resultado> progreso) throws IOException {
+        Resultado resultado;
+
+        try (LectorFacturas lector = Formato.desdeArchivo(origen) == Formato.JSON
+                    ? new LectorJson(Files.newBufferedReader(origen, StandardCharsets.UTF_8))
+                    : new LectorCsv(Files.newBufferedReader(origen, StandardCharsets.UTF_8));
+             Importacion importacion = new Importacion(rechazos, progreso)) {
+
+            RegistroFactura registro;
+            while ((registro = lector.siguiente()) != null) {
+                importacion.procesar(registro);
+            }
+            importacion.escribirLote();
+            resultado = importacion.resultado();
+        }
+
+        logger.info("Importación de {} finalizada: {}", origen.getFileName(), resultado);
+        return resultado;
+    }
+
+    /**
+     * Estado de una importación en curso: lote pendiente de escribir, contadores y rechazos
+     */
+    private class Importacion implements Closeable {
+        private final Path rutaRechazos;
+        private final Consumer<Resultado> progreso;
+        private final long inicio = System.currentTimeMillis();
+
+        private final List<RegistroFactura> lote = new ArrayList<>(tamanoLote);
+        private BufferedWriter rechazos;
+        private int leidas;
+        private int importadas;
+        private int rechazadas;
+
+        Importacion(Path rutaRechazos, Consumer<Resultado> progreso) {
+            this.rutaRechazos = rutaRechazos;
+            this.progreso = progreso;
+        }
+
+        void procesar(RegistroFactura registro) throws IOException {
+            leidas++;
+
+            try {
+                registro.factura = construirFactura(registro);
+                registro.error = validacion.validar(registro.factura, true);
+                if (registro.error == null) {
+                    calculadora.recalcularFacturaCompleta(registro.factura);
+                }
+            } catch (IllegalArgumentException e) {
+                registro.error = e.getMessage();
+            }
+
+            if (registro.error != null) {
+                rechazar(registro, registro.error);
+                return;
+            }
+
+            lote.add(registro);
+            if (lote.size() >= tamanoLote) {
+                escribirLote();
+            }
+        }
+
+        /**
+         * Guarda el lote pendiente en una transacción. Si falla, se reintenta factura a
+         * factura para rechazar solo las que provocan el error.
+         */
+        void escribirLote() throws IOException {
+            if (lote.isEmpty()) {
+                return;
+            }
+
+            List<String> ids = new ArrayList<>(lote.size());
+            for (RegistroFactura registro : lote) {
+                ids.add(registro.factura.getIdFactura());
+            }
+            Set<String> existentes = facturaDAO.obtenerIdsExistentes(ids);
+
+            Set<String> idsLote = new HashSet<>();
+            List<RegistroFactura> validas = new ArrayList<>(lote.size());
+            for (RegistroFactura registro : lote) {
+                String id = registro.factura.getIdFactura();
+                if (existentes.contains(id) || !idsLote.add(id)) {
+                    rechazar(registro, "Ya existe una factura con el ID " + id);
+                } else {
+                    validas.add(registro);
+                }
+            }
+
+            try {
+                facturaDAO.insertarLote(facturas(validas));
+                importadas += validas.size();
+
+            } catch (SQLException e) {
+                logger.warn("Error al guardar un lote de {} facturas, se reintenta una a una: {}",
+                        validas.size(), e.getMessage());
+
+                for (RegistroFactura registro : validas) {
+                    try {
+                        facturaDAO.insertarLote(List.of(registro.factura));
+                        importadas++;
+                    } catch (SQLException ex) {
+                        rechazar(registro, "Error de base de datos: " + ex.getMessage());
+                    }
+                }
+            }
+
+            lote.clear();
+
+            Resultado parcial = resultado();
+            logger.info("Importación en curso: {}", parcial);
+            if (progreso != null) {
+                progreso.accept(parcial);
+            }
+        }
+
+        void rechazar(RegistroFactura registro, String motivo) throws IOException {
+            rechazadas++;
+
+            if (rutaRechazos == null) {
+                return;
+            }
+            if (rechazos == null) {
+                rechazos = Files.newBufferedWriter(rutaRechazos, StandardCharsets.UTF_8);
+                rechazos.write("posicion;id_factura;motivo");
+                rechazos.newLine();
+            }
+
+            String motivoCorto = motivo.replaceAll("\\s+", " ");
+            if (motivoCorto.length() > LONGITUD_MAX_MOTIVO) {
+                motivoCorto = motivoCorto.substring(0, LONGITUD_MAX_MOTIVO) + "...";
+            }
+
+            rechazos.write(campoCsv(registro.posicion) + ";" + campoCsv(registro.valor("id_factura")) +
+                    ";" + campoCsv(motivoCorto));
+            rechazos.newLine();
+        }
+
+        Resultado resultado() {
+            return new Resultado(leidas, importadas, rechazadas, System.currentTimeMillis() - inicio);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (rechazos != null) {
+                rechazos.close();
+            }
+        }
+    }
+
+    private static List<Factura> facturas(List<RegistroFactura> registros) {
+        List<Factura> facturas = new ArrayList<>(registros.size());
+        for (RegistroFactura registro : registros) {
+            facturas.add(registro.factura);
+        }
+        return facturas;
+    }
+
+    /**
+     * Construye la factura y sus líneas a partir de los valores leídos
+     *
+     * @throws IllegalArgumentException si algún valor no tiene el formato esperado
+     */
+    private Factura construirFactura(RegistroFactura registro) {
+        Factura factura = new Factura();
+        factura.setIdFactura(registro.valor("id_factura"));
+        factura.setIdEmpresa(entero(registro.cabecera, "id_empresa"));
+        factura.setIdCliente(entero(registro.cabecera, "id_cliente"));
+        factura.setFechaEmision(fecha(registro.cabecera, "fecha_emision"));
+        factura.setMetodoPago(registro.valor("metodo_pago"));
+
+        List<LineaFactura> lineas = new ArrayList<>(registro.lineas.size());
+        for (Map<String, String> valores : registro.lineas) {
+            LineaFactura linea = new LineaFactura();
+            linea.setNumeroLinea(lineas.size() + 1);
+
+            String nombre = valores.get("nombre_producto");
+            if (nombre == null) {
+                throw new IllegalArgumentException("Línea " + linea.getNumeroLinea() + " sin nombre_producto");
+            }
+            linea.setNombreProducto(nombre);
+            linea.setCantidad(decimal(valores, "cantidad", null));
+            linea.setPrecioBase(decimal(valores, "precio_base", null));
+            linea.setPrecioUnitario(decimal(valores, "precio_unitario", linea.getPrecioBase()));
+            linea.setDescuento(decimal(valores, "descuento", BigDecimal.ZERO));
+            linea.setPorcentajeIva(decimal(valores, "porcentaje_iva", null));
+            linea.setPorcentajeRetencion(decimal(valores, "porcentaje_retencion", BigDecimal.ZERO));
+
+            if (linea.getPrecioBase() == null) {
+                throw new IllegalArgumentException("Línea " + linea.getNumeroLinea() + " sin precio_base");
+            }
+            lineas.add(linea);
+        }
+        factura.setLineas(lineas);
+
+        return factura;
+    }
+
+    private static Integer entero(Map<String, String> valores, String campo) {
+        String valor = valores.get(campo);
+        if (valor == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no válido en " + campo + ": " + valor);
+        }
+    }
+
+    private static BigDecimal decimal(Map<String, String> valores, String campo, BigDecimal porDefecto) {
+        String valor = valores.get(campo);
+        if (valor == null) {
+            return porDefecto;
+        }
+        try {
+            return new BigDecimal(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Valor no válido en " + campo + ": " + valor);
+        }
+    }
+
+    private static LocalDate fecha(Map<String, String> valores, String campo) {
+        String valor = valores.get(campo);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta " + campo);
+        }
+        try {
+            return valor.contains("/") ? LocalDate.parse(valor, FORMATO_FECHA_ES) : LocalDate.parse(valor);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Valor no válido en " + campo + ": " + valor);
+        }
+    }
+
+    private static String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (valor.contains(";") || valor.contains("\"")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
+    /**
+     * Pasa un nombre de campo de camelCase a snake_case (idFactura -> id_factura)
+     */
+    private static String normalizarCampo(String campo) {
+        return campo.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Valores leídos de una factura (cabecera y una entrada por línea) antes de convertirlos
+     */
+    private static class RegistroFactura {
+        final String posicion;
+        final Map<String, String> cabecera;
+        final List<Map<String, String>> lineas = new ArrayList<>();
+        String error;
+        Factura factura;
+
+        RegistroFactura(String posicion, Map<String, String> cabecera) {
+            this.posicion = posicion;
+            this.cabecera = cabecera;
+        }
+
+        String valor(String campo) {
+            return cabecera.get(campo);
+        }
+    }
+
+    /**
+     * Lector que devuelve las facturas del fichero de una en una (null al terminar)
+     */
+    private interface LectorFacturas extends Closeable {
+        RegistroFactura siguiente() throws IOException;
+    }
+
+    /**
+     * Lector CSV: agrupa las filas consecutivas con el mismo id_factura
+     */
+    private static class LectorCsv implements LectorFacturas {
+        private final BufferedReader reader;
+        private String[] columnas;
+        private char separador;
+        private int numLinea;
+
+        // Primera fila de la siguiente factura, ya leída
+        private Map<String, String> filaPendiente;
+        private int lineaPendiente;
+
+        LectorCsv(BufferedReader reader) throws IOException {
+            this.reader = reader;
+
+            String cabecera = leerLinea();
+            if (cabecera == null) {
+                return;
+            }
+            if (cabecera.startsWith("\uFEFF")) {
+                cabecera = cabecera.substring(1);
+            }
+
+            separador = cabecera.indexOf(';') >= 0 ? ';' : ',';
+            List<String> nombres = dividir(cabecera);
+            columnas = new String[nombres.size()];
+            for (int i = 0; i < columnas.length; i++) {
+                columnas[i] = normalizarCampo(nombres.get(i).trim());
+            }
+            filaPendiente = leerFila();
+            lineaPendiente = numLinea;
+        }
+
+        @Override
+        public RegistroFactura siguiente() throws IOException {
+            if (filaPendiente == null) {
+                return null;
+            }
+
+            Map<String, String> primera = filaPendiente;
+            int lineaInicio = lineaPendiente;
+            String id = primera.get("id_factura");
+
+            List<Map<String, String>> filas = new ArrayList<>();
+            filas.add(primera);
+
+            filaPendiente = null;
+            Map<String, String> fila;
+            while ((fila = leerFila()) != null) {
+                if (id == null || !id.equals(fila.get("id_factura"))) {
+                    filaPendiente = fila;
+                    lineaPendiente = numLinea;
+                    break;
+                }
+                filas.add(fila);
+            }
+
+            int lineaFin = lineaInicio + filas.size() - 1;
+            RegistroFactura registro = new RegistroFactura(
+                    lineaInicio == lineaFin ? "línea " + lineaInicio : "líneas " + lineaInicio + "-" + lineaFin,
+                    primera);
+            registro.lineas.addAll(filas);
+            return registro;
+        }
+
+        private Map<String, String> leerFila() throws IOException {
+            String linea;
+            do {
+                linea = leerLinea();
+                if (linea == null) {
+                    return null;
+                }
+            } while (linea.isBlank());
+
+            List<String> campos = dividir(linea);
+            Map<String, String> fila = new HashMap<>();
+            for (int i = 0; i < columnas.length && i < campos.size(); i++) {
+                String valor = campos.get(i).trim();
+                if (!valor.isEmpty()) {
+                    // Con ';' como separador se admite la coma decimal
+                    if (separador == ';' && valor.matches("-?\\d+,\\d+")) {
+                        valor = valor.replace(',', '.');
+                    }
+                    fila.put(columnas[i], valor);
+                }
+            }
+            return fila;
+        }
+
+        private String leerLinea() throws IOException {
+            String linea = reader.readLine();
+            if (linea != null) {
+                numLinea++;
+            }
+            return linea;
+        }
+
+        /**
+         * Divide una línea en campos respetando las comillas dobles
+         */
+        private List<String> dividir(String linea) {
+            List<String> campos = new ArrayList<>();
+            StringBuilder actual = new StringBuilder();
+            boolean entreComillas = false;
+
+            for (int i = 0; i < linea.length(); i++) {
+                char c = linea.charAt(i);
+                if (entreComillas) {
+                    if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                        actual.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        entreComillas = false;
+                    } else {
+                        actual.append(c);
+                    }
+                } else if (c == '"') {
+                    entreComillas = true;
+                } else if (c == separador) {
+                    campos.add(actual.toString());
+                    actual.setLength(0);
+                } else {
+                    actual.append(c);
+                }
+            }
+            campos.add(actual.toString());
+            return campos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    /**
+     * Lector JSON en streaming: lee cada objeto factura sin cargar el documento completo
+     */
+    private static class LectorJson implements LectorFacturas {
+        private final JsonParser parser;
+        private final boolean enArray;
+        private boolean primero = true;
+        private int numFactura;
+
+        LectorJson(BufferedReader reader) throws IOException {
+            this.parser = new JsonFactory().createParser(reader);
+            this.enArray = parser.nextToken() == JsonToken.START_ARRAY;
+        }
+
+        @Override
+        public RegistroFactura siguiente() throws IOException {
+            JsonToken token = primero && !enArray ? parser.currentToken() : parser.nextToken();
+            primero = false;
+
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token != JsonToken.START_OBJECT) {
+                throw new IOException("Se esperaba un objeto factura en " + parser.currentLocation());
+            }
+
+            numFactura++;
+            Map<String, String> cabecera = new HashMap<>();
+            RegistroFactura registro = new RegistroFactura("factura " + numFactura, cabecera);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = normalizarCampo(parser.currentName());
+                JsonToken valor = parser.nextToken();
+
+                if (campo.equals("lineas") && valor == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        registro.lineas.add(leerValores());
+                    }
+                } else if (valor.isScalarValue()) {
+                    if (valor != JsonToken.VALUE_NULL) {
+                        cabecera.put(campo, parser.getValueAsString());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+
+            return registro;
+        }
+
+        /**
+         * Lee los valores simples del objeto actual (una línea de factura)
+         */
+        private Map<String, String> leerValores() throws IOException {
+            Map<String, String> valores = new HashMap<>();
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String campo = normalizarCampo(parser.currentName());
+                JsonToken valor = parser.nextToken();
+
+                if (valor.isScalarValue()) {
+                    if (valor != JsonToken.VALUE_NULL) {
+                        valores.put(campo, parser.getValueAsString());
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            return valores;
+        }
+
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package es.upm.tfg.sifpyme.service;
+
+import com.itextpdf.text.Document;
+import com.itextpdf.text.DocumentException;
+import com.itextpdf.text.Element;
+import com.itextpdf.text.PageSize;
+import com.itextpdf.text.Paragraph;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import es.upm.tfg.sifpyme.model.dao.EmpresaDAO;
+import es.upm.tfg.sifpyme.model.dao.ResumenFacturacionDAO;
+import es.upm.tfg.sifpyme.model.entity.DesgloseIva;
+import es.upm.tfg.sifpyme.model.entity.Empresa;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Servicio de informes de IVA por periodo impositivo de una empresa: trimestral
+ * (modelo 303) o anual con desglose por trimestres (modelo 390).
+ * El desglose por tipo de IVA y de retención se lee de los resúmenes precalculados
+ * (Resumen_iva), sin recorrer las facturas ni sus líneas, y se exporta a PDF o Excel.
+ */
+public class InformeIvaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InformeIvaService.class);
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private static final String[] COLUMNAS = {
+        "Tipo IVA (%)", "Retención (%)", "Nº Facturas", "Base Imponible (€)", "Cuota IVA (€)",
+        "Retención (€)", "Total (€)"
+    };
+
+    private final ResumenFacturacionDAO resumenDAO;
+    private final EmpresaDAO empresaDAO;
+
+    public InformeIvaService() {
+        this.resumenDAO = new ResumenFacturacionDAO();
+        this.empresaDAO = new EmpresaDAO();
+    }
+
+    /**
+     * Calcula el informe de IVA de una empresa
+     *
+     * @param trimestre Trimestre de 1 a 4 (modelo 303), o null para el año completo (modelo 390)
+     * @throws SQLException si falla la consulta
+     */
+    public Informe generarInforme(int idEmpresa, int anio, Integer trimestre) throws SQLException {
+        if (trimestre != null && (trimestre < 1 || trimestre > 4)) {
+            throw new IllegalArgumentException("El trimestre debe estar entre 1 y 4");
+        }
+
+        Empresa empresa = empresaDAO.obtenerPorId(idEmpresa);
+        if (empresa == null) {
+            throw new IllegalArgumentException("No existe la empresa " + idEmpresa);
+        }
+
+        LocalDate desde = trimestre == null
+                ? LocalDate.of(anio, 1, 1)
+                : LocalDate.of(anio, (trimestre - 1) * 3 + 1, 1);
+        LocalDate hasta = trimestre == null
+                ? LocalDate.of(anio, 12, 31)
+                : desde.plusMonths(3).minusDays(1);
+
+        long inicio = System.currentTimeMillis();
+        List<DesgloseIva> desglose = resumenDAO.obtenerDesgloseIva(idEmpresa, YearMonth.from(desde),
+                YearMonth.from(hasta));
+
+        Informe informe = new Informe(empresa, anio, trimestre, desde, hasta, desglose);
+        logger.info("Informe de IVA {} de {} calculado en {} ms", informe.getDescripcionPeriodo(),
+                empresa.getRazonSocial(), System.currentTimeMillis() - inicio);
+        return informe;
+    }
+
+    // ==================== PDF ====================
+
+    /**
+     * Genera el PDF del informe y lo guarda en la ruta indicada
+     */
+    public String generarPDF(Informe informe, String rutaDestino) throws DocumentException, IOException {
+        crearDirectorio(rutaDestino);
+
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(rutaDestino))) {
+            generarPDF(informe, fos);
+
+            logger.info("Informe de IVA PDF generado en: {}", rutaDestino);
+            return rutaDestino;
+        }
+    }
+
+    /**
+     * Genera el PDF del informe en el stream indicado (no lo cierra)
+     */
+    public void generarPDF(Informe informe, OutputStream salida) throws DocumentException {
+        Document document = new Document(PageSize.A4.rotate(), 40, 40, 50, 50);
+
+        PdfWriter writer = PdfWriter.getInstance(document, salida);
+        writer.setCloseStream(false);
+        document.open();
+
+        Paragraph titulo = new Paragraph("Informe de IVA - Modelo " + informe.getModelo(), FuentesPDF.TITULO);
+        titulo.setSpacingAfter(5);
+        document.add(titulo);
+
+        Empresa empresa = informe.getEmpresa();
+        document.add(new Paragraph(empresa.getRazonSocial() + " - NIF: " + empresa.getNif(), FuentesPDF.SUBTITULO));
+        document.add(new Paragraph(String.format("Periodo: %s (del %s al %s)", informe.getDescripcionPeriodo(),
+                informe.getDesde().format(DATE_FORMATTER), informe.getHasta().format(DATE_FORMATTER)),
+                FuentesPDF.NORMAL));
+
+        if (informe.getDesglose().isEmpty()) {
+            document.add(new Paragraph(" ", FuentesPDF.NORMAL));
+            document.add(new Paragraph("No hay facturas emitidas en el periodo.", FuentesPDF.NORMAL));
+        } else {
+            agregarTablaPDF(document, "IVA devengado por tipo", informe.getPorTipo(), informe);
+
+            // En el anual, además, el detalle de cada trimestre
+            if (informe.esAnual()) {
+                for (int trimestre = 1; trimestre <= 4; trimestre++) {
+                    List<DesgloseIva> filas = informe.getTrimestre(trimestre);
+                    if (!filas.isEmpty()) {
+                        agregarTablaPDF(document, trimestre + "º trimestre", filas, null);
+                    }
+                }
+            }
+        }
+
+        Paragraph info = new Paragraph(
+                "Importes calculados a partir de las facturas emitidas. Documento generado por SifPyme",
+                FuentesPDF.PEQUENA);
+        info.setAlignment(Element.ALIGN_CENTER);
+        info.setSpacingBefore(20);
+        document.add(info);
+
+        document.close();
+    }
+
+    /**
+     * Añade una tabla de desglose; con 'totales' se añade la fila de totales del informe
+     */
+    private void agregarTablaPDF(Document document, String titulo, List<DesgloseIva> filas, Informe totales)
+            throws DocumentException {
+        Paragraph subtitulo = new Paragraph(titulo, FuentesPDF.NORMAL_BOLD);
+        subtitulo.setSpacingBefore(15);
+        subtitulo.setSpacingAfter(5);
+        document.add(subtitulo);
+
+        PdfPTable table = new PdfPTable(COLUMNAS.length);
+        table.setWidthPercentage(100);
+        table.setWidths(new float[] { 1.2f, 1.2f, 1.2f, 2, 2, 2, 2 });
+        table.setHeaderRows(1);
+
+        for (String columna : COLUMNAS) {
+            PdfPCell cell = new PdfPCell(new Phrase(columna, FuentesPDF.TABLA_HEADER));
+            cell.setBackgroundColor(FuentesPDF.COLOR_PRIMARIO);
+            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+            cell.setPadding(6);
+            table.addCell(cell);
+        }
+
+        for (DesgloseIva fila : filas) {
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getPorcentajeIva()), false));
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getPorcentajeRetencion()), false));
+            table.addCell(crearCeldaPDF(String.valueOf(fila.getNumFacturas()), false));
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getBaseImponible()), false));
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getCuotaIva()), false));
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getImporteRetencion()), false));
+            table.addCell(crearCeldaPDF(formatearNumero(fila.getTotal()), false));
+        }
+
+        if (totales != null) {
+            PdfPCell etiqueta = crearCeldaPDF("TOTAL", true);
+            etiqueta.setColspan(3);
+            etiqueta.setHorizontalAlignment(Element.ALIGN_LEFT);
+            table.addCell(etiqueta);
+            table.addCell(crearCeldaPDF(formatearNumero(totales.getBaseImponible()), true));
+            table.addCell(crearCeldaPDF(formatearNumero(totales.getCuotaIva()), true));
+            table.addCell(crearCeldaPDF(formatearNumero(totales.getImporteRetencion()), true));
+            table.addCell(crearCeldaPDF(formatearNumero(totales.getTotal()), true));
+        }
+
+        document.add(table);
+    }
+
+    private PdfPCell crearCeldaPDF(String texto, boolean esTotal) {
+        PdfPCell cell = new PdfPCell(new Phrase(texto, esTotal ? FuentesPDF.NORMAL_BOLD : FuentesPDF.TABLA));
+        cell.setPadding(6);
+        cell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        if (esTotal) {
+            cell.setBackgroundColor(FuentesPDF.COLOR_SECUNDARIO);
+        }
+        return cell;
+    }
+
+    // ==================== EXCEL ====================
+
+    /**
+     * Genera el Excel del informe y lo guarda en la ruta indicada
+     */
+    public String generarExcel(Informe informe, String rutaDestino) throws IOException {
+        crearDirectorio(rutaDestino);
+
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(rutaDestino))) {
+            generarExcel(informe, fos);
+
+            logger.info("Informe de IVA Excel generado en: {}", rutaDestino);
+            return rutaDestino;
+        }
+    }
+
+    /**
+     * Genera el Excel del informe en el stream indicado (no lo cierra)
+     */
+    public void generarExcel(Informe informe, OutputStream salida) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Modelo " + informe.getModelo());
+            for (int i = 0; i < COLUMNAS.length; i++) {
+                sheet.setColumnWidth(i, 5000);
+            }
+
+            CellStyle estiloTitulo = workbook.createCellStyle();
+            Font fuenteTitulo = workbook.createFont();
+            fuenteTitulo.setBold(true);
+            fuenteTitulo.setFontHeightInPoints((short) 14);
+            estiloTitulo.setFont(fuenteTitulo);
+
+            CellStyle estiloHeader = workbook.createCellStyle();
+            Font fuenteHeader = workbook.createFont();
+            fuenteHeader.setBold(true);
+            fuenteHeader.setColor(IndexedColors.WHITE.getIndex());
+            estiloHeader.setFont(fuenteHeader);
+            estiloHeader.setFillForegroundColor(IndexedColors.DARK_BLUE.getIndex());
+            estiloHeader.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            estiloHeader.setAlignment(HorizontalAlignment.CENTER);
+
+            CellStyle estiloMoneda = workbook.createCellStyle();
+            estiloMoneda.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+
+            CellStyle estiloTotal = workbook.createCellStyle();
+            estiloTotal.cloneStyleFrom(estiloMoneda);
+            Font fuenteTotal = workbook.createFont();
+            fuenteTotal.setBold(true);
+            estiloTotal.setFont(fuenteTotal);
+            estiloTotal.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            estiloTotal.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+            Empresa empresa = informe.getEmpresa();
+            int fila = 0;
+            crearFilaTexto(sheet, fila++, estiloTitulo, "Informe de IVA - Modelo " + informe.getModelo());
+            crearFilaTexto(sheet, fila++, null, empresa.getRazonSocial() + " - NIF: " + empresa.getNif());
+            crearFilaTexto(sheet, fila++, null, String.format("Periodo: %s (del %s al %s)",
+                    informe.getDescripcionPeriodo(), informe.getDesde().format(DATE_FORMATTER),
+                    informe.getHasta().format(DATE_FORMATTER)));
+            fila++;
+
+            fila = agregarTablaExcel(sheet, fila, "IVA devengado por tipo", informe.getPorTipo(), informe,
+                    estiloTitulo, estiloHeader, estiloMoneda, estiloTotal);
+
+            if (informe.esAnual()) {
+                for (int trimestre = 1; trimestre <= 4; trimestre++) {
+                    List<DesgloseIva> filas = informe.getTrimestre(trimestre);
+                    if (!filas.isEmpty()) {
+                        fila = agregarTablaExcel(sheet, fila, trimestre + "º trimestre", filas, null,
+                                estiloTitulo, estiloHeader, estiloMoneda, estiloTotal);
+                    }
+                }
+            }
+
+            workbook.write(salida);
+        }
+    }
+
+    private int agregarTablaExcel(Sheet sheet, int fila, String titulo, List<DesgloseIva> filas, Informe totales,
+                                  CellStyle estiloTitulo, CellStyle estiloHeader, CellStyle estiloMoneda,
+                                  CellStyle estiloTotal) {
+        crearFilaTexto(sheet, fila++, estiloTitulo, titulo);
+
+        Row header = sheet.createRow(fila++);
+        for (int i = 0; i < COLUMNAS.length; i++) {
+            Cell cell = header.createCell(i);
+            cell.setCellValue(COLUMNAS[i]);
+            cell.setCellStyle(estiloHeader);
+        }
+
+        for (DesgloseIva desglose : filas) {
+            Row row = sheet.createRow(fila++);
+            crearCeldaNumero(row, 0, desglose.getPorcentajeIva(), estiloMoneda);
+            crearCeldaNumero(row, 1, desglose.getPorcentajeRetencion(), estiloMoneda);
+            row.createCell(2).setCellValue(desglose.getNumFacturas());
+            crearCeldaNumero(row, 3, desglose.getBaseImponible(), estiloMoneda);
+            crearCeldaNumero(row, 4, desglose.getCuotaIva(), estiloMoneda);
+            crearCeldaNumero(row, 5, desglose.getImporteRetencion(), estiloMoneda);
+            crearCeldaNumero(row, 6, desglose.getTotal(), estiloMoneda);
+        }
+
+        if (totales != null) {
+            Row row = sheet.createRow(fila++);
+            Cell etiqueta = row.createCell(0);
+            etiqueta.setCellValue("TOTAL");
+            etiqueta.setCellStyle(estiloTotal);
+            crearCeldaNumero(row, 3, totales.getBaseImponible(), estiloTotal);
+            crearCeldaNumero(row, 4, totales.getCuotaIva(), estiloTotal);
+            crearCeldaNumero(row, 5, totales.getImporteRetencion(), estiloTotal);
+            crearCeldaNumero(row, 6, totales.getTotal(), estiloTotal);
+        }
+
+        return fila + 1;
+    }
+
+    private void crearFilaTexto(Sheet sheet, int fila, CellStyle estilo, String texto) {
+        Cell cell = sheet.createRow(fila).createCell(0);
+        cell.setCellValue(texto);
+        if (estilo != null) {
+            cell.setCellStyle(estilo);
+        }
+    }
+
+    private void crearCeldaNumero(Row row, int columna, BigDecimal valor, CellStyle estilo) {
+        Cell cell = row.createCell(columna);
+        cell.setCellValue(valor != null ? valor.doubleValue() : 0);
+        cell.setCellStyle(estilo);
+    }
+
+    // ==================== MÉTODOS AUXILIARES ====================
+
+    private void crearDirectorio(String rutaDestino) throws IOException {
+        Path directorio = Paths.get(rutaDestino).getParent();
+        if (directorio != null && !Files.exists(directorio)) {
+            Files.createDirectories(directorio);
+        }
+    }
+
+    private String formatearNumero(BigDecimal valor) {
+        if (valor == null)
+            return "0.00";
+        return String.format("%.2f", valor).replace(",", ".");
+    }
+
+    /**
+     * Nombre de archivo del informe, p. ej. IVA_303_2024_1T_B12345678.pdf
+     *
+     * @param trimestre Trimestre de 1 a 4, o null para el año completo
+     */
+    public String generarNombreArchivo(Empresa empresa, int anio, Integer trimestre, String extension) {
+        return String.format("IVA_%s_%d%s_%s.%s",
+                trimestre == null ? "390" : "303",
+                anio,
+                trimestre == null ? "" : "_" + trimestre + "T",
+                empresa.getNif().replaceAll("[\\\\/:*?\"<>|]", "-"),
+                extension);
+    }
+
+    /**
+     * Informe de IVA calculado: desglose por trimestre, tipo de IVA y tipo de retención
+     */
+    public static class Informe {
+        private final Empresa empresa;
+        private final int anio;
+        private final Integer trimestre;
+        private final LocalDate desde;
+        private final LocalDate hasta;
+        private final List<DesgloseIva> desglose;
+
+        public Informe(Empresa empresa, int anio, Integer trimestre, LocalDate desde, LocalDate hasta,
+                       List<DesgloseIva> desglose) {
+            this.empresa = empresa;
+            this.anio = anio;
+            this.trimestre = trimestre;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.desglose = Collections.unmodifiableList(new ArrayList<>(desglose));
+        }
+
+        public Empresa getEmpresa() { return empresa; }
+        public int getAnio() { return anio; }
+        public Integer getTrimestre() { return trimestre; }
+        public LocalDate getDesde() { return desde; }
+        public LocalDate getHasta() { return hasta; }
+        public List<DesgloseIva> getDesglose() { return desglose; }
+
+        public boolean esAnual() {
+            return trimestre == null;
+        }
+
+        public String getModelo() {
+            return esAnual() ? "390" : "303";
+        }
+
+        public String getDescripcionPeriodo() {
+            return esAnual() ? "Ejercicio " + anio : trimestre + "T " + anio;
+        }
+
+        /**
+         * Filas de un trimestre
+         */
+        public List<DesgloseIva> getTrimestre(int numero) {
+            return desglose.stream().filter(fila -> fila.getTrimestre() == numero).toList();
+        }
+
+        /**
+         * Desglose acumulado del periodo por tipo de IVA y de retención (sin separar trimestres)
+         */
+        public List<DesgloseIva> getPorTipo() {
+            Map<List<BigDecimal>, DesgloseIva> porTipo = new LinkedHashMap<>();
+
+            for (DesgloseIva fila : desglose) {
+                List<BigDecimal> clave = List.of(fila.getPorcentajeIva().stripTrailingZeros(),
+                        fila.getPorcentajeRetencion().stripTrailingZeros());
+
+                DesgloseIva acumulado = porTipo.computeIfAbsent(clave, k -> {
+                    DesgloseIva nuevo = new DesgloseIva();
+                    nuevo.setPorcentajeIva(fila.getPorcentajeIva());
+                    nuevo.setPorcentajeRetencion(fila.getPorcentajeRetencion());
+                    return nuevo;
+                });
+                acumulado.setNumFacturas(acumulado.getNumFacturas() + fila.getNumFacturas());
+                acumulado.setNumLineas(acumulado.getNumLineas() + fila.getNumLineas());
+                acumulado.setBaseImponible(acumulado.getBaseImponible().add(fila.getBaseImponible()));
+                acumulado.setCuotaIva(acumulado.getCuotaIva().add(fila.getCuotaIva()));
+                acumulado.setImporteRetencion(acumulado.getImporteRetencion().add(fila.getImporteRetencion()));
+            }
+
+            List<DesgloseIva> resultado = new ArrayList<>(porTipo.values());
+            resultado.sort(Comparator.comparing(DesgloseIva::getPorcentajeIva).reversed()
+                    .thenComparing(DesgloseIva::getPorcentajeRetencion));
+            return resultado;
+        }
+
+        public BigDecimal getBaseImponible() { return sumar(DesgloseIva::getBaseImponible); }
+        public BigDecimal getCuotaIva() { return sumar(DesgloseIva::getCuotaIva); }
+        public BigDecimal getImporteRetencion() { return sumar(DesgloseIva::getImporteRetencion); }
+        public BigDecimal getTotal() { return sumar(DesgloseIva::getTotal); }
+
+        private BigDecimal sumar(Function<DesgloseIva, BigDecimal> importe) {
+            return desglose.stream().map(importe).reduce(BigDecimal.ZERO, BigDecimal::add);
+        }
+    }
+}
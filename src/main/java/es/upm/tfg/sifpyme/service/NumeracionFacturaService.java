@@ -0,0 +1,111 @@
+package es.upm.tfg.sifpyme.service;
+
+import es.upm.tfg.sifpyme.model.dao.ContadorFacturaDAO;
+import es.upm.tfg.sifpyme.model.dao.FacturaDAO;
+
+import java.sql.SQLException;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Servicio de numeración de facturas por serie.
+ * Los IDs tienen el formato serie + "-" + número con al menos 4 cifras (p. ej. FAC1-2025-0001).
+ * Cada llamada reserva un bloque de números con una sola actualización del contador,
+ * por lo que varios hilos pueden emitir facturas en paralelo sin repetir IDs.
+ * El contador es por serie porque id_factura es único entre todas las empresas; para que
+ * cada empresa tenga su numeración correlativa, la serie por defecto incluye la empresa.
+ */
+public class NumeracionFacturaService {
+
+    private static final String SEPARADOR = "-";
+    private static final int LONGITUD_MAX_ID = 20;
+
+    private final ContadorFacturaDAO contadorDAO;
+    private final FacturaDAO facturaDAO;
+
+    public NumeracionFacturaService() {
+        this.contadorDAO = new ContadorFacturaDAO();
+        this.facturaDAO = new FacturaDAO();
+    }
+
+    /**
+     * Serie por defecto de una empresa: FAC, el ID de la empresa, "-" y el año en curso
+     * (p. ej. FAC1-2025)
+     */
+    public static String serieActual(int idEmpresa) {
+        return "FAC" + idEmpresa + SEPARADOR + Year.now().getValue();
+    }
+
+    /**
+     * Reserva y devuelve el siguiente ID de la serie
+     *
+     * @throws SQLException si no se puede actualizar el contador
+     */
+    public String siguienteId(String serie) throws SQLException {
+        return reservarIds(serie, 1).get(0);
+    }
+
+    /**
+     * Reserva un bloque de 'cantidad' IDs consecutivos de la serie para uso exclusivo
+     * del llamante (p. ej. un hilo de importación). Se saltan los números cuyo ID ya
+     * existe porque se introdujo a mano. Los IDs reservados que no se lleguen a usar
+     * quedan como huecos en la numeración.
+     *
+     * @throws SQLException si no se puede actualizar el contador
+     * @throws IllegalArgumentException si la serie no deja sitio para el número
+     */
+    public List<String> reservarIds(String serie, int cantidad) throws SQLException {
+        validarSerie(serie);
+        List<String> ids = new ArrayList<>(cantidad);
+
+        while (ids.size() < cantidad) {
+            int pendientes = cantidad - ids.size();
+            long primero = contadorDAO.reservarBloque(serie, SEPARADOR, pendientes);
+
+            List<String> bloque = new ArrayList<>(pendientes);
+            for (long numero = primero; numero < primero + pendientes; numero++) {
+                bloque.add(formatearId(serie, numero));
+            }
+
+            Set<String> existentes = facturaDAO.obtenerIdsExistentes(bloque);
+            for (String id : bloque) {
+                if (!existentes.contains(id)) {
+                    ids.add(id);
+                }
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * Devuelve el ID que se asignaría a continuación, sin reservarlo
+     */
+    public String consultarSiguienteId(String serie) {
+        validarSerie(serie);
+        return formatearId(serie, contadorDAO.consultarSiguiente(serie, SEPARADOR));
+    }
+
+    private String formatearId(String serie, long numero) {
+        String id = serie + SEPARADOR + String.format("%04d", numero);
+        if (id.length() > LONGITUD_MAX_ID) {
+            throw new IllegalArgumentException(
+                "La serie " + serie + " ha agotado los números disponibles"
+            );
+        }
+        return id;
+    }
+
+    private void validarSerie(String serie) {
+        if (serie == null || serie.isBlank()) {
+            throw new IllegalArgumentException("La serie no puede estar vacía");
+        }
+        if (serie.length() + SEPARADOR.length() + 4 > LONGITUD_MAX_ID) {
+            throw new IllegalArgumentException(
+                "La serie no puede exceder " + (LONGITUD_MAX_ID - SEPARADOR.length() - 4) + " caracteres"
+            );
+        }
+    }
+}
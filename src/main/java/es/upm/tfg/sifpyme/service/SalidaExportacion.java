@@ -0,0 +1,105 @@
+package es.upm.tfg.sifpyme.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Utilidades de salida comunes a las exportaciones de facturas (PDF y Excel):
+ * escritura en canales, generación a byte[] con búferes reutilizados y directorio
+ * de destino por defecto.
+ */
+public final class SalidaExportacion {
+
+    // Directorio por defecto configurable con -Dexportacion.directorio=...
+    public static final String PROPIEDAD_DIRECTORIO = "exportacion.directorio";
+
+    private static final int TAMANO_BUFER_INICIAL = 64 * 1024;
+    private static final int TAMANO_BUFER_CANAL = 16 * 1024;
+
+    // Los búferes que crezcan por encima de este tamaño no se guardan para reutilizar
+    private static final int TAMANO_MAX_RETENIDO = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<Bufer> BUFERES = ThreadLocal.withInitial(Bufer::new);
+
+    private SalidaExportacion() {
+    }
+
+    /**
+     * Escritura de un documento en un stream, que no debe cerrarse
+     */
+    @FunctionalInterface
+    interface Escritura<E extends Exception> {
+        void escribir(OutputStream salida) throws E;
+    }
+
+    /**
+     * Directorio de las exportaciones sin ruta explícita: la propiedad del sistema
+     * exportacion.directorio o, si no está definida, ~/Downloads
+     */
+    public static Path directorioPorDefecto() {
+        String directorio = System.getProperty(PROPIEDAD_DIRECTORIO);
+        if (directorio != null && !directorio.isBlank()) {
+            return Paths.get(directorio);
+        }
+        return Paths.get(System.getProperty("user.home"), "Downloads");
+    }
+
+    /**
+     * Genera el documento en un búfer del hilo actual, que se reutiliza entre llamadas,
+     * y devuelve una copia exacta de su contenido
+     */
+    static <E extends Exception> byte[] aBytes(Escritura<E> escritura) throws E {
+        Bufer bufer = BUFERES.get();
+
+        // Llamada anidada en el mismo hilo: usar un búfer propio
+        if (bufer.enUso) {
+            Bufer propio = new Bufer();
+            escritura.escribir(propio);
+            return propio.toByteArray();
+        }
+
+        bufer.enUso = true;
+        try {
+            escritura.escribir(bufer);
+            return bufer.toByteArray();
+
+        } finally {
+            bufer.enUso = false;
+            if (bufer.capacidad() > TAMANO_MAX_RETENIDO) {
+                BUFERES.remove();
+            } else {
+                bufer.reset();
+            }
+        }
+    }
+
+    /**
+     * Escribe el documento en un canal (fichero, socket...) a través de un búfer.
+     * El canal no se cierra.
+     */
+    static <E extends Exception> void aCanal(WritableByteChannel canal, Escritura<E> escritura)
+            throws E, IOException {
+        BufferedOutputStream salida = new BufferedOutputStream(Channels.newOutputStream(canal), TAMANO_BUFER_CANAL);
+        escritura.escribir(salida);
+        // Sin close(): cerraría también el canal
+        salida.flush();
+    }
+
+    private static class Bufer extends ByteArrayOutputStream {
+        private boolean enUso;
+
+        Bufer() {
+            super(TAMANO_BUFER_INICIAL);
+        }
+
+        int capacidad() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package es.upm.tfg.sifpyme.service;
+
+import es.upm.tfg.sifpyme.model.entity.Factura;
+import es.upm.tfg.sifpyme.model.entity.LineaFactura;
+
+/**
+ * Reglas de validación de los datos de una factura antes de guardarla.
+ * Las usan tanto el alta manual (FacturaController) como la importación masiva.
+ */
+public class ValidacionFacturaService {
+
+    public static final int LONGITUD_MAX_ID = 20;
+
+    /**
+     * Valida una factura y sus líneas.
+     *
+     * @param factura La factura a validar
+     * @param idObligatorio Si es false se admite una factura sin ID (se numerará al guardarla)
+     * @return El motivo por el que la factura no es válida, o null si es válida
+     */
+    public String validar(Factura factura, boolean idObligatorio) {
+        if (factura == null) {
+            return "Factura es null";
+        }
+
+        boolean sinId = factura.getIdFactura() == null || factura.getIdFactura().trim().isEmpty();
+
+        if (sinId && idObligatorio) {
+            return "ID de factura vacío";
+        }
+
+        if (!sinId && factura.getIdFactura().length() > LONGITUD_MAX_ID) {
+            return "ID de factura excede " + LONGITUD_MAX_ID + " caracteres";
+        }
+
+        if (factura.getIdEmpresa() == null) {
+            return "Empresa no especificada";
+        }
+
+        if (factura.getIdCliente() == null) {
+            return "Cliente no especificado";
+        }
+
+        if (factura.getMetodoPago() == null || factura.getMetodoPago().trim().isEmpty()) {
+            return "Método de pago vacío";
+        }
+
+        if (factura.getLineas() == null || factura.getLineas().isEmpty()) {
+            return "Factura sin líneas";
+        }
+
+        // Validar cada línea
+        for (LineaFactura linea : factura.getLineas()) {
+            if (linea.getCantidad() == null || linea.getCantidad().signum() <= 0) {
+                return "Cantidad inválida en línea";
+            }
+            if (linea.getPrecioUnitario() == null || linea.getPrecioUnitario().signum() < 0) {
+                return "Precio unitario inválido en línea";
+            }
+            if (linea.getPorcentajeIva() == null || linea.getPorcentajeIva().signum() < 0) {
+                return "Porcentaje de IVA inválido en línea";
+            }
+        }
+
+        return null;
+    }
+}
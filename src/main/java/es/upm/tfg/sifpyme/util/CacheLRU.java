@@ -0,0 +1,190 @@
+package es.upm.tfg.sifpyme.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caché de lectura acotada con expulsión LRU (la entrada usada hace más tiempo sale primero)
+ * y estadísticas de aciertos y fallos. Pensada para datos maestros que cambian poco
+ * (empresas, clientes, productos): los DAO la consultan antes de ir a la base de datos
+ * e invalidan las entradas al modificarlas.
+ *
+ * Se guardan y devuelven copias de los valores, de modo que un objeto modificado en
+ * pantalla y no guardado no altera la caché. Los valores null (no encontrados) no se guardan.
+ * Es segura entre hilos.
+ */
+public class CacheLRU<K, V> {
+
+    private final String nombre;
+    private final int capacidad;
+    private final UnaryOperator<V> copia;
+    private final LinkedHashMap<K, V> entradas;
+
+    // Se incrementa en cada invalidación; una carga iniciada antes no se guarda
+    private long generacion;
+
+    private long aciertos;
+    private long fallos;
+    private long expulsiones;
+
+    /**
+     * @param nombre Nombre para las trazas y estadísticas
+     * @param capacidad Número máximo de entradas
+     * @param copia Función que copia un valor (p. ej. el constructor de copia de la entidad)
+     */
+    public CacheLRU(String nombre, int capacidad, UnaryOperator<V> copia) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la caché debe ser positiva");
+        }
+        this.nombre = nombre;
+        this.capacidad = capacidad;
+        this.copia = copia;
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> mayor) {
+                if (size() > CacheLRU.this.capacidad) {
+                    expulsiones++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Devuelve el valor de la clave, cargándolo con 'cargador' si no está en la caché.
+     * La carga se hace fuera del bloqueo para no serializar las consultas a la base de datos.
+     */
+    public V obtener(K clave, Function<K, V> cargador) {
+        long generacionCarga;
+
+        synchronized (this) {
+            V valor = entradas.get(clave);
+            if (valor != null) {
+                aciertos++;
+                return copia.apply(valor);
+            }
+            fallos++;
+            generacionCarga = generacion;
+        }
+
+        V cargado = cargador.apply(clave);
+        if (cargado != null) {
+            guardar(clave, cargado, generacionCarga);
+        }
+        return cargado;
+    }
+
+    /**
+     * Devuelve los valores de varias claves. Las que no están en la caché se cargan
+     * todas a la vez con 'cargador' (p. ej. una consulta IN).
+     */
+    public Map<K, V> obtenerTodos(Collection<K> claves, Function<Collection<K>, Map<K, V>> cargador) {
+        Map<K, V> resultado = new HashMap<>();
+        List<K> pendientes = new ArrayList<>();
+        long generacionCarga;
+
+        synchronized (this) {
+            for (K clave : claves) {
+                V valor = entradas.get(clave);
+                if (valor != null) {
+                    aciertos++;
+                    resultado.put(clave, copia.apply(valor));
+                } else {
+                    fallos++;
+                    pendientes.add(clave);
+                }
+            }
+            generacionCarga = generacion;
+        }
+
+        if (!pendientes.isEmpty()) {
+            Map<K, V> cargados = cargador.apply(pendientes);
+            for (Map.Entry<K, V> entrada : cargados.entrySet()) {
+                guardar(entrada.getKey(), entrada.getValue(), generacionCarga);
+                resultado.put(entrada.getKey(), entrada.getValue());
+            }
+        }
+
+        return resultado;
+    }
+
+    /**
+     * Carga de golpe los valores de 'cargador' (p. ej. al arrancar, en segundo plano) sin
+     * contarlos como aciertos ni fallos. No sustituye las entradas que ya estén en la caché
+     * y no guarda nada si hubo una invalidación durante la carga.
+     * @return Número de valores guardados
+     */
+    public int precargar(Supplier<Map<K, V>> cargador) {
+        long generacionCarga;
+        synchronized (this) {
+            generacionCarga = generacion;
+        }
+
+        Map<K, V> cargados = cargador.get();
+
+        synchronized (this) {
+            if (generacionCarga != generacion) {
+                return 0;
+            }
+            int guardados = 0;
+            for (Map.Entry<K, V> entrada : cargados.entrySet()) {
+                if (entrada.getValue() != null && !entradas.containsKey(entrada.getKey())) {
+                    entradas.put(entrada.getKey(), copia.apply(entrada.getValue()));
+                    guardados++;
+                }
+            }
+            return guardados;
+        }
+    }
+
+    private synchronized void guardar(K clave, V valor, long generacionCarga) {
+        if (generacionCarga == generacion) {
+            entradas.put(clave, copia.apply(valor));
+        }
+    }
+
+    /**
+     * Elimina una entrada (al actualizar o borrar el registro)
+     */
+    public synchronized void invalidar(K clave) {
+        generacion++;
+        entradas.remove(clave);
+    }
+
+    /**
+     * Vacía la caché (al modificar varios registros a la vez)
+     */
+    public synchronized void invalidarTodo() {
+        generacion++;
+        entradas.clear();
+    }
+
+    public String getNombre() { return nombre; }
+    public int getCapacidad() { return capacidad; }
+    public synchronized int getTamano() { return entradas.size(); }
+    public synchronized long getAciertos() { return aciertos; }
+    public synchronized long getFallos() { return fallos; }
+    public synchronized long getExpulsiones() { return expulsiones; }
+
+    /**
+     * Proporción de consultas servidas desde la caché (0 si aún no hay consultas)
+     */
+    public synchronized double getTasaAciertos() {
+        long total = aciertos + fallos;
+        return total == 0 ? 0 : (double) aciertos / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Caché %s: %d/%d entradas, %d aciertos, %d fallos (%.1f%%), %d expulsiones",
+                nombre, entradas.size(), capacidad, aciertos, fallos, getTasaAciertos() * 100, expulsiones);
+    }
+}
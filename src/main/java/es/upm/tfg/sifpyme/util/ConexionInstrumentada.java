@@ -0,0 +1,205 @@
+package es.upm.tfg.sifpyme.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Envoltorios de Connection, Statement y ResultSet que anotan en MetricasBD el tiempo
+ * de cada ejecución, las filas leídas o modificadas y los errores.
+ * El resto de métodos se delegan tal cual en el objeto JDBC original.
+ */
+final class ConexionInstrumentada {
+
+    private static final String LOTE_SENTENCIAS = "(lote de sentencias)";
+
+    private ConexionInstrumentada() {
+    }
+
+    /**
+     * Envuelve una conexión del pool; cerrar el envoltorio la devuelve al pool
+     */
+    static Connection envolver(Connection conexion, MetricasBD metricas) {
+        return (Connection) Proxy.newProxyInstance(ConexionInstrumentada.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, new ManejadorConexion(conexion, metricas));
+    }
+
+    private static Object invocar(Object destino, Method metodo, Object[] args) throws Throwable {
+        try {
+            return metodo.invoke(destino, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * equals, hashCode y toString del propio envoltorio (null si el método es otro)
+     */
+    private static Object metodoObject(Object proxy, Object destino, Method metodo, Object[] args) {
+        switch (metodo.getName()) {
+            case "equals":
+                return args != null && args.length == 1 && proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Instrumentada[" + destino + "]";
+            default:
+                return null;
+        }
+    }
+
+    private static final class ManejadorConexion implements InvocationHandler {
+        private final Connection conexion;
+        private final MetricasBD metricas;
+
+        ManejadorConexion(Connection conexion, MetricasBD metricas) {
+            this.conexion = conexion;
+            this.metricas = metricas;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            if (metodo.getDeclaringClass() == Object.class) {
+                return metodoObject(proxy, conexion, metodo, args);
+            }
+
+            Object resultado = invocar(conexion, metodo, args);
+
+            switch (metodo.getName()) {
+                case "prepareStatement":
+                    return envolverSentencia(proxy, resultado, PreparedStatement.class,
+                            metricas.metrica(MetricasBD.normalizar((String) args[0])));
+                case "prepareCall":
+                    return envolverSentencia(proxy, resultado, CallableStatement.class,
+                            metricas.metrica(MetricasBD.normalizar((String) args[0])));
+                case "createStatement":
+                    return envolverSentencia(proxy, resultado, Statement.class, null);
+                default:
+                    return resultado;
+            }
+        }
+
+        private Object envolverSentencia(Object proxy, Object sentencia, Class<?> tipo,
+                                         MetricasBD.MetricaSentencia metrica) {
+            return Proxy.newProxyInstance(ConexionInstrumentada.class.getClassLoader(), new Class<?>[] { tipo },
+                    new ManejadorSentencia((Statement) sentencia, (Connection) proxy, metricas, metrica));
+        }
+    }
+
+    private static final class ManejadorSentencia implements InvocationHandler {
+        private final Statement sentencia;
+        private final Connection conexion;
+        private final MetricasBD metricas;
+        // null en los Statement simples: el SQL llega en cada execute
+        private final MetricasBD.MetricaSentencia metricaPreparada;
+
+        ManejadorSentencia(Statement sentencia, Connection conexion, MetricasBD metricas,
+                           MetricasBD.MetricaSentencia metricaPreparada) {
+            this.sentencia = sentencia;
+            this.conexion = conexion;
+            this.metricas = metricas;
+            this.metricaPreparada = metricaPreparada;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            if (metodo.getDeclaringClass() == Object.class) {
+                return metodoObject(proxy, sentencia, metodo, args);
+            }
+
+            String nombre = metodo.getName();
+            if (nombre.startsWith("execute")) {
+                return ejecutar(proxy, metodo, args);
+            }
+            if (nombre.equals("getConnection")) {
+                return conexion;
+            }
+
+            Object resultado = invocar(sentencia, metodo, args);
+            if (nombre.equals("getResultSet") && resultado != null) {
+                return envolverResultados(proxy, (ResultSet) resultado, metrica(args));
+            }
+            return resultado;
+        }
+
+        private Object ejecutar(Object proxy, Method metodo, Object[] args) throws Throwable {
+            MetricasBD.MetricaSentencia metrica = metodo.getName().equals("executeBatch") && metricaPreparada == null
+                    ? metricas.metrica(LOTE_SENTENCIAS)
+                    : metrica(args);
+
+            long inicio = System.nanoTime();
+            Object resultado;
+            try {
+                resultado = invocar(sentencia, metodo, args);
+            } catch (Throwable e) {
+                metrica.registrar(System.nanoTime() - inicio, true);
+                throw e;
+            }
+            metrica.registrar(System.nanoTime() - inicio, false);
+
+            if (resultado instanceof ResultSet) {
+                return envolverResultados(proxy, (ResultSet) resultado, metrica);
+            }
+            if (resultado instanceof Integer || resultado instanceof Long) {
+                metrica.sumarFilas(Math.max(0, ((Number) resultado).longValue()));
+            } else if (resultado instanceof int[]) {
+                for (int filas : (int[]) resultado) {
+                    metrica.sumarFilas(Math.max(0, filas));
+                }
+            } else if (resultado instanceof long[]) {
+                for (long filas : (long[]) resultado) {
+                    metrica.sumarFilas(Math.max(0, filas));
+                }
+            }
+            return resultado;
+        }
+
+        private MetricasBD.MetricaSentencia metrica(Object[] args) {
+            if (metricaPreparada != null) {
+                return metricaPreparada;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            return metricas.metrica(MetricasBD.normalizar(sql));
+        }
+
+        private Object envolverResultados(Object proxy, ResultSet resultados, MetricasBD.MetricaSentencia metrica) {
+            return Proxy.newProxyInstance(ConexionInstrumentada.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class },
+                    new ManejadorResultados(resultados, (Statement) proxy, metrica));
+        }
+    }
+
+    private static final class ManejadorResultados implements InvocationHandler {
+        private final ResultSet resultados;
+        private final Statement sentencia;
+        private final MetricasBD.MetricaSentencia metrica;
+
+        ManejadorResultados(ResultSet resultados, Statement sentencia, MetricasBD.MetricaSentencia metrica) {
+            this.resultados = resultados;
+            this.sentencia = sentencia;
+            this.metrica = metrica;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+            if (metodo.getDeclaringClass() == Object.class) {
+                return metodoObject(proxy, resultados, metodo, args);
+            }
+            if (metodo.getName().equals("getStatement")) {
+                return sentencia;
+            }
+
+            Object resultado = invocar(resultados, metodo, args);
+            if (Boolean.TRUE.equals(resultado) && metodo.getName().equals("next")) {
+                metrica.sumarFila();
+            }
+            return resultado;
+        }
+    }
+}
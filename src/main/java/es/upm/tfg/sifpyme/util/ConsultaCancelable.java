@@ -0,0 +1,60 @@
+package es.upm.tfg.sifpyme.util;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Permite cancelar desde otro hilo una consulta que se está ejecutando
+ * El DAO registra la sentencia antes de ejecutarla y la libera al terminar;
+ * cancelar() aborta la sentencia en curso en la base de datos
+ */
+public class ConsultaCancelable {
+
+    // SQLState estándar de "statement was canceled"
+    private static final String SQLSTATE_CANCELADA = "57014";
+
+    private Statement sentencia;
+    private boolean cancelada = false;
+
+    /**
+     * Registra la sentencia que se va a ejecutar. Si la consulta ya fue cancelada, lanza la excepción
+     */
+    public synchronized void registrar(Statement sentencia) throws SQLException {
+        if (cancelada) {
+            throw new SQLException("Consulta cancelada", SQLSTATE_CANCELADA);
+        }
+        this.sentencia = sentencia;
+    }
+
+    /**
+     * Libera la sentencia registrada tras su ejecución
+     */
+    public synchronized void liberar() {
+        this.sentencia = null;
+    }
+
+    /**
+     * Cancela la consulta en curso, si la hay, y las que se intenten registrar después
+     */
+    public synchronized void cancelar() {
+        cancelada = true;
+        if (sentencia != null) {
+            try {
+                sentencia.cancel();
+            } catch (SQLException e) {
+                // La sentencia puede haber terminado ya: no hay nada que cancelar
+            }
+        }
+    }
+
+    public synchronized boolean isCancelada() {
+        return cancelada;
+    }
+
+    /**
+     * Indica si la excepción se debe a la cancelación de la sentencia
+     */
+    public static boolean esCancelacion(SQLException e) {
+        return SQLSTATE_CANCELADA.equals(e.getSQLState());
+    }
+}
@@ -5,20 +5,37 @@ import com.zaxxer.hikari.HikariDataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
+import java.util.Set;
 
 public class DatabaseConnection {
 
     private static final Logger logger = LoggerFactory.getLogger(DatabaseConnection.class);
     private static HikariDataSource dataSource;
-    private static boolean initialized = false;
+    private static volatile boolean initialized = false;
+    private static boolean metricasActivas = false;
+
+    // Nombres de los índices del esquema (en mayúsculas), leídos tras aplicar las migraciones
+    private static volatile Set<String> indices = Set.of();
+
+    private static final String PREFIJO_DATASOURCE = "db.datasource.";
+    private static final String DEFAULT_INIT_SCRIPTS = "database/V1__create_tables.sql,"
+            + "database/V2__insert_initial_data.sql,database/V3__indices_compuestos.sql,"
+            + "database/V5__indice_busqueda.sql,database/V6__contador_serie.sql,"
+            + "database/V7__resumenes_facturacion.sql";
+
+    private static final String SQL_INDICES =
+        "SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_SCHEMA = SCHEMA()";
 
     private DatabaseConnection() {
         // Constructor privado para patrón Singleton
@@ -26,10 +43,13 @@ public class DatabaseConnection {
 
     /**
      * Inicializa el pool de conexiones
+     * Es sincronizado: si ya se está inicializando en segundo plano (ver ArranqueService),
+     * quien pida una conexión espera a que termine en lugar de inicializar otra vez
      */
-    private static void initialize() {
+    private static synchronized void initialize() {
         if (!initialized) {
             try {
+                long inicio = System.nanoTime();
                 Properties props = loadProperties();
 
                 HikariConfig config = new HikariConfig();
@@ -49,13 +69,36 @@ public class DatabaseConnection {
                     Long.parseLong(props.getProperty("db.pool.connectionTimeout", "30000"))
                 );
 
+                // Propiedades del driver (db.datasource.*), p. ej. la caché de sentencias
+                // ya analizadas de H2 (QUERY_CACHE_SIZE, por sesión)
+                for (String clave : props.stringPropertyNames()) {
+                    if (clave.startsWith(PREFIJO_DATASOURCE)) {
+                        config.addDataSourceProperty(clave.substring(PREFIJO_DATASOURCE.length()),
+                                props.getProperty(clave));
+                    }
+                }
+
+                // Hikari publica también sus propias métricas del pool por JMX
+                config.setPoolName("sifpyme");
+                config.setRegisterMbeans(true);
+
                 dataSource = new HikariDataSource(config);
 
-                // SOLO ejecutar script de creación de tablas (V1__create_tables.sql)
-                executeCreateTablesScript(props);
+                metricasActivas = Boolean.parseBoolean(props.getProperty("db.metricas.enabled", "true"));
+                if (metricasActivas) {
+                    MetricasBD.getInstance().iniciar(dataSource.getHikariPoolMXBean(),
+                            Long.parseLong(props.getProperty("db.metricas.intervaloResumen", "300")));
+                }
+
+                logger.info("Pool de conexiones creado en {} ms", (System.nanoTime() - inicio) / 1_000_000);
+
+                // Aplicar solo los scripts de db.init.scripts que aún no están en el historial
+                long inicioEsquema = System.nanoTime();
+                executeMigrations(props);
+                logger.info("Esquema verificado en {} ms", (System.nanoTime() - inicioEsquema) / 1_000_000);
 
                 initialized = true;
-                logger.info("Base de datos inicializada correctamente (solo tablas creadas)");
+                logger.info("Base de datos inicializada correctamente");
 
             } catch (Exception e) {
                 logger.error("Error al inicializar la base de datos", e);
@@ -64,73 +107,79 @@ public class DatabaseConnection {
         }
     }
 
+    /**
+     * Inicializa el pool y el esquema si aún no se ha hecho, sin esperar a la primera
+     * conexión (al arrancar, en segundo plano)
+     */
+    public static void inicializar() {
+        if (!initialized) {
+            initialize();
+        }
+    }
+
     /**
      * Obtiene una conexión del pool
+     * Con las métricas activas, la conexión mide sus sentencias (ver MetricasBD)
      */
     public static Connection getConnection() throws SQLException {
         if (!initialized) {
             initialize();
         }
-        return dataSource.getConnection();
+        if (!metricasActivas) {
+            return dataSource.getConnection();
+        }
+
+        MetricasBD metricas = MetricasBD.getInstance();
+        long inicio = System.nanoTime();
+        Connection conn;
+        try {
+            conn = dataSource.getConnection();
+        } finally {
+            metricas.registrarEsperaConexion(System.nanoTime() - inicio);
+        }
+        return ConexionInstrumentada.envolver(conn, metricas);
     }
 
     /**
-     * Ejecuta solo el script de creación de tablas
+     * Aplica las migraciones pendientes de db.init.scripts (ver MigracionesBD) y lee
+     * los índices del esquema resultante
      */
-    private static void executeCreateTablesScript(Properties props) {
-        String createTablesScript = "database/V1__create_tables.sql";
-        
-        try (Connection conn = dataSource.getConnection();
-             Statement stmt = conn.createStatement();
-             InputStream is = DatabaseConnection.class.getClassLoader()
-                     .getResourceAsStream(createTablesScript);
-             BufferedReader reader = new BufferedReader(new InputStreamReader(is))) {
-
-            if (is == null) {
-                logger.warn("No se encontró el script de creación de tablas: {}", createTablesScript);
-                return;
+    private static void executeMigrations(Properties props) throws SQLException, IOException {
+        List<String> scripts = new ArrayList<>();
+        for (String script : props.getProperty("db.init.scripts", DEFAULT_INIT_SCRIPTS).split(",")) {
+            if (!script.isBlank()) {
+                scripts.add(script.trim());
             }
+        }
 
-            StringBuilder sqlBuilder = new StringBuilder();
-            String line;
-
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty() || line.startsWith("--")) {
-                    continue;
-                }
+        try (Connection conn = dataSource.getConnection()) {
+            MigracionesBD.migrar(conn, scripts);
+            indices = leerIndices(conn);
+        }
+    }
 
-                sqlBuilder.append(line).append(" ");
-
-                if (line.endsWith(";")) {
-                    String sql = sqlBuilder.toString().trim();
-                    sql = sql.substring(0, sql.length() - 1);
-
-                    if (!sql.isEmpty()) {
-                        try {
-                            stmt.execute(sql);
-                            logger.debug("Ejecutado: {}", sql.substring(0, Math.min(80, sql.length())) + "...");
-                        } catch (SQLException e) {
-                            // Ignorar errores de "already exists" para tablas
-                            if (!e.getMessage().toLowerCase().contains("already exists")) {
-                                logger.warn("Error ejecutando creación de tabla: {}", 
-                                        sql.substring(0, Math.min(50, sql.length())), e);
-                            }
-                        }
-                    }
-                    sqlBuilder.setLength(0);
-                }
+    private static Set<String> leerIndices(Connection conn) throws SQLException {
+        Set<String> nombres = new HashSet<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_INDICES)) {
+            while (rs.next()) {
+                nombres.add(rs.getString(1).toUpperCase(Locale.ROOT));
             }
-
-            logger.info("Script de creación de tablas ejecutado: {}", createTablesScript);
-
-        } catch (Exception e) {
-            logger.error("Error al ejecutar script de creación de tablas: {}", createTablesScript, e);
         }
+        return Set.copyOf(nombres);
+    }
+
+    /**
+     * Indica si el esquema tiene el índice, según las migraciones aplicadas al inicializar
+     * (false si la base de datos aún no está inicializada)
+     */
+    public static boolean existeIndice(String nombre) {
+        return indices.contains(nombre.toUpperCase(Locale.ROOT));
     }
 
     /**
      * Carga las propiedades de configuración
+     * Las propiedades de sistema "db.*" (-Ddb.url=...) tienen prioridad sobre el fichero
      */
     private static Properties loadProperties() throws IOException {
         Properties props = new Properties();
@@ -142,6 +191,12 @@ public class DatabaseConnection {
             }
 
             props.load(is);
+
+            for (String clave : System.getProperties().stringPropertyNames()) {
+                if (clave.startsWith("db.")) {
+                    props.setProperty(clave, System.getProperty(clave));
+                }
+            }
             return props;
         }
     }
@@ -150,7 +205,11 @@ public class DatabaseConnection {
      * Cierra el pool de conexiones (llamar al cerrar la aplicación)
      */
     public static void close() {
+        if (metricasActivas) {
+            MetricasBD.getInstance().detener();
+        }
         if (dataSource != null && !dataSource.isClosed()) {
+            indices = Set.of();
             dataSource.close();
             logger.info("Pool de conexiones cerrado");
         }
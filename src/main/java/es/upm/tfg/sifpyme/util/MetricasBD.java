@@ -0,0 +1,370 @@
+package es.upm.tfg.sifpyme.util;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Métricas del acceso a la base de datos: latencia (histograma), filas y errores de cada
+ * sentencia SQL, espera al obtener conexiones del pool y estado del pool (activas,
+ * inactivas, hilos esperando).
+ *
+ * DatabaseConnection entrega las conexiones envueltas (ver ConexionInstrumentada),
+ * por lo que se mide cualquier sentencia de cualquier DAO sin cambiar su código.
+ * Las métricas se publican por JMX y, si se configura, en un resumen periódico en el log.
+ * Es segura entre hilos; registrar una ejecución no bloquea.
+ */
+public class MetricasBD implements MetricasBDMBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricasBD.class);
+
+    public static final String NOMBRE_JMX = "es.upm.tfg.sifpyme:type=MetricasBD";
+
+    // Límites superiores (ms) de los tramos del histograma de latencia; el último tramo no tiene límite
+    private static final long[] TRAMOS_MS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000 };
+
+    // Sentencias distintas que se miden por separado; el resto se acumulan juntas
+    private static final int MAX_SENTENCIAS = 500;
+    private static final String OTRAS_SENTENCIAS = "(otras sentencias)";
+
+    private static final int SENTENCIAS_EN_RESUMEN = 10;
+    private static final int LONGITUD_SQL_RESUMEN = 120;
+
+    // Listas de marcadores de longitud variable (IN (?, ?, ...)) se cuentan como la misma sentencia
+    private static final Pattern LISTA_MARCADORES = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+
+    private static final MetricasBD instance = new MetricasBD();
+
+    private final Map<String, MetricaSentencia> sentencias = new ConcurrentHashMap<>();
+    private final LongAdder conexiones = new LongAdder();
+    private final LongAdder nanosEsperaConexion = new LongAdder();
+    private final LongAccumulator maxNanosEsperaConexion = new LongAccumulator(Math::max, 0);
+
+    private volatile HikariPoolMXBean pool;
+    private ScheduledExecutorService programador;
+    private long ejecucionesUltimoResumen;
+
+    private MetricasBD() {
+    }
+
+    public static MetricasBD getInstance() {
+        return instance;
+    }
+
+    /**
+     * Registra el MBean y, si intervaloSegundos > 0, programa el resumen periódico en el log
+     */
+    public synchronized void iniciar(HikariPoolMXBean pool, long intervaloSegundos) {
+        this.pool = pool;
+
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (!servidor.isRegistered(nombre)) {
+                servidor.registerMBean(this, nombre);
+            }
+        } catch (Exception e) {
+            logger.warn("No se pudieron publicar las métricas de base de datos por JMX", e);
+        }
+
+        if (intervaloSegundos > 0 && programador == null) {
+            programador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+                Thread hilo = new Thread(tarea, "metricas-bd");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+            programador.scheduleAtFixedRate(this::registrarResumen,
+                    intervaloSegundos, intervaloSegundos, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Detiene el resumen periódico y retira el MBean (al cerrar el pool)
+     */
+    public synchronized void detener() {
+        if (programador != null) {
+            programador.shutdownNow();
+            programador = null;
+        }
+        pool = null;
+
+        try {
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            ObjectName nombre = new ObjectName(NOMBRE_JMX);
+            if (servidor.isRegistered(nombre)) {
+                servidor.unregisterMBean(nombre);
+            }
+        } catch (Exception e) {
+            logger.debug("No se pudo retirar el MBean de métricas", e);
+        }
+    }
+
+    /**
+     * Normaliza el SQL que identifica a una sentencia en las métricas
+     */
+    static String normalizar(String sql) {
+        if (sql == null) {
+            return "(sin SQL)";
+        }
+        String normalizado = sql.indexOf(',') >= 0 ? LISTA_MARCADORES.matcher(sql).replaceAll("?...") : sql;
+        return normalizado.trim();
+    }
+
+    /**
+     * Métrica de una sentencia (ya normalizada), que se crea al usarla por primera vez
+     */
+    MetricaSentencia metrica(String sql) {
+        MetricaSentencia metrica = sentencias.get(sql);
+        if (metrica != null) {
+            return metrica;
+        }
+        if (sentencias.size() >= MAX_SENTENCIAS) {
+            return sentencias.computeIfAbsent(OTRAS_SENTENCIAS, MetricaSentencia::new);
+        }
+        return sentencias.computeIfAbsent(sql, MetricaSentencia::new);
+    }
+
+    /**
+     * Registra el tiempo que se ha esperado para obtener una conexión del pool
+     */
+    public void registrarEsperaConexion(long nanos) {
+        conexiones.increment();
+        nanosEsperaConexion.add(nanos);
+        maxNanosEsperaConexion.accumulate(nanos);
+    }
+
+    // ==================== CONSULTA DE MÉTRICAS ====================
+
+    /**
+     * Métricas de todas las sentencias, de mayor a menor tiempo total
+     */
+    public List<MetricaSentencia> getMetricasSentencias() {
+        List<MetricaSentencia> lista = new ArrayList<>(sentencias.values());
+        lista.sort(Comparator.comparingLong(MetricaSentencia::getNanosTotales).reversed());
+        return lista;
+    }
+
+    @Override
+    public long getNumEjecuciones() {
+        return sentencias.values().stream().mapToLong(MetricaSentencia::getEjecuciones).sum();
+    }
+
+    @Override
+    public long getNumErrores() {
+        return sentencias.values().stream().mapToLong(MetricaSentencia::getErrores).sum();
+    }
+
+    @Override
+    public double getTiempoMedioMs() {
+        long ejecuciones = getNumEjecuciones();
+        long nanos = sentencias.values().stream().mapToLong(MetricaSentencia::getNanosTotales).sum();
+        return ejecuciones == 0 ? 0 : nanos / 1_000_000.0 / ejecuciones;
+    }
+
+    @Override
+    public long getNumConexionesObtenidas() {
+        return conexiones.sum();
+    }
+
+    @Override
+    public double getEsperaConexionMediaMs() {
+        long total = conexiones.sum();
+        return total == 0 ? 0 : nanosEsperaConexion.sum() / 1_000_000.0 / total;
+    }
+
+    @Override
+    public double getEsperaConexionMaxMs() {
+        return maxNanosEsperaConexion.get() / 1_000_000.0;
+    }
+
+    @Override
+    public int getConexionesActivas() {
+        HikariPoolMXBean actual = pool;
+        return actual != null ? actual.getActiveConnections() : 0;
+    }
+
+    @Override
+    public int getConexionesInactivas() {
+        HikariPoolMXBean actual = pool;
+        return actual != null ? actual.getIdleConnections() : 0;
+    }
+
+    @Override
+    public int getConexionesTotales() {
+        HikariPoolMXBean actual = pool;
+        return actual != null ? actual.getTotalConnections() : 0;
+    }
+
+    @Override
+    public int getHilosEsperando() {
+        HikariPoolMXBean actual = pool;
+        return actual != null ? actual.getThreadsAwaitingConnection() : 0;
+    }
+
+    @Override
+    public String[] getSentencias() {
+        return getMetricasSentencias().stream().map(MetricaSentencia::toString).toArray(String[]::new);
+    }
+
+    @Override
+    public String resumen() {
+        StringBuilder texto = new StringBuilder(String.format(
+                "%d ejecuciones (%d errores), media %.2f ms; pool: %d activas, %d inactivas, %d esperando; " +
+                "espera de conexión media %.2f ms, máx %.2f ms",
+                getNumEjecuciones(), getNumErrores(), getTiempoMedioMs(),
+                getConexionesActivas(), getConexionesInactivas(), getHilosEsperando(),
+                getEsperaConexionMediaMs(), getEsperaConexionMaxMs()));
+
+        getMetricasSentencias().stream().limit(SENTENCIAS_EN_RESUMEN)
+                .forEach(metrica -> texto.append(System.lineSeparator()).append("  ").append(metrica));
+        return texto.toString();
+    }
+
+    @Override
+    public void reiniciar() {
+        sentencias.clear();
+        conexiones.reset();
+        nanosEsperaConexion.reset();
+        maxNanosEsperaConexion.reset();
+        synchronized (this) {
+            ejecucionesUltimoResumen = 0;
+        }
+    }
+
+    /**
+     * Escribe el resumen en el log si ha habido actividad desde el anterior
+     */
+    private void registrarResumen() {
+        try {
+            long ejecuciones = getNumEjecuciones();
+            synchronized (this) {
+                if (ejecuciones == ejecucionesUltimoResumen) {
+                    return;
+                }
+                ejecucionesUltimoResumen = ejecuciones;
+            }
+            logger.info("Métricas de base de datos: {}", resumen());
+
+        } catch (Exception e) {
+            logger.warn("Error al registrar el resumen de métricas", e);
+        }
+    }
+
+    /**
+     * Contadores de una sentencia SQL
+     */
+    public static class MetricaSentencia {
+        private final String sql;
+        private final LongAdder ejecuciones = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder filas = new LongAdder();
+        private final LongAdder nanosTotales = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] histograma = new LongAdder[TRAMOS_MS.length + 1];
+
+        MetricaSentencia(String sql) {
+            this.sql = sql;
+            for (int i = 0; i < histograma.length; i++) {
+                histograma[i] = new LongAdder();
+            }
+        }
+
+        void registrar(long nanos, boolean error) {
+            ejecuciones.increment();
+            if (error) {
+                errores.increment();
+            }
+            nanosTotales.add(nanos);
+            maxNanos.accumulate(nanos);
+
+            long ms = nanos / 1_000_000;
+            int tramo = 0;
+            while (tramo < TRAMOS_MS.length && ms >= TRAMOS_MS[tramo]) {
+                tramo++;
+            }
+            histograma[tramo].increment();
+        }
+
+        void sumarFilas(long numero) {
+            filas.add(numero);
+        }
+
+        void sumarFila() {
+            filas.increment();
+        }
+
+        public String getSql() { return sql; }
+        public long getEjecuciones() { return ejecuciones.sum(); }
+        public long getErrores() { return errores.sum(); }
+        public long getFilas() { return filas.sum(); }
+        public long getNanosTotales() { return nanosTotales.sum(); }
+        public double getMaxMs() { return maxNanos.get() / 1_000_000.0; }
+
+        public double getMediaMs() {
+            long total = ejecuciones.sum();
+            return total == 0 ? 0 : nanosTotales.sum() / 1_000_000.0 / total;
+        }
+
+        /**
+         * Ejecuciones de cada tramo del histograma (ver getLimitesTramosMs)
+         */
+        public long[] getHistograma() {
+            long[] valores = new long[histograma.length];
+            for (int i = 0; i < valores.length; i++) {
+                valores[i] = histograma[i].sum();
+            }
+            return valores;
+        }
+
+        public static long[] getLimitesTramosMs() {
+            return TRAMOS_MS.clone();
+        }
+
+        /**
+         * Límite superior (ms) del tramo en el que cae el percentil indicado (0-100),
+         * o el máximo observado si cae en el último tramo
+         */
+        public double getPercentilMs(double percentil) {
+            long[] valores = getHistograma();
+            long total = 0;
+            for (long valor : valores) {
+                total += valor;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long objetivo = (long) Math.ceil(total * percentil / 100.0);
+            long acumulado = 0;
+            for (int i = 0; i < TRAMOS_MS.length; i++) {
+                acumulado += valores[i];
+                if (acumulado >= objetivo) {
+                    return Math.min(TRAMOS_MS[i], getMaxMs());
+                }
+            }
+            return getMaxMs();
+        }
+
+        @Override
+        public String toString() {
+            String texto = sql.length() > LONGITUD_SQL_RESUMEN ? sql.substring(0, LONGITUD_SQL_RESUMEN) + "..." : sql;
+            return String.format("%d x %.2f ms (p95 %.0f ms, máx %.1f ms), %d filas, %d errores: %s",
+                    getEjecuciones(), getMediaMs(), getPercentilMs(95), getMaxMs(), getFilas(), getErrores(), texto);
+        }
+    }
+}
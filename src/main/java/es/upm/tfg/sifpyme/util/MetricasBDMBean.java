@@ -0,0 +1,37 @@
+package es.upm.tfg.sifpyme.util;
+
+/**
+ * Interfaz JMX de las métricas de acceso a la base de datos
+ * (es.upm.tfg.sifpyme:type=MetricasBD, visible p. ej. con jconsole)
+ */
+public interface MetricasBDMBean {
+
+    long getNumEjecuciones();
+
+    long getNumErrores();
+
+    double getTiempoMedioMs();
+
+    long getNumConexionesObtenidas();
+
+    double getEsperaConexionMediaMs();
+
+    double getEsperaConexionMaxMs();
+
+    int getConexionesActivas();
+
+    int getConexionesInactivas();
+
+    int getConexionesTotales();
+
+    int getHilosEsperando();
+
+    /**
+     * Una línea por sentencia, de mayor a menor tiempo total
+     */
+    String[] getSentencias();
+
+    String resumen();
+
+    void reiniciar();
+}
@@ -0,0 +1,284 @@
+package es.upm.tfg.sifpyme.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Migraciones versionadas del esquema: scripts V<n>__descripcion.sql (db.init.scripts)
+ * que se aplican una sola vez, en orden de versión, y quedan registrados con su checksum
+ * en la tabla Historial_migraciones. En cada arranque solo se ejecutan los scripts que
+ * no están en el historial, así que con el esquema al día no se ejecuta ninguna sentencia DDL.
+ *
+ * Cada script se ejecuta en una transacción junto con su registro en el historial; si una
+ * sentencia falla, se deshace y la inicialización de la base de datos falla. H2 confirma
+ * implícitamente las sentencias DDL, por lo que los scripts de esquema deben poder
+ * repetirse (IF NOT EXISTS). Un script ya aplicado no debe modificarse: los cambios van
+ * en un script nuevo con la siguiente versión.
+ */
+public final class MigracionesBD {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracionesBD.class);
+
+    private static final String TABLA_HISTORIAL = "Historial_migraciones";
+
+    private static final String SQL_CREATE_HISTORIAL =
+        "CREATE TABLE IF NOT EXISTS " + TABLA_HISTORIAL + " (" +
+        "version INT PRIMARY KEY, " +
+        "descripcion VARCHAR(200) NOT NULL, " +
+        "script VARCHAR(255) NOT NULL, " +
+        "checksum VARCHAR(64) NOT NULL, " +
+        "fecha_aplicacion TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+        "duracion_ms BIGINT NOT NULL)";
+
+    private static final String SQL_SELECT_HISTORIAL =
+        "SELECT version, checksum FROM " + TABLA_HISTORIAL;
+
+    private static final String SQL_INSERT_HISTORIAL =
+        "INSERT INTO " + TABLA_HISTORIAL + " (version, descripcion, script, checksum, duracion_ms) " +
+        "VALUES (?, ?, ?, ?, ?)";
+
+    private static final Pattern NOMBRE_SCRIPT = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private MigracionesBD() {
+    }
+
+    /**
+     * Aplica los scripts pendientes, en orden de versión
+     * @param scripts Rutas de los scripts en el classpath (p. ej. database/V1__create_tables.sql)
+     * @return Número de scripts aplicados
+     */
+    public static int migrar(Connection conn, List<String> scripts) throws SQLException, IOException {
+        Map<Integer, Script> porVersion = new TreeMap<>();
+        for (String ruta : scripts) {
+            Script script = Script.cargar(ruta);
+            Script repetido = porVersion.put(script.version, script);
+            if (repetido != null) {
+                throw new IllegalStateException("Dos scripts con la versión " + script.version + ": "
+                        + repetido.ruta + " y " + script.ruta);
+            }
+        }
+
+        Map<Integer, String> aplicadas = leerHistorial(conn);
+
+        int numAplicadas = 0;
+        for (Script script : porVersion.values()) {
+            String checksum = aplicadas.get(script.version);
+            if (checksum == null) {
+                aplicar(conn, script);
+                numAplicadas++;
+            } else if (!checksum.equals(script.checksum)) {
+                logger.warn("El script {} se ha modificado después de aplicarse (checksum {} en el historial, {} "
+                        + "ahora); no se vuelve a ejecutar", script.ruta, checksum, script.checksum);
+            }
+        }
+
+        int versionActual = aplicadas.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+        for (int version : porVersion.keySet()) {
+            versionActual = Math.max(versionActual, version);
+        }
+        if (numAplicadas == 0) {
+            logger.info("Esquema al día (versión {}), ninguna migración pendiente", versionActual);
+        } else {
+            logger.info("Esquema actualizado a la versión {} ({} migraciones aplicadas)", versionActual, numAplicadas);
+        }
+        return numAplicadas;
+    }
+
+    /**
+     * Versión y checksum de las migraciones ya aplicadas; crea el historial si no existe
+     */
+    private static Map<Integer, String> leerHistorial(Connection conn) throws SQLException {
+        Map<Integer, String> aplicadas = new HashMap<>();
+
+        if (!existeTabla(conn, TABLA_HISTORIAL)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(SQL_CREATE_HISTORIAL);
+            }
+            logger.info("Creada la tabla {}", TABLA_HISTORIAL);
+            return aplicadas;
+        }
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(SQL_SELECT_HISTORIAL)) {
+            while (rs.next()) {
+                aplicadas.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return aplicadas;
+    }
+
+    private static boolean existeTabla(Connection conn, String tabla) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getTables(null, null, tabla.toUpperCase(), new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    /**
+     * Ejecuta un script y lo registra en el historial en la misma transacción
+     */
+    private static void aplicar(Connection conn, Script script) throws SQLException {
+        long inicio = System.nanoTime();
+        List<String> sentencias = dividirSentencias(script.contenido);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : sentencias) {
+                    try {
+                        stmt.execute(sql);
+                    } catch (SQLException e) {
+                        throw new SQLException("Error en " + script.ruta + ": "
+                                + sql.substring(0, Math.min(80, sql.length())), e.getSQLState(), e);
+                    }
+                }
+            }
+
+            long duracion = (System.nanoTime() - inicio) / 1_000_000;
+            try (PreparedStatement stmt = conn.prepareStatement(SQL_INSERT_HISTORIAL)) {
+                stmt.setInt(1, script.version);
+                stmt.setString(2, script.descripcion);
+                stmt.setString(3, script.ruta);
+                stmt.setString(4, script.checksum);
+                stmt.setLong(5, duracion);
+                stmt.executeUpdate();
+            }
+
+            conn.commit();
+            logger.info("Migración V{} ({}) aplicada en {} ms: {} sentencias", script.version, script.descripcion,
+                    duracion, sentencias.size());
+
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Divide un script en sentencias por los ';' que no están dentro de comentarios
+     * (-- y /* *\/) ni de literales entre comillas. Los comentarios se descartan.
+     */
+    static List<String> dividirSentencias(String script) {
+        List<String> sentencias = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        int longitud = script.length();
+        int i = 0;
+
+        while (i < longitud) {
+            char c = script.charAt(i);
+            char siguiente = i + 1 < longitud ? script.charAt(i + 1) : '\0';
+
+            if (c == '-' && siguiente == '-') {
+                int fin = script.indexOf('\n', i);
+                i = fin < 0 ? longitud : fin;
+            } else if (c == '/' && siguiente == '*') {
+                int fin = script.indexOf("*/", i + 2);
+                i = fin < 0 ? longitud : fin + 2;
+                actual.append(' ');
+            } else if (c == '\'' || c == '"') {
+                int fin = i + 1;
+                while (fin < longitud) {
+                    if (script.charAt(fin) == c) {
+                        // Comilla duplicada: escapada dentro del literal
+                        if (fin + 1 < longitud && script.charAt(fin + 1) == c) {
+                            fin += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    fin++;
+                }
+                fin = Math.min(fin + 1, longitud);
+                actual.append(script, i, fin);
+                i = fin;
+            } else if (c == ';') {
+                anadirSentencia(sentencias, actual);
+                i++;
+            } else {
+                actual.append(c);
+                i++;
+            }
+        }
+        anadirSentencia(sentencias, actual);
+
+        return sentencias;
+    }
+
+    private static void anadirSentencia(List<String> sentencias, StringBuilder actual) {
+        String sql = actual.toString().trim();
+        if (!sql.isEmpty()) {
+            sentencias.add(sql);
+        }
+        actual.setLength(0);
+    }
+
+    /**
+     * Script de migración leído del classpath
+     */
+    private static final class Script {
+        private final String ruta;
+        private final int version;
+        private final String descripcion;
+        private final String contenido;
+        private final String checksum;
+
+        private Script(String ruta, int version, String descripcion, String contenido, String checksum) {
+            this.ruta = ruta;
+            this.version = version;
+            this.descripcion = descripcion;
+            this.contenido = contenido;
+            this.checksum = checksum;
+        }
+
+        static Script cargar(String ruta) throws IOException {
+            String nombre = ruta.substring(ruta.lastIndexOf('/') + 1);
+            Matcher matcher = NOMBRE_SCRIPT.matcher(nombre);
+            if (!matcher.matches()) {
+                throw new IllegalArgumentException("Nombre de script de migración no válido (V<n>__descripcion.sql): "
+                        + ruta);
+            }
+
+            byte[] bytes;
+            try (InputStream is = MigracionesBD.class.getClassLoader().getResourceAsStream(ruta)) {
+                if (is == null) {
+                    throw new IOException("No se encontró el script de migración: " + ruta);
+                }
+                bytes = is.readAllBytes();
+            }
+
+            return new Script(ruta, Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                    new String(bytes, StandardCharsets.UTF_8), sha256(bytes));
+        }
+
+        private static String sha256(byte[] bytes) {
+            try {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 no disponible", e);
+            }
+        }
+    }
+}
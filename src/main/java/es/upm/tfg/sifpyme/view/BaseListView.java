@@ -1,15 +1,21 @@
 package es.upm.tfg.sifpyme.view;
 
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 import es.upm.tfg.sifpyme.util.NavigationManager;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
+import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Clase base abstracta para todas las vistas de lista (Clientes, Empresas, Productos)
@@ -20,15 +26,29 @@ public abstract class BaseListView<T> extends JFrame {
 
     // Componentes comunes
     protected JTable tabla;
-    protected DefaultTableModel modeloTabla;
+    protected ModeloLista modeloTabla;
     protected JTextField txtBuscar;
     protected JButton btnNuevo;
     protected JButton btnEditar;
     protected JButton btnEliminar;
     protected JButton btnVolver;
     protected JLabel lblTotal;
+    protected JProgressBar barraCarga;
     protected TableRowSorter<DefaultTableModel> sorter;
 
+    // Máximo de filas devueltas por una búsqueda en base de datos
+    protected static final int LIMITE_RESULTADOS_BUSQUEDA = 500;
+
+    // Espera tras la última pulsación antes de lanzar la búsqueda (ms)
+    private static final int RETARDO_BUSQUEDA_MS = 300;
+
+    // Carga en segundo plano en curso (null si no hay ninguna) y su consulta
+    private SwingWorker<Void, Object[]> cargaActual;
+    private ConsultaCancelable consultaActual;
+
+    private Timer temporizadorBusqueda;
+    private String ultimoTerminoBuscado = "";
+
     // CardLayout para navegación interna
     protected CardLayout cardLayout;
     protected JPanel cardPanel;
@@ -74,6 +94,16 @@ public abstract class BaseListView<T> extends JFrame {
         // Por defecto usa los colores base - las subclases pueden sobrescribirlo
     }
 
+    /**
+     * Sustituye el modelo de la tabla por uno propio de la subclase (p. ej. de carga perezosa)
+     * Quita el sorter, ya que ordenar o filtrar en memoria obligaría a cargar todas las filas
+     */
+    protected void usarModeloTabla(TableModel modelo) {
+        tabla.setRowSorter(null);
+        tabla.setModel(modelo);
+        configurarAnchoColumnas();
+    }
+
     // ==================== IMPLEMENTACIÓN COMÚN ====================
 
     private void configurarVentana() {
@@ -98,12 +128,7 @@ public abstract class BaseListView<T> extends JFrame {
     private void initComponents() {
         // Tabla
         String[] columnas = getNombresColumnas();
-        modeloTabla = new DefaultTableModel(columnas, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        modeloTabla = new ModeloLista(columnas);
 
         tabla = new JTable(modeloTabla);
         tabla.setFont(UITheme.FUENTE_TABLA);
@@ -133,11 +158,20 @@ public abstract class BaseListView<T> extends JFrame {
             }
         });
 
-        // Campo de búsqueda - REFACTORIZADO
+        // Campo de búsqueda - la consulta se lanza al dejar de escribir
+        temporizadorBusqueda = new Timer(RETARDO_BUSQUEDA_MS, e -> {
+            String termino = getTerminoBusqueda();
+            if (!termino.equals(ultimoTerminoBuscado)) {
+                ultimoTerminoBuscado = termino;
+                buscar();
+            }
+        });
+        temporizadorBusqueda.setRepeats(false);
+
         txtBuscar = UIHelper.crearCampoTexto(25);
         txtBuscar.addKeyListener(new java.awt.event.KeyAdapter() {
             public void keyReleased(java.awt.event.KeyEvent evt) {
-                buscar();
+                temporizadorBusqueda.restart();
             }
         });
 
@@ -160,6 +194,11 @@ public abstract class BaseListView<T> extends JFrame {
         lblTotal = new JLabel("Total: 0 " + getNombreEntidadPlural());
         lblTotal.setFont(UITheme.FUENTE_SUBTITULO);
         lblTotal.setForeground(Color.DARK_GRAY);
+
+        // Indicador de carga en segundo plano
+        barraCarga = new JProgressBar();
+        barraCarga.setPreferredSize(new Dimension(150, 16));
+        barraCarga.setVisible(false);
     }
 
     private void setupLayout() {
@@ -275,6 +314,7 @@ public abstract class BaseListView<T> extends JFrame {
                 BorderFactory.createEmptyBorder(10, 15, 10, 15)));
 
         panel.add(lblTotal);
+        panel.add(barraCarga);
         return panel;
     }
 
@@ -324,23 +364,86 @@ public abstract class BaseListView<T> extends JFrame {
     }
     
 
-    protected void buscar() {
-        String termino = txtBuscar.getText().trim();
+    /**
+     * Ejecuta la consulta fuera del hilo de eventos de Swing y añade las filas a la tabla
+     * por bloques según la consulta las va entregando, sin esperar a que termine: las
+     * primeras filas se ven mientras se leen las demás. Una nueva carga cancela la anterior:
+     * se aborta su consulta en la base de datos y se descartan sus resultados.
+     *
+     * @param consulta Recibe la cancelación y el destino al que entregar cada entidad leída
+     */
+    protected void cargarEnSegundoPlano(BiConsumer<ConsultaCancelable, Consumer<T>> consulta,
+            Function<T, Object[]> mapeoFila) {
+        if (cargaActual != null) {
+            cargaActual.cancel(false);
+            consultaActual.cancelar();
+        }
 
-        if (termino.isEmpty()) {
-            sorter.setRowFilter(null);
-        } else {
-            // Buscar en todas las columnas excepto la primera (ID)
-            int numColumnas = modeloTabla.getColumnCount();
-            int[] columnas = new int[numColumnas - 1];
-            for (int i = 0; i < numColumnas - 1; i++) {
-                columnas[i] = i + 1;
+        final ConsultaCancelable cancelacion = new ConsultaCancelable();
+        final boolean esBusqueda = !getTerminoBusqueda().isEmpty();
+
+        modeloTabla.setRowCount(0);
+        barraCarga.setIndeterminate(true);
+        barraCarga.setVisible(true);
+        lblTotal.setText("Cargando " + getNombreEntidadPlural() + "...");
+
+        SwingWorker<Void, Object[]> worker = new SwingWorker<Void, Object[]>() {
+            @Override
+            protected Void doInBackground() {
+                consulta.accept(cancelacion, entidad -> {
+                    if (!isCancelled()) {
+                        publish(mapeoFila.apply(entidad));
+                    }
+                });
+                return null;
             }
-            RowFilter<DefaultTableModel, Object> rf = RowFilter.regexFilter("(?i)" + termino, columnas);
-            sorter.setRowFilter(rf);
-        }
 
-        actualizarTotal();
+            @Override
+            protected void process(List<Object[]> filas) {
+                if (this != cargaActual) {
+                    return;
+                }
+
+                modeloTabla.anadirFilas(filas);
+                lblTotal.setText("Cargando " + getNombreEntidadPlural() + "... (" +
+                        modeloTabla.getRowCount() + ")");
+            }
+
+            @Override
+            protected void done() {
+                if (this != cargaActual) {
+                    return;
+                }
+
+                cargaActual = null;
+                consultaActual = null;
+                barraCarga.setVisible(false);
+                actualizarTotal();
+
+                if (esBusqueda && modeloTabla.getRowCount() >= LIMITE_RESULTADOS_BUSQUEDA) {
+                    lblTotal.setText(lblTotal.getText() + " (se muestran los primeros " +
+                            LIMITE_RESULTADOS_BUSQUEDA + ", afina la búsqueda)");
+                }
+            }
+        };
+
+        cargaActual = worker;
+        consultaActual = cancelacion;
+        worker.execute();
+    }
+
+    /**
+     * Devuelve el texto de búsqueda actual (vacío si no se filtra)
+     */
+    protected String getTerminoBusqueda() {
+        return txtBuscar.getText().trim();
+    }
+
+    /**
+     * Recarga la lista aplicando el término de búsqueda en la consulta a la base de datos
+     */
+    protected void buscar() {
+        cargarDatos();
     }
 
     protected void eliminar() {
@@ -399,4 +502,34 @@ public abstract class BaseListView<T> extends JFrame {
     protected JButton crearBoton(String texto, Color color) {
         return UIHelper.crearBoton(texto, color, "");
     }
-}
\ No newline at end of file
+
+    /**
+     * Modelo de las vistas de lista: celdas de solo lectura y alta de filas por bloques
+     */
+    protected static class ModeloLista extends DefaultTableModel {
+
+        public ModeloLista(String[] columnas) {
+            super(columnas, 0);
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+
+        /**
+         * Añade un bloque de filas al final y lo notifica con un único evento
+         * (addRow notificaría a la tabla y al sorter una vez por fila)
+         */
+        public void anadirFilas(List<Object[]> filas) {
+            if (filas.isEmpty()) {
+                return;
+            }
+            int primeraFila = getRowCount();
+            for (Object[] fila : filas) {
+                dataVector.add(convertToVector(fila));
+            }
+            fireTableRowsInserted(primeraFila, getRowCount() - 1);
+        }
+    }
+}
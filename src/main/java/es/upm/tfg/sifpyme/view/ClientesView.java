@@ -4,7 +4,6 @@ import es.upm.tfg.sifpyme.controller.ClienteController;
 import es.upm.tfg.sifpyme.model.entity.Cliente;
 
 import javax.swing.*;
-import java.util.List;
 
 /**
  * Vista de lista de clientes
@@ -89,23 +88,21 @@ public class ClientesView extends BaseListView<Cliente> {
             controller = new ClienteController();
         }
         
-        modeloTabla.setRowCount(0);
-
-        List<Cliente> clientes = controller.obtenerTodosLosClientes();
-
-        for (Cliente cliente : clientes) {
-            Object[] fila = {
-                cliente.getIdCliente(),
-                cliente.getNombreFiscal(),
-                cliente.getNif(),
-                cliente.getDireccion() != null ? cliente.getDireccion() : "",
-                cliente.getTelefono() != null ? cliente.getTelefono() : "",
-                cliente.getEmail() != null ? cliente.getEmail() : ""
-            };
-            modeloTabla.addRow(fila);
-        }
-
-        actualizarTotal();
+        String termino = getTerminoBusqueda();
+        cargarEnSegundoPlano(
+            (cancelacion, destino) -> controller.buscarClientes(termino, LIMITE_RESULTADOS_BUSQUEDA, cancelacion, destino),
+            this::crearFila);
+    }
+
+    private Object[] crearFila(Cliente cliente) {
+        return new Object[]{
+            cliente.getIdCliente(),
+            cliente.getNombreFiscal(),
+            cliente.getNif(),
+            cliente.getDireccion() != null ? cliente.getDireccion() : "",
+            cliente.getTelefono() != null ? cliente.getTelefono() : "",
+            cliente.getEmail() != null ? cliente.getEmail() : ""
+        };
     }
 
     @Override
@@ -5,7 +5,6 @@ import es.upm.tfg.sifpyme.model.entity.Empresa;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
 
 /**
  * Vista de lista de empresas
@@ -91,24 +90,22 @@ public class EmpresasView extends BaseListView<Empresa> {
             controller = new EmpresaController();
         }
 
-        modeloTabla.setRowCount(0);
-
-        List<Empresa> empresas = controller.obtenerTodasLasEmpresas();
-
-        for (Empresa empresa : empresas) {
-            Object[] fila = {
-                    empresa.getIdEmpresa(),
-                    empresa.getRazonSocial(),
-                    empresa.getNif(),
-                    empresa.getDireccion() != null ? empresa.getDireccion() : "",
-                    empresa.getTelefono() != null ? empresa.getTelefono() : "",
-                    empresa.getEmail() != null ? empresa.getEmail() : "",
-                    empresa.getPorDefecto() != null && empresa.getPorDefecto()
-            };
-            modeloTabla.addRow(fila);
-        }
-
-        actualizarTotal();
+        String termino = getTerminoBusqueda();
+        cargarEnSegundoPlano(
+                (cancelacion, destino) -> controller.buscarEmpresas(termino, LIMITE_RESULTADOS_BUSQUEDA, cancelacion, destino),
+                this::crearFila);
+    }
+
+    private Object[] crearFila(Empresa empresa) {
+        return new Object[] {
+                empresa.getIdEmpresa(),
+                empresa.getRazonSocial(),
+                empresa.getNif(),
+                empresa.getDireccion() != null ? empresa.getDireccion() : "",
+                empresa.getTelefono() != null ? empresa.getTelefono() : "",
+                empresa.getEmail() != null ? empresa.getEmail() : "",
+                empresa.getPorDefecto() != null && empresa.getPorDefecto()
+        };
     }
 
     @Override
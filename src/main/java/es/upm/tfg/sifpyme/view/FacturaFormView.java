@@ -29,6 +29,7 @@ public class FacturaFormView extends BaseFormView<Factura> {
     private JComboBox<Empresa> cmbEmpresa;
     private JComboBox<Cliente> cmbCliente;
     private JTextField txtIdFactura;  // CAMBIADO: ID personalizado
+    private String idSugerido;        // Siguiente ID de la serie mostrado al crear
     private JTextField txtFecha;
     private JComboBox<String> cmbMetodoPago;
     
@@ -100,7 +101,8 @@ public class FacturaFormView extends BaseFormView<Factura> {
         
         // CAMBIADO: Campo para ID personalizado
         txtIdFactura = UIHelper.crearCampoTexto(20);
-        txtIdFactura.setToolTipText("Ejemplo: FAC-2025-001, FACT001, 2025/001");
+        txtIdFactura.setToolTipText("Se numera automáticamente con el ID sugerido; " +
+                "puede escribir otro (ej.: FACT001, 2025/001)");
         
         txtFecha = UIHelper.crearCampoTexto(15);
         txtFecha.setText(LocalDate.now().format(DATE_FORMATTER));
@@ -350,9 +352,21 @@ public class FacturaFormView extends BaseFormView<Factura> {
     }
 
     private void establecerValoresPorDefecto() {
-        // Sugerir formato de ID basado en fecha actual
-        String sugerencia = "FAC-" + LocalDate.now().getYear() + "-";
-        txtIdFactura.setText(sugerencia);
+        sugerirIdFactura();
+
+        // Actualizar la sugerencia al cambiar de empresa si no se ha modificado
+        cmbEmpresa.addActionListener(e -> {
+            if (idSugerido == null || idSugerido.equals(txtIdFactura.getText().trim())) {
+                sugerirIdFactura();
+            }
+        });
+    }
+
+    private void sugerirIdFactura() {
+        Empresa empresa = (Empresa) cmbEmpresa.getSelectedItem();
+        idSugerido = empresa != null ? controller.sugerirIdFactura(empresa.getIdEmpresa()) : null;
+
+        txtIdFactura.setText(idSugerido != null ? idSugerido : "");
         txtIdFactura.selectAll(); // Seleccionar para facilitar sobrescritura
     }
 
@@ -403,11 +417,11 @@ public class FacturaFormView extends BaseFormView<Factura> {
         }
         
         String idFactura = txtIdFactura.getText().trim();
-        if (idFactura.isEmpty()) {
-            errores.append("• ID de factura es obligatorio\n");
-        } else if (idFactura.length() > 20) {
+        // Vacío o igual al sugerido: se asigna el siguiente número de la serie al guardar
+        boolean idAutomatico = idFactura.isEmpty() || idFactura.equals(idSugerido);
+        if (!idAutomatico && idFactura.length() > 20) {
             errores.append("• ID de factura no puede exceder 20 caracteres\n");
-        } else if (!modoEdicion && controller.obtenerFacturaPorId(idFactura) != null) {
+        } else if (!idAutomatico && !modoEdicion && controller.obtenerFacturaPorId(idFactura) != null) {
             errores.append("• Ya existe una factura con este ID\n");
         }
         
@@ -435,7 +449,12 @@ public class FacturaFormView extends BaseFormView<Factura> {
             Empresa empresa = (Empresa) cmbEmpresa.getSelectedItem();
             Cliente cliente = (Cliente) cmbCliente.getSelectedItem();
 
-            factura.setIdFactura(txtIdFactura.getText().trim());
+            // El ID sugerido se reserva al guardar para no repetirlo si se crean facturas a la vez
+            String idFactura = txtIdFactura.getText().trim();
+            if (!modoEdicion && idFactura.equals(idSugerido)) {
+                idFactura = "";
+            }
+            factura.setIdFactura(idFactura);
             factura.setIdEmpresa(empresa.getIdEmpresa());
             factura.setIdCliente(cliente.getIdCliente());
             factura.setFechaEmision(LocalDate.parse(txtFecha.getText(), DATE_FORMATTER));
@@ -0,0 +1,271 @@
+package es.upm.tfg.sifpyme.view;
+
+import es.upm.tfg.sifpyme.controller.FacturaController;
+import es.upm.tfg.sifpyme.model.entity.FacturaResumen;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Modelo de tabla para el listado de facturas con carga perezosa por páginas
+ * Las páginas se consultan en segundo plano según se muestran las filas, usando
+ * paginación por clave (fecha_emision, id_factura), y solo se conservan en memoria
+ * las páginas usadas más recientemente
+ */
+public class FacturaResumenTableModel extends AbstractTableModel {
+
+    public static final int TAMANO_PAGINA = 200;
+    private static final int MAX_PAGINAS_EN_MEMORIA = 20;
+    private static final String TEXTO_CARGANDO = "Cargando...";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final FacturaController controller;
+    private final String[] columnas;
+
+    // Páginas cargadas en orden de acceso: se descarta la usada hace más tiempo
+    private final Map<Integer, List<FacturaResumen>> paginas =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, List<FacturaResumen>> eldest) {
+                    if (size() <= MAX_PAGINAS_EN_MEMORIA) {
+                        return false;
+                    }
+                    descartarCursores(eldest.getKey());
+                    return true;
+                }
+            };
+
+    // Para cada página, clave de la última fila de la página anterior (null en la primera).
+    // Solo se conservan los de páginas en memoria o contiguas a una página en memoria
+    private final Map<Integer, FacturaResumen> cursores = new HashMap<>();
+    private final Set<Integer> paginasPendientes = new HashSet<>();
+
+    private String termino = "";
+    private int totalFilas = 0;
+
+    // Se incrementa en cada recarga para descartar respuestas de cargas anteriores
+    private int generacion = 0;
+
+    public FacturaResumenTableModel(FacturaController controller, String[] columnas) {
+        this.controller = controller;
+        this.columnas = columnas;
+    }
+
+    /**
+     * Descarta las páginas cargadas y vuelve a consultar el total y la primera página
+     * con el término de búsqueda indicado (vacío para todas las facturas)
+     */
+    public void recargar(String nuevoTermino) {
+        final String filtro = nuevoTermino != null ? nuevoTermino.trim() : "";
+        final int generacionCarga = ++generacion;
+
+        termino = filtro;
+        totalFilas = 0;
+        paginas.clear();
+        cursores.clear();
+        paginasPendientes.clear();
+        cursores.put(0, null);
+        paginasPendientes.add(0);
+        fireTableDataChanged();
+
+        SwingWorker<List<FacturaResumen>, Void> worker = new SwingWorker<List<FacturaResumen>, Void>() {
+            private int total;
+
+            @Override
+            protected List<FacturaResumen> doInBackground() {
+                total = controller.contarResumenes(filtro);
+                return controller.obtenerPaginaResumenes(filtro, null, TAMANO_PAGINA);
+            }
+
+            @Override
+            protected void done() {
+                if (generacionCarga != generacion) {
+                    return;
+                }
+                paginasPendientes.remove(0);
+
+                try {
+                    List<FacturaResumen> filas = get();
+                    totalFilas = total;
+                    registrarPagina(0, filas);
+                } catch (Exception e) {
+                    totalFilas = 0;
+                }
+                fireTableDataChanged();
+            }
+        };
+
+        worker.execute();
+    }
+
+    /**
+     * Devuelve el resumen de la fila indicada, o null si su página aún no está cargada
+     */
+    public FacturaResumen getResumen(int fila) {
+        List<FacturaResumen> pagina = paginas.get(fila / TAMANO_PAGINA);
+        int indice = fila % TAMANO_PAGINA;
+
+        if (pagina == null || indice >= pagina.size()) {
+            return null;
+        }
+        return pagina.get(indice);
+    }
+
+    /**
+     * Devuelve el ID de la factura de la fila indicada, o null si aún no está cargada
+     */
+    public String getIdFactura(int fila) {
+        FacturaResumen resumen = getResumen(fila);
+        return resumen != null ? resumen.getIdFactura() : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return totalFilas;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnas.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnas[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        FacturaResumen factura = getResumen(rowIndex);
+
+        if (factura == null) {
+            cargarPagina(rowIndex / TAMANO_PAGINA);
+            return columnIndex == 0 ? TEXTO_CARGANDO : "";
+        }
+
+        switch (columnIndex) {
+            case 0:
+                return factura.getIdFactura();
+            case 1:
+                return factura.getFechaEmision().format(DATE_FORMATTER);
+            case 2:
+                return factura.getNombreCliente() != null ? factura.getNombreCliente() : "";
+            case 3:
+                return factura.getNombreEmpresa() != null ? factura.getNombreEmpresa() : "";
+            case 4:
+                return formatearMoneda(factura.getSubtotal());
+            case 5:
+                return formatearMoneda(factura.getTotalIva());
+            case 6:
+                return formatearMoneda(factura.getTotal());
+            case 7:
+                return factura.getMetodoPago();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Solicita en segundo plano una página que aún no está en memoria
+     */
+    private void cargarPagina(int numPagina) {
+        if (paginas.containsKey(numPagina) || !paginasPendientes.add(numPagina)) {
+            return;
+        }
+
+        final int generacionCarga = generacion;
+        final String filtro = termino;
+        final boolean cursorConocido = cursores.containsKey(numPagina);
+        final FacturaResumen cursor = cursores.get(numPagina);
+
+        SwingWorker<List<FacturaResumen>, Void> worker = new SwingWorker<List<FacturaResumen>, Void>() {
+            @Override
+            protected List<FacturaResumen> doInBackground() {
+                FacturaResumen despuesDe = cursor;
+
+                // Salto directo (p. ej. arrastrando la barra): localizar la clave de inicio
+                if (!cursorConocido) {
+                    despuesDe = controller.obtenerClaveResumen(filtro, numPagina * TAMANO_PAGINA - 1);
+                    if (despuesDe == null) {
+                        return List.of();
+                    }
+                }
+
+                return controller.obtenerPaginaResumenes(filtro, despuesDe, TAMANO_PAGINA);
+            }
+
+            @Override
+            protected void done() {
+                if (generacionCarga != generacion) {
+                    return;
+                }
+                paginasPendientes.remove(numPagina);
+
+                try {
+                    if (!registrarPagina(numPagina, get())) {
+                        return;
+                    }
+                } catch (Exception e) {
+                    return;
+                }
+
+                int primeraFila = numPagina * TAMANO_PAGINA;
+                int ultimaFila = Math.min(primeraFila + TAMANO_PAGINA, totalFilas) - 1;
+                if (ultimaFila >= primeraFila) {
+                    fireTableRowsUpdated(primeraFila, ultimaFila);
+                }
+            }
+        };
+
+        worker.execute();
+    }
+
+    /**
+     * Guarda una página cargada y anota el cursor de la siguiente
+     * Una página vacía dentro del total de filas es una consulta fallida (el controlador
+     * devuelve una lista vacía si hay un error): no se guarda, para volver a pedirla
+     * la próxima vez que se muestren sus filas
+     *
+     * @return false si la página no se ha guardado
+     */
+    private boolean registrarPagina(int numPagina, List<FacturaResumen> filas) {
+        if (filas.isEmpty() && numPagina * TAMANO_PAGINA < totalFilas) {
+            return false;
+        }
+
+        paginas.put(numPagina, filas);
+
+        if (filas.size() == TAMANO_PAGINA) {
+            cursores.put(numPagina + 1, filas.get(filas.size() - 1));
+        }
+        return true;
+    }
+
+    /**
+     * Al descartar una página, descarta su cursor y el de la siguiente si ya no queda en
+     * memoria ninguna página contigua que los use (el de la página 0 se conserva siempre)
+     */
+    private void descartarCursores(int numPagina) {
+        if (numPagina > 0 && !paginas.containsKey(numPagina - 1)) {
+            cursores.remove(numPagina);
+        }
+        if (!paginas.containsKey(numPagina + 1)) {
+            cursores.remove(numPagina + 1);
+        }
+    }
+
+    private String formatearMoneda(BigDecimal valor) {
+        if (valor == null) {
+            return "0,00 €";
+        }
+        return String.format("%,.2f €", valor);
+    }
+}
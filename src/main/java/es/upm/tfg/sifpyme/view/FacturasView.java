@@ -1,15 +1,22 @@
 package es.upm.tfg.sifpyme.view;
 
 import es.upm.tfg.sifpyme.controller.FacturaController;
+import es.upm.tfg.sifpyme.model.entity.Empresa;
 import es.upm.tfg.sifpyme.model.entity.Factura;
 import es.upm.tfg.sifpyme.service.FacturaPDFService;
 import es.upm.tfg.sifpyme.service.FacturaExcelService;
+import es.upm.tfg.sifpyme.service.GeneracionMasivaPDFService;
+import es.upm.tfg.sifpyme.service.ImportacionFacturasService;
+import es.upm.tfg.sifpyme.service.InformeIvaService;
+import es.upm.tfg.sifpyme.service.SalidaExportacion;
 
 import javax.swing.*;
 import java.awt.*;
 import java.io.File;
-import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -18,15 +25,24 @@ import java.util.List;
  */
 public class FacturasView extends BaseListView<Factura> {
 
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final int MAX_FALLOS_MOSTRADOS = 10;
+
     private FacturaController controller;
     private FacturaPDFService pdfService;
     private FacturaExcelService excelService;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private FacturaResumenTableModel modeloFacturas;
 
     public FacturasView() {
         this.controller = new FacturaController();
         this.pdfService = new FacturaPDFService();
         this.excelService = new FacturaExcelService();
+
+        // Modelo con carga perezosa por páginas en lugar del DefaultTableModel completo
+        this.modeloFacturas = new FacturaResumenTableModel(controller, getNombresColumnas());
+        this.modeloFacturas.addTableModelListener(e -> actualizarTotal());
+        usarModeloTabla(modeloFacturas);
+
         cargarDatos();
     }
 
@@ -102,31 +118,11 @@ public class FacturasView extends BaseListView<Factura> {
             controller = new FacturaController();
         }
         
-        modeloTabla.setRowCount(0);
-
-        List<Factura> facturas = controller.obtenerTodasLasFacturas();
-
-        for (Factura factura : facturas) {
-            String nombreCliente = factura.getCliente() != null ? 
-                factura.getCliente().getNombreFiscal() : "";
-            
-            String nombreEmpresa = factura.getEmpresa() != null ? 
-                factura.getEmpresa().getRazonSocial() : "";
-
-            Object[] fila = {
-                factura.getIdFactura(),
-                factura.getFechaEmision().format(DATE_FORMATTER),
-                nombreCliente,
-                nombreEmpresa,
-                formatearMoneda(factura.getSubtotal()),
-                formatearMoneda(factura.getTotalIva()),
-                formatearMoneda(factura.getTotal()),
-                factura.getMetodoPago()
-            };
-            modeloTabla.addRow(fila);
+        if (modeloFacturas == null) {
+            return;
         }
 
-        actualizarTotal();
+        modeloFacturas.recargar(getTerminoBusqueda());
     }
 
     @Override
@@ -178,7 +174,10 @@ public class FacturasView extends BaseListView<Factura> {
         }
 
         int filaModelo = tabla.convertRowIndexToModel(filaSeleccionada);
-        String idFactura = (String) modeloTabla.getValueAt(filaModelo, 0);
+        String idFactura = modeloFacturas.getIdFactura(filaModelo);
+        if (idFactura == null) {
+            return;
+        }
 
         JPanel formulario = crearFormularioEdicion(idFactura);
         if (formulario != null) {
@@ -225,7 +224,10 @@ public class FacturasView extends BaseListView<Factura> {
         }
 
         int filaModelo = tabla.convertRowIndexToModel(filaSeleccionada);
-        String idFactura = (String) modeloTabla.getValueAt(filaModelo, 0);
+        String idFactura = modeloFacturas.getIdFactura(filaModelo);
+        if (idFactura == null) {
+            return;
+        }
 
         int confirmacion = JOptionPane.showConfirmDialog(
             this,
@@ -264,6 +266,588 @@ public class FacturasView extends BaseListView<Factura> {
         );
         btnGenerarArchivo.addActionListener(e -> mostrarDialogoGenerarArchivo());
         buttonsPanel.add(btnGenerarArchivo, 0);
+
+        JButton btnImportar = UIHelper.crearBoton(
+            "Importar",
+            new Color(39, 174, 96),
+            "📥"
+        );
+        btnImportar.addActionListener(e -> importarFacturas());
+        buttonsPanel.add(btnImportar, 1);
+
+        JButton btnPdfMasivo = UIHelper.crearBoton(
+            "PDF Masivo",
+            new Color(155, 89, 182),
+            "🗂"
+        );
+        btnPdfMasivo.addActionListener(e -> generarPDFsMasivo());
+        buttonsPanel.add(btnPdfMasivo, 2);
+
+        JButton btnLibroExcel = UIHelper.crearBoton(
+            "Libro Excel",
+            new Color(22, 160, 133),
+            "📊"
+        );
+        btnLibroExcel.addActionListener(e -> generarLibroExcel());
+        buttonsPanel.add(btnLibroExcel, 3);
+
+        JButton btnInformeIva = UIHelper.crearBoton(
+            "Informe IVA",
+            new Color(230, 126, 34),
+            "🧾"
+        );
+        btnInformeIva.addActionListener(e -> generarInformeIva());
+        buttonsPanel.add(btnInformeIva, 4);
+    }
+
+    /**
+     * Genera en segundo plano el informe de IVA trimestral (modelo 303) o anual (modelo 390)
+     * de una empresa, en PDF o Excel
+     */
+    private void generarInformeIva() {
+        List<Empresa> empresas = controller.obtenerEmpresas();
+        if (empresas.isEmpty()) {
+            JOptionPane.showMessageDialog(
+                this,
+                "No hay empresas registradas.",
+                "Información",
+                JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JComboBox<Object> cmbEmpresa = UIHelper.crearComboBox();
+        for (Empresa empresa : empresas) {
+            cmbEmpresa.addItem(empresa);
+        }
+
+        // Por defecto, el último trimestre cerrado
+        LocalDate trimestreAnterior = LocalDate.now().minusMonths(3);
+        JSpinner spnAnio = new JSpinner(new SpinnerNumberModel(trimestreAnterior.getYear(), 2000, 2100, 1));
+        spnAnio.setEditor(new JSpinner.NumberEditor(spnAnio, "#"));
+
+        JComboBox<String> cmbPeriodo = new JComboBox<>(new String[] {
+            "1T (modelo 303)", "2T (modelo 303)", "3T (modelo 303)", "4T (modelo 303)", "Anual (modelo 390)"
+        });
+        cmbPeriodo.setSelectedIndex((trimestreAnterior.getMonthValue() - 1) / 3);
+
+        JComboBox<String> cmbFormato = new JComboBox<>(new String[] { "PDF", "Excel" });
+
+        JPanel panelFiltros = new JPanel(new GridLayout(0, 2, 8, 8));
+        panelFiltros.add(new JLabel("Empresa:"));
+        panelFiltros.add(cmbEmpresa);
+        panelFiltros.add(new JLabel("Año:"));
+        panelFiltros.add(spnAnio);
+        panelFiltros.add(new JLabel("Periodo:"));
+        panelFiltros.add(cmbPeriodo);
+        panelFiltros.add(new JLabel("Formato:"));
+        panelFiltros.add(cmbFormato);
+
+        int opcion = JOptionPane.showConfirmDialog(
+            this,
+            panelFiltros,
+            "Informe de IVA",
+            JOptionPane.OK_CANCEL_OPTION,
+            JOptionPane.PLAIN_MESSAGE);
+
+        if (opcion != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        Empresa empresa = (Empresa) cmbEmpresa.getSelectedItem();
+        int anio = (Integer) spnAnio.getValue();
+        Integer trimestre = cmbPeriodo.getSelectedIndex() < 4 ? cmbPeriodo.getSelectedIndex() + 1 : null;
+        boolean esPDF = cmbFormato.getSelectedIndex() == 0;
+        String extension = esPDF ? "pdf" : "xlsx";
+
+        InformeIvaService informeService = new InformeIvaService();
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Guardar Informe de IVA");
+        fileChooser.setCurrentDirectory(SalidaExportacion.directorioPorDefecto().toFile());
+        fileChooser.setSelectedFile(new File(
+            informeService.generarNombreArchivo(empresa, anio, trimestre, extension)));
+
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File archivo = fileChooser.getSelectedFile();
+        if (!archivo.getName().toLowerCase().endsWith("." + extension)) {
+            archivo = new File(archivo.getAbsolutePath() + "." + extension);
+        }
+        String rutaDestino = archivo.getAbsolutePath();
+
+        JDialog dialogoProgreso = new JDialog(this, "Generando Informe de IVA", true);
+        dialogoProgreso.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialogoProgreso.setSize(350, 120);
+        dialogoProgreso.setLocationRelativeTo(this);
+        dialogoProgreso.setResizable(false);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel lblMensaje = new JLabel("Calculando el informe de IVA...");
+        lblMensaje.setFont(UITheme.FUENTE_ETIQUETA);
+        lblMensaje.setHorizontalAlignment(SwingConstants.CENTER);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+
+        panel.add(lblMensaje, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        dialogoProgreso.add(panel);
+
+        SwingWorker<String, Void> worker = new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                InformeIvaService.Informe informe = informeService.generarInforme(
+                    empresa.getIdEmpresa(), anio, trimestre);
+                return esPDF
+                    ? informeService.generarPDF(informe, rutaDestino)
+                    : informeService.generarExcel(informe, rutaDestino);
+            }
+
+            @Override
+            protected void done() {
+                dialogoProgreso.dispose();
+
+                try {
+                    String ruta = get();
+
+                    int respuesta = JOptionPane.showConfirmDialog(
+                        FacturasView.this,
+                        "Informe de IVA generado en:\n" + ruta + "\n\n¿Deseas abrir el archivo?",
+                        "Informe Generado",
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.INFORMATION_MESSAGE);
+
+                    if (respuesta == JOptionPane.YES_OPTION) {
+                        abrirArchivo(ruta);
+                    }
+
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Error al generar el informe de IVA:\n" + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        worker.execute();
+        dialogoProgreso.setVisible(true);
+    }
+
+    /**
+     * Exporta en segundo plano todas las facturas y líneas de un periodo y/o empresa
+     * a un único Excel (libro de facturas)
+     */
+    private void generarLibroExcel() {
+        FiltroPeriodo filtro = pedirFiltroPeriodo("Libro de Facturas en Excel", null);
+        if (filtro == null) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Guardar Libro de Facturas");
+        fileChooser.setCurrentDirectory(SalidaExportacion.directorioPorDefecto().toFile());
+        fileChooser.setSelectedFile(new File("Libro_Facturas_" + LocalDate.now() + ".xlsx"));
+
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File archivo = fileChooser.getSelectedFile();
+        if (!archivo.getName().toLowerCase().endsWith(".xlsx")) {
+            archivo = new File(archivo.getAbsolutePath() + ".xlsx");
+        }
+        String rutaDestino = archivo.getAbsolutePath();
+
+        JDialog dialogoProgreso = new JDialog(this, "Generando Libro de Facturas", true);
+        dialogoProgreso.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialogoProgreso.setSize(420, 160);
+        dialogoProgreso.setLocationRelativeTo(this);
+        dialogoProgreso.setResizable(false);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel lblMensaje = new JLabel("Leyendo facturas...");
+        lblMensaje.setFont(UITheme.FUENTE_ETIQUETA);
+        lblMensaje.setHorizontalAlignment(SwingConstants.CENTER);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+
+        JButton btnCancelar = new JButton("Cancelar");
+        JPanel panelBoton = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        panelBoton.add(btnCancelar);
+
+        panel.add(lblMensaje, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        panel.add(panelBoton, BorderLayout.SOUTH);
+        dialogoProgreso.add(panel);
+
+        SwingWorker<Long, Long> worker = new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return excelService.generarLibroExcel(filtro.desde, filtro.hasta, filtro.idEmpresa,
+                    rutaDestino, this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> parciales) {
+                lblMensaje.setText(String.format("%,d líneas escritas", parciales.get(parciales.size() - 1)));
+            }
+
+            @Override
+            protected void done() {
+                dialogoProgreso.dispose();
+
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Generación del libro de facturas cancelada.",
+                        "Cancelado",
+                        JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+
+                try {
+                    long lineas = get();
+
+                    int opcion = JOptionPane.showConfirmDialog(
+                        FacturasView.this,
+                        String.format("Libro de facturas generado (%,d líneas):%n%s%n%n¿Deseas abrirlo ahora?",
+                            lineas, rutaDestino),
+                        "Éxito",
+                        JOptionPane.YES_NO_OPTION,
+                        JOptionPane.INFORMATION_MESSAGE);
+
+                    if (opcion == JOptionPane.YES_OPTION) {
+                        abrirArchivo(rutaDestino);
+                    }
+
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Error al generar el libro de facturas:\n" + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        btnCancelar.addActionListener(e -> worker.cancel(true));
+
+        worker.execute();
+        dialogoProgreso.setVisible(true);
+    }
+
+    /**
+     * Filtro de periodo y empresa para las exportaciones masivas
+     */
+    private static class FiltroPeriodo {
+        private LocalDate desde;
+        private LocalDate hasta;
+        private Integer idEmpresa;
+    }
+
+    /**
+     * Pide el periodo (por defecto, el mes en curso) y la empresa de una exportación masiva
+     *
+     * @param extra Componente adicional del diálogo (puede ser null)
+     * @return El filtro elegido, o null si se cancela o las fechas no son válidas
+     */
+    private FiltroPeriodo pedirFiltroPeriodo(String titulo, JComponent extra) {
+        JTextField txtDesde = new JTextField(LocalDate.now().withDayOfMonth(1).format(DATE_FORMATTER), 10);
+        JTextField txtHasta = new JTextField(LocalDate.now().format(DATE_FORMATTER), 10);
+
+        JComboBox<Object> cmbEmpresa = UIHelper.crearComboBox();
+        cmbEmpresa.addItem("Todas");
+        for (Empresa empresa : controller.obtenerEmpresas()) {
+            cmbEmpresa.addItem(empresa);
+        }
+
+        JPanel panelFiltros = new JPanel(new GridLayout(0, 2, 8, 8));
+        panelFiltros.add(new JLabel("Desde (dd/MM/yyyy):"));
+        panelFiltros.add(txtDesde);
+        panelFiltros.add(new JLabel("Hasta (dd/MM/yyyy):"));
+        panelFiltros.add(txtHasta);
+        panelFiltros.add(new JLabel("Empresa:"));
+        panelFiltros.add(cmbEmpresa);
+        if (extra != null) {
+            panelFiltros.add(new JLabel());
+            panelFiltros.add(extra);
+        }
+
+        int opcion = JOptionPane.showConfirmDialog(
+            this,
+            panelFiltros,
+            titulo,
+            JOptionPane.OK_CANCEL_OPTION,
+            JOptionPane.PLAIN_MESSAGE);
+
+        if (opcion != JOptionPane.OK_OPTION) {
+            return null;
+        }
+
+        FiltroPeriodo filtro = new FiltroPeriodo();
+        try {
+            filtro.desde = txtDesde.getText().isBlank() ? null : LocalDate.parse(txtDesde.getText().trim(), DATE_FORMATTER);
+            filtro.hasta = txtHasta.getText().isBlank() ? null : LocalDate.parse(txtHasta.getText().trim(), DATE_FORMATTER);
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(
+                this,
+                "Formato de fecha inválido. Use dd/MM/yyyy",
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+
+        filtro.idEmpresa = cmbEmpresa.getSelectedItem() instanceof Empresa
+            ? ((Empresa) cmbEmpresa.getSelectedItem()).getIdEmpresa() : null;
+        return filtro;
+    }
+
+    /**
+     * Genera en segundo plano los PDFs de todas las facturas de un periodo y/o empresa,
+     * en una carpeta o en un fichero ZIP
+     */
+    private void generarPDFsMasivo() {
+        JCheckBox chkZip = new JCheckBox("Comprimir en un fichero ZIP", true);
+
+        FiltroPeriodo filtro = pedirFiltroPeriodo("Generar PDFs de Facturas", chkZip);
+        if (filtro == null) {
+            return;
+        }
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setCurrentDirectory(SalidaExportacion.directorioPorDefecto().toFile());
+        if (chkZip.isSelected()) {
+            fileChooser.setDialogTitle("Guardar PDFs en ZIP");
+            fileChooser.setSelectedFile(new File("Facturas_" + LocalDate.now() + ".zip"));
+        } else {
+            fileChooser.setDialogTitle("Seleccionar carpeta de destino");
+            fileChooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        }
+
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        File seleccionado = fileChooser.getSelectedFile();
+        if (chkZip.isSelected() && !seleccionado.getName().toLowerCase().endsWith(".zip")) {
+            seleccionado = new File(seleccionado.getAbsolutePath() + ".zip");
+        }
+        Path destino = seleccionado.toPath();
+
+        JDialog dialogoProgreso = new JDialog(this, "Generando PDFs", true);
+        dialogoProgreso.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialogoProgreso.setSize(420, 160);
+        dialogoProgreso.setLocationRelativeTo(this);
+        dialogoProgreso.setResizable(false);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel lblMensaje = new JLabel("Buscando facturas...");
+        lblMensaje.setFont(UITheme.FUENTE_ETIQUETA);
+        lblMensaje.setHorizontalAlignment(SwingConstants.CENTER);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setStringPainted(true);
+
+        JButton btnCancelar = new JButton("Cancelar");
+        JPanel panelBoton = new JPanel(new FlowLayout(FlowLayout.CENTER));
+        panelBoton.add(btnCancelar);
+
+        panel.add(lblMensaje, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        panel.add(panelBoton, BorderLayout.SOUTH);
+        dialogoProgreso.add(panel);
+
+        SwingWorker<GeneracionMasivaPDFService.Resultado, int[]> worker = 
+            new SwingWorker<GeneracionMasivaPDFService.Resultado, int[]>() {
+            @Override
+            protected GeneracionMasivaPDFService.Resultado doInBackground() throws Exception {
+                return new GeneracionMasivaPDFService().generar(filtro.desde, filtro.hasta, filtro.idEmpresa, destino,
+                    (procesadas, total) -> publish(new int[] { procesadas, total }));
+            }
+
+            @Override
+            protected void process(List<int[]> parciales) {
+                int[] ultimo = parciales.get(parciales.size() - 1);
+                progressBar.setIndeterminate(false);
+                progressBar.setMaximum(ultimo[1]);
+                progressBar.setValue(ultimo[0]);
+                lblMensaje.setText(String.format("%d de %d facturas procesadas", ultimo[0], ultimo[1]));
+            }
+
+            @Override
+            protected void done() {
+                dialogoProgreso.dispose();
+
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Generación de PDFs cancelada.",
+                        "Cancelado",
+                        JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+
+                try {
+                    GeneracionMasivaPDFService.Resultado resultado = get();
+
+                    if (resultado.getTotal() == 0) {
+                        JOptionPane.showMessageDialog(
+                            FacturasView.this,
+                            "No hay facturas que cumplan los filtros indicados.",
+                            "Información",
+                            JOptionPane.INFORMATION_MESSAGE);
+                        return;
+                    }
+
+                    StringBuilder mensaje = new StringBuilder(String.format(
+                        "PDFs generados: %d de %d%nTiempo: %.1f s%nDestino: %s",
+                        resultado.getGeneradas(), resultado.getTotal(),
+                        resultado.getMilisegundos() / 1000.0, destino));
+
+                    List<GeneracionMasivaPDFService.Fallo> fallos = resultado.getFallos();
+                    if (!fallos.isEmpty()) {
+                        mensaje.append("\n\nFacturas con errores (").append(fallos.size()).append("):");
+                        fallos.stream().limit(MAX_FALLOS_MOSTRADOS)
+                            .forEach(fallo -> mensaje.append("\n - ").append(fallo));
+                        if (fallos.size() > MAX_FALLOS_MOSTRADOS) {
+                            mensaje.append("\n ...");
+                        }
+                    }
+
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        mensaje.toString(),
+                        "Generación Finalizada",
+                        fallos.isEmpty() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Error al generar los PDFs:\n" + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        btnCancelar.addActionListener(e -> worker.cancel(true));
+
+        worker.execute();
+        dialogoProgreso.setVisible(true);
+    }
+
+    /**
+     * Importa facturas desde un fichero CSV o JSON en segundo plano
+     * Las rechazadas se anotan junto al fichero de origen (nombre.rechazos.csv)
+     */
+    private void importarFacturas() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Importar Facturas");
+        fileChooser.setFileSelectionMode(JFileChooser.FILES_ONLY);
+
+        fileChooser.setFileFilter(new javax.swing.filechooser.FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                String nombre = f.getName().toLowerCase();
+                return f.isDirectory() || nombre.endsWith(".csv") || 
+                    nombre.endsWith(".json") || nombre.endsWith(".jsonl");
+            }
+
+            @Override
+            public String getDescription() {
+                return "Facturas CSV o JSON (*.csv, *.json, *.jsonl)";
+            }
+        });
+
+        if (fileChooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        Path origen = fileChooser.getSelectedFile().toPath();
+        Path rechazos = origen.resolveSibling(origen.getFileName() + ".rechazos.csv");
+
+        JDialog dialogoProgreso = new JDialog(this, "Importando Facturas", true);
+        dialogoProgreso.setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+        dialogoProgreso.setSize(420, 120);
+        dialogoProgreso.setLocationRelativeTo(this);
+        dialogoProgreso.setResizable(false);
+
+        JPanel panel = new JPanel(new BorderLayout(10, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
+
+        JLabel lblMensaje = new JLabel("Importando " + origen.getFileName() + "...");
+        lblMensaje.setFont(UITheme.FUENTE_ETIQUETA);
+        lblMensaje.setHorizontalAlignment(SwingConstants.CENTER);
+
+        JProgressBar progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+
+        panel.add(lblMensaje, BorderLayout.NORTH);
+        panel.add(progressBar, BorderLayout.CENTER);
+        dialogoProgreso.add(panel);
+
+        SwingWorker<ImportacionFacturasService.Resultado, ImportacionFacturasService.Resultado> worker = 
+            new SwingWorker<ImportacionFacturasService.Resultado, ImportacionFacturasService.Resultado>() {
+            @Override
+            protected ImportacionFacturasService.Resultado doInBackground() throws Exception {
+                return new ImportacionFacturasService().importar(origen, rechazos, this::publish);
+            }
+
+            @Override
+            protected void process(List<ImportacionFacturasService.Resultado> parciales) {
+                ImportacionFacturasService.Resultado ultimo = parciales.get(parciales.size() - 1);
+                lblMensaje.setText(String.format("%d importadas, %d rechazadas (%.0f facturas/s)",
+                    ultimo.getImportadas(), ultimo.getRechazadas(), ultimo.getFacturasPorSegundo()));
+            }
+
+            @Override
+            protected void done() {
+                dialogoProgreso.dispose();
+
+                try {
+                    ImportacionFacturasService.Resultado resultado = get();
+                    String mensaje = String.format(
+                        "Facturas leídas: %d%nImportadas: %d%nRechazadas: %d%nTiempo: %.1f s (%.0f facturas/s)",
+                        resultado.getLeidas(), resultado.getImportadas(), resultado.getRechazadas(),
+                        resultado.getMilisegundos() / 1000.0, resultado.getFacturasPorSegundo());
+
+                    if (resultado.getRechazadas() > 0) {
+                        mensaje += "\n\nMotivos de rechazo en:\n" + rechazos;
+                    }
+
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        mensaje,
+                        "Importación Finalizada",
+                        resultado.getRechazadas() > 0 ? 
+                            JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(
+                        FacturasView.this,
+                        "Error al importar las facturas:\n" + e.getMessage(),
+                        "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                }
+
+                cargarDatos();
+            }
+        };
+
+        worker.execute();
+        dialogoProgreso.setVisible(true);
     }
 
     /**
@@ -290,7 +874,10 @@ public class FacturasView extends BaseListView<Factura> {
         }
 
         int filaModelo = tabla.convertRowIndexToModel(filaSeleccionada);
-        String idFactura = (String) modeloTabla.getValueAt(filaModelo, 0);
+        String idFactura = modeloFacturas.getIdFactura(filaModelo);
+        if (idFactura == null) {
+            return;
+        }
 
         Factura factura = controller.obtenerFacturaPorId(idFactura);
         if (factura == null) {
@@ -503,11 +1090,4 @@ public class FacturasView extends BaseListView<Factura> {
                 JOptionPane.ERROR_MESSAGE);
         }
     }
-
-    private String formatearMoneda(BigDecimal valor) {
-        if (valor == null) {
-            return "0,00 €";
-        }
-        return String.format("%,.2f €", valor);
-    }
 }
\ No newline at end of file
@@ -3,11 +3,14 @@ package es.upm.tfg.sifpyme.view;
 import es.upm.tfg.sifpyme.controller.FacturaController;
 import es.upm.tfg.sifpyme.model.entity.LineaFactura;
 import es.upm.tfg.sifpyme.model.entity.Producto;
+import es.upm.tfg.sifpyme.util.ConsultaCancelable;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.event.PopupMenuEvent;
+import javax.swing.event.PopupMenuListener;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.math.BigDecimal;
@@ -49,11 +52,19 @@ public class LineaFacturaFormView extends BaseFormView<LineaFactura> {
     private JButton btnBuscarProducto;
 
     private JPopupMenu popupProductos;
+    private JTextField txtFiltroProductos;
     private JList<Producto> listaProductos;
     private DefaultListModel<Producto> modeloProductos;
+    private JLabel lblEstadoProductos;
+
+    // Búsqueda de productos al escribir (sin cargar todo el catálogo)
+    private static final int LIMITE_PRODUCTOS = 50;
+    private static final int RETARDO_BUSQUEDA_MS = 250;
+    private Timer temporizadorProductos;
+    private SwingWorker<List<Producto>, Void> busquedaProductos;
+    private ConsultaCancelable consultaProductos;
 
     private Producto productoPlantilla;
-    private List<Producto> todosLosProductos;
 
     // Flags para evitar bucles en cálculo bidireccional
     private boolean calculandoPrecio = false;
@@ -84,9 +95,6 @@ public class LineaFacturaFormView extends BaseFormView<LineaFactura> {
             entidadEditar.setTempIndiceEditar(indiceEditar);
         }
 
-        // Cargar productos para el buscador
-        todosLosProductos = facturaController.obtenerProductos();
-
         // Configurar cálculo automático después de inicializar componentes
         SwingUtilities.invokeLater(() -> configurarCalculoAutomatico());
 
@@ -403,11 +411,66 @@ public class LineaFacturaFormView extends BaseFormView<LineaFactura> {
             return lbl;
         });
 
-        popupProductos = new JPopupMenu();
-        popupProductos.setBorder(BorderFactory.createLineBorder(UITheme.COLOR_BORDE));
+        txtFiltroProductos = crearCampoTexto(30);
+        txtFiltroProductos.setToolTipText("Escribe el nombre o código del producto");
+
+        lblEstadoProductos = new JLabel(" ");
+        lblEstadoProductos.setFont(UITheme.FUENTE_CAMPO);
+        lblEstadoProductos.setBorder(BorderFactory.createEmptyBorder(3, 10, 3, 10));
+
+        JPanel panelProductos = new JPanel(new BorderLayout(0, 5));
+        panelProductos.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        panelProductos.add(txtFiltroProductos, BorderLayout.NORTH);
         JScrollPane scrollPane = new JScrollPane(listaProductos);
         scrollPane.setPreferredSize(new Dimension(500, 250));
-        popupProductos.add(scrollPane);
+        panelProductos.add(scrollPane, BorderLayout.CENTER);
+        panelProductos.add(lblEstadoProductos, BorderLayout.SOUTH);
+
+        popupProductos = new JPopupMenu();
+        popupProductos.setBorder(BorderFactory.createLineBorder(UITheme.COLOR_BORDE));
+        popupProductos.add(panelProductos);
+        popupProductos.addPopupMenuListener(new PopupMenuListener() {
+            public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
+            }
+
+            public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+                temporizadorProductos.stop();
+                cancelarBusquedaProductos();
+            }
+
+            public void popupMenuCanceled(PopupMenuEvent e) {
+            }
+        });
+
+        // La búsqueda se lanza al dejar de escribir
+        temporizadorProductos = new Timer(RETARDO_BUSQUEDA_MS,
+                e -> buscarProductos(txtFiltroProductos.getText()));
+        temporizadorProductos.setRepeats(false);
+
+        txtFiltroProductos.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                temporizadorProductos.restart();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                temporizadorProductos.restart();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+                temporizadorProductos.restart();
+            }
+        });
+
+        txtFiltroProductos.addKeyListener(new java.awt.event.KeyAdapter() {
+            public void keyPressed(java.awt.event.KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_DOWN && !modeloProductos.isEmpty()) {
+                    listaProductos.requestFocusInWindow();
+                    listaProductos.setSelectedIndex(Math.max(listaProductos.getSelectedIndex(), 0));
+                } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    seleccionarProductoPlantilla();
+                }
+            }
+        });
 
         listaProductos.addMouseListener(new java.awt.event.MouseAdapter() {
             public void mouseClicked(java.awt.event.MouseEvent e) {
@@ -561,19 +624,73 @@ public class LineaFacturaFormView extends BaseFormView<LineaFactura> {
 
     private void mostrarBuscadorProducto() {
         modeloProductos.clear();
-        todosLosProductos.forEach(modeloProductos::addElement);
+        txtFiltroProductos.setText(txtNombreProducto.getText().trim());
+        temporizadorProductos.stop();
 
-        if (!todosLosProductos.isEmpty()) {
-            Point location = btnBuscarProducto.getLocationOnScreen();
-            SwingUtilities.convertPointFromScreen(location, btnBuscarProducto);
+        popupProductos.show(btnBuscarProducto, 0, btnBuscarProducto.getHeight());
+        txtFiltroProductos.requestFocusInWindow();
+        txtFiltroProductos.selectAll();
 
-            popupProductos.show(btnBuscarProducto, 0, btnBuscarProducto.getHeight());
-        } else {
-            JOptionPane.showMessageDialog(
-                    this,
-                    "No hay productos registrados en el sistema",
-                    "Sin Productos",
-                    JOptionPane.INFORMATION_MESSAGE);
+        buscarProductos(txtFiltroProductos.getText());
+    }
+
+    /**
+     * Busca en segundo plano como máximo LIMITE_PRODUCTOS productos que empiecen por el
+     * término. Una nueva búsqueda cancela la anterior en la base de datos.
+     */
+    private void buscarProductos(String termino) {
+        cancelarBusquedaProductos();
+
+        final ConsultaCancelable cancelacion = new ConsultaCancelable();
+        consultaProductos = cancelacion;
+        lblEstadoProductos.setText("Buscando...");
+
+        busquedaProductos = new SwingWorker<List<Producto>, Void>() {
+            @Override
+            protected List<Producto> doInBackground() {
+                return facturaController.buscarProductos(termino, LIMITE_PRODUCTOS, cancelacion);
+            }
+
+            @Override
+            protected void done() {
+                if (this != busquedaProductos || isCancelled()) {
+                    return;
+                }
+
+                try {
+                    List<Producto> productos = get();
+
+                    modeloProductos.clear();
+                    modeloProductos.addAll(productos);
+                    if (!productos.isEmpty()) {
+                        listaProductos.setSelectedIndex(0);
+                    }
+
+                    if (productos.isEmpty()) {
+                        lblEstadoProductos.setText(termino.isBlank()
+                                ? "No hay productos registrados en el sistema"
+                                : "Sin resultados para \"" + termino.trim() + "\"");
+                    } else if (productos.size() >= LIMITE_PRODUCTOS) {
+                        lblEstadoProductos.setText("Mostrando los " + LIMITE_PRODUCTOS +
+                                " primeros, escribe para afinar la búsqueda");
+                    } else {
+                        lblEstadoProductos.setText(productos.size() + " productos");
+                    }
+
+                } catch (Exception e) {
+                    lblEstadoProductos.setText("Error al buscar productos");
+                }
+            }
+        };
+
+        busquedaProductos.execute();
+    }
+
+    private void cancelarBusquedaProductos() {
+        if (busquedaProductos != null) {
+            busquedaProductos.cancel(false);
+            consultaProductos.cancelar();
+            busquedaProductos = null;
         }
     }
 
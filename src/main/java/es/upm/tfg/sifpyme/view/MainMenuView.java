@@ -1,11 +1,13 @@
 package es.upm.tfg.sifpyme.view;
 
+import es.upm.tfg.sifpyme.service.ArranqueService;
 import es.upm.tfg.sifpyme.util.NavigationManager;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionListener;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Menú principal de la aplicación SifPyme
@@ -21,12 +23,14 @@ public class MainMenuView extends JFrame {
     private JButton btnConfiguracion;
     private JButton btnSalir;
     private JButton btnVolver;
+    private JLabel lblEstadoSistema;
 
     public MainMenuView() {
         configurarVentana();
         initComponents();
         setupLayout();
         configurarListeners();
+        mostrarEstadoArranque();
     }
 
     private void configurarVentana() {
@@ -216,12 +220,12 @@ public class MainMenuView extends JFrame {
         lblVersion.setFont(UITheme.FUENTE_SUBTITULO);
         lblVersion.setForeground(Color.GRAY);
 
-        JLabel lblEstado = new JLabel("Sistema listo", SwingConstants.RIGHT);
-        lblEstado.setFont(UITheme.FUENTE_SUBTITULO);
-        lblEstado.setForeground(UITheme.COLOR_EXITO);
+        lblEstadoSistema = new JLabel("Sistema listo", SwingConstants.RIGHT);
+        lblEstadoSistema.setFont(UITheme.FUENTE_SUBTITULO);
+        lblEstadoSistema.setForeground(UITheme.COLOR_EXITO);
 
         panel.add(lblVersion, BorderLayout.WEST);
-        panel.add(lblEstado, BorderLayout.EAST);
+        panel.add(lblEstadoSistema, BorderLayout.EAST);
 
         return panel;
     }
@@ -267,6 +271,31 @@ public class MainMenuView extends JFrame {
         });
     }
 
+    /**
+     * Indica en el pie mientras la base de datos se sigue cargando en segundo plano
+     */
+    private void mostrarEstadoArranque() {
+        CompletableFuture<Void> arranque = ArranqueService.getArranque();
+        if (arranque == null) {
+            return;
+        }
+
+        if (!arranque.isDone()) {
+            lblEstadoSistema.setText("Cargando datos...");
+            lblEstadoSistema.setForeground(UITheme.COLOR_INFO);
+        }
+
+        arranque.whenComplete((ignorado, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                lblEstadoSistema.setText("Sistema listo");
+                lblEstadoSistema.setForeground(UITheme.COLOR_EXITO);
+            } else {
+                lblEstadoSistema.setText("Error al iniciar la base de datos");
+                lblEstadoSistema.setForeground(UITheme.COLOR_PELIGRO);
+            }
+        }));
+    }
+
     private void confirmarSalida() {
         int confirmacion = JOptionPane.showConfirmDialog(
                 this,
@@ -5,7 +5,6 @@ import es.upm.tfg.sifpyme.model.entity.Producto;
 
 import javax.swing.*;
 import java.math.BigDecimal;
-import java.util.List;
 
 /**
  * Vista de lista de productos
@@ -91,30 +90,28 @@ public class ProductosView extends BaseListView<Producto> {
             controller = new ProductoController();
         }
         
-        modeloTabla.setRowCount(0);
-
-        List<Producto> productos = controller.obtenerTodosLosProductos();
-
-        for (Producto producto : productos) {
-            // CAMBIADO: Obtener IVA directamente del producto (ya no hay TipoIva)
-            String ivaStr = "";
-            if (producto.getTipoIva() != null) {
-                ivaStr = producto.getTipoIva() + "%";
-            }
-
-            Object[] fila = {
-                producto.getIdProducto(),
-                producto.getCodigo() != null ? producto.getCodigo() : "",
-                producto.getNombre(),
-                formatearPrecio(producto.getPrecio()),
-                formatearPrecio(producto.getPrecioBase()),
-                ivaStr,
-                formatearPrecio(producto.getTipoRetencion())
-            };
-            modeloTabla.addRow(fila);
+        String termino = getTerminoBusqueda();
+        cargarEnSegundoPlano(
+            (cancelacion, destino) -> controller.buscarProductos(termino, LIMITE_RESULTADOS_BUSQUEDA, cancelacion, destino),
+            this::crearFila);
+    }
+
+    private Object[] crearFila(Producto producto) {
+        // CAMBIADO: Obtener IVA directamente del producto (ya no hay TipoIva)
+        String ivaStr = "";
+        if (producto.getTipoIva() != null) {
+            ivaStr = producto.getTipoIva() + "%";
         }
 
-        actualizarTotal();
+        return new Object[]{
+            producto.getIdProducto(),
+            producto.getCodigo() != null ? producto.getCodigo() : "",
+            producto.getNombre(),
+            formatearPrecio(producto.getPrecio()),
+            formatearPrecio(producto.getPrecioBase()),
+            ivaStr,
+            formatearPrecio(producto.getTipoRetencion())
+        };
     }
 
     @Override
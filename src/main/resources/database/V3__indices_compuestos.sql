@@ -0,0 +1,22 @@
+-- =====================================================
+-- ÍNDICES COMPUESTOS PARA LOS ACCESOS A FACTURAS
+-- Las consultas filtran por cliente, empresa o periodo y ordenan por fecha de emisión;
+-- con la fecha en el índice no hace falta ordenar las filas después de leerlas.
+-- =====================================================
+
+-- Facturas de un cliente o de una empresa, de la más reciente a la más antigua
+CREATE INDEX IF NOT EXISTS idx_factura_cliente_fecha ON Factura(id_cliente, fecha_emision DESC);
+CREATE INDEX IF NOT EXISTS idx_factura_empresa_fecha ON Factura(id_empresa, fecha_emision DESC);
+
+-- Listado de facturas paginado por (fecha_emision, id_factura) descendente
+CREATE INDEX IF NOT EXISTS idx_factura_fecha_id ON Factura(fecha_emision DESC, id_factura DESC);
+
+-- Líneas de una factura por número de línea
+CREATE INDEX IF NOT EXISTS idx_linea_factura_factura_numero ON Linea_factura(id_factura, numero_linea);
+
+-- Índices de una columna que ya cubren los anteriores o los de las claves ajenas
+-- (H2 crea su propio índice para cada FOREIGN KEY)
+DROP INDEX IF EXISTS idx_factura_empresa;
+DROP INDEX IF EXISTS idx_factura_cliente;
+DROP INDEX IF EXISTS idx_factura_fecha;
+DROP INDEX IF EXISTS idx_linea_factura_factura;
@@ -0,0 +1,20 @@
+-- =====================================================
+-- ÍNDICE DE BÚSQUEDA DE CLIENTES Y PRODUCTOS
+-- Índice invertido de palabras para las búsquedas por prefijo. Lo mantienen los
+-- triggers de Cliente y Producto; si está vacío (datos anteriores a esta migración),
+-- IndiceBusquedaDAO lo reconstruye la primera vez que se usa.
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS Indice_busqueda (
+  entidad VARCHAR(20) NOT NULL,
+  id_entidad VARCHAR(20) NOT NULL,
+  palabra VARCHAR(100) NOT NULL,
+  PRIMARY KEY (entidad, palabra, id_entidad)
+);
+
+-- Palabras de una fila concreta, para borrarlas o comprobar coincidencias por fila
+CREATE INDEX IF NOT EXISTS idx_indice_busqueda_entidad ON Indice_busqueda(entidad, id_entidad);
+
+-- Sincronización del índice con las tablas de origen
+CREATE TRIGGER IF NOT EXISTS trg_indice_busqueda_cliente AFTER INSERT, UPDATE, DELETE ON Cliente FOR EACH ROW CALL 'es.upm.tfg.sifpyme.model.dao.IndiceBusquedaTrigger';
+CREATE TRIGGER IF NOT EXISTS trg_indice_busqueda_producto AFTER INSERT, UPDATE, DELETE ON Producto FOR EACH ROW CALL 'es.upm.tfg.sifpyme.model.dao.IndiceBusquedaTrigger';
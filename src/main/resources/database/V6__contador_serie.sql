@@ -0,0 +1,12 @@
+-- =====================================================
+-- NUMERACIÓN CORRELATIVA DE FACTURAS POR SERIE
+-- Siguiente número de factura de cada serie. id_factura es clave global, así que el
+-- contador es por serie; la serie por defecto incluye la empresa (FAC<id_empresa>-<año>).
+-- Las series que aún no tienen fila se inicializan a partir de las facturas existentes
+-- la primera vez que se numera en ellas (ContadorFacturaDAO).
+-- =====================================================
+
+CREATE TABLE IF NOT EXISTS Contador_serie (
+  serie VARCHAR(15) PRIMARY KEY,
+  siguiente BIGINT NOT NULL CHECK (siguiente > 0)
+);
@@ -0,0 +1,38 @@
+-- =====================================================
+-- RESÚMENES DE FACTURACIÓN
+-- Totales precalculados que mantiene FacturaDAO al insertar, actualizar y eliminar
+-- facturas. Son datos derivados: si no cuadran con las facturas (p. ej. datos anteriores
+-- a esta migración), ResumenFacturacionDAO los reconstruye al arrancar.
+-- =====================================================
+
+-- Totales de facturas por empresa, mes (AAAAMM), cliente y método de pago
+CREATE TABLE IF NOT EXISTS Resumen_facturacion (
+  id_empresa INT NOT NULL,
+  periodo INT NOT NULL,
+  id_cliente INT NOT NULL,
+  metodo_pago VARCHAR(50) NOT NULL,
+  num_facturas BIGINT NOT NULL DEFAULT 0,
+  subtotal DECIMAL(15,2) NOT NULL DEFAULT 0,
+  total_iva DECIMAL(15,2) NOT NULL DEFAULT 0,
+  total_retencion DECIMAL(15,2) NOT NULL DEFAULT 0,
+  total DECIMAL(15,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (id_empresa, periodo, id_cliente, metodo_pago)
+);
+
+-- Totales de líneas por empresa, mes, cliente, tipo de IVA y tipo de retención (0 si no
+-- tiene). num_facturas cuenta las facturas con alguna línea de esa combinación: cada
+-- factura es de un solo mes y cliente, así que se puede sumar entre filas.
+CREATE TABLE IF NOT EXISTS Resumen_iva (
+  id_empresa INT NOT NULL,
+  periodo INT NOT NULL,
+  id_cliente INT NOT NULL,
+  porcentaje_iva DECIMAL(5,2) NOT NULL,
+  porcentaje_retencion DECIMAL(5,2) NOT NULL,
+  num_facturas BIGINT NOT NULL DEFAULT 0,
+  num_lineas BIGINT NOT NULL DEFAULT 0,
+  base_imponible DECIMAL(15,2) NOT NULL DEFAULT 0,
+  cuota_iva DECIMAL(15,2) NOT NULL DEFAULT 0,
+  importe_retencion DECIMAL(15,2) NOT NULL DEFAULT 0,
+  total DECIMAL(15,2) NOT NULL DEFAULT 0,
+  PRIMARY KEY (id_empresa, periodo, id_cliente, porcentaje_iva, porcentaje_retencion)
+);